@@ -0,0 +1,71 @@
+package be.smals.shared.pseudo.helper;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Identity of a {@link Pseudonym} at rest: the key of its {@link Domain} and the bytes of its X coordinate.
+ * <p>
+ * Two {@link Pseudonym}s are equal (see {@link Object#equals(Object)}) if and only if their {@link AtRestKey}s are equal.
+ * Unlike {@link PseudonymInTransit}s, {@link AtRestKey}s can be compared and hashed without any decryption:
+ * use {@link PseudonymInTransit#atRestKey()} to put {@link PseudonymInTransit}s in a {@link java.util.HashSet} or a {@link java.util.HashMap}.
+ */
+@SuppressWarnings("unused")
+public final class AtRestKey {
+
+  private final String domainKey;
+  private final byte[] x;
+  private final int hash;
+
+  private AtRestKey(final String domainKey, final byte[] x) {
+    this.domainKey = domainKey;
+    this.x = x;
+    this.hash = 31 * Arrays.hashCode(x) + domainKey.hashCode();
+  }
+
+  /**
+   * Returns the {@link AtRestKey} of the given {@link Pseudonym}, which must be a pseudonym at rest.
+   *
+   * @param pseudonym the pseudonym at rest
+   * @return the {@link AtRestKey} of {@code pseudonym}
+   */
+  public static AtRestKey of(final Pseudonym pseudonym) {
+    return new AtRestKey(pseudonym.domain().key(), pseudonym.xBytes());
+  }
+
+  /**
+   * Returns the key of the {@link Domain} of the pseudonym.
+   *
+   * @return the key of the {@link Domain}
+   */
+  public String domainKey() {
+    return domainKey;
+  }
+
+  /**
+   * Returns a copy of the bytes of the X coordinate of the pseudonym at rest.
+   *
+   * @return the bytes of the X coordinate
+   */
+  public byte[] x() {
+    return x.clone();
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (obj == this) {return true;}
+    if (!(obj instanceof AtRestKey)) {return false;}
+    final var that = (AtRestKey) obj;
+    return hash == that.hash && domainKey.equals(that.domainKey) && Arrays.equals(x, that.x);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return domainKey + ":" + Base64.getUrlEncoder().withoutPadding().encodeToString(x);
+  }
+}
@@ -0,0 +1,65 @@
+package be.smals.shared.pseudo.helper;
+
+import be.smals.shared.pseudo.helper.internal.BlockingPseudonymisationClientAdapter;
+import java.util.concurrent.Executor;
+
+/**
+ * Implement this interface if your HTTP client is blocking, and convert it to a {@link PseudonymisationClient}
+ * with {@link #toPseudonymisationClient()}.
+ * <p>
+ * Each call is made on a virtual thread when the library runs on Java 21 or later,
+ * and on a bounded pool of daemon threads otherwise: you do not have to call {@link java.util.concurrent.CompletableFuture#supplyAsync}
+ * yourself (which would run the blocking calls on {@link java.util.concurrent.ForkJoinPool#commonPool()} and cap the number of calls in flight).
+ * <p>
+ * Do not forget to add the following headers in each request:
+ * <ul>
+ *   <li>Content-Type: 'application/json'</li>
+ *   <li>From: see eHealth Pseudonymisation cookbook</li>
+ *   <li>User-Agent: see eHealth Pseudonymisation cookbook</li>
+ * </ul>
+ */
+@SuppressWarnings("unused")
+@FunctionalInterface
+public interface BlockingPseudonymisationClient {
+
+  // tag::methods[]
+  /**
+   * Calls /pseudo/v1/domains/{domainKey}/{endpoint} and returns the response as a String.
+   * <p>
+   * {@code endpoint} is the part of the path following the domain key:
+   * <ul>
+   *   <li>an empty String to get the domain (in this case, {@code payload} is {@code null} and the request must be a GET).
+   *   Each of these calls <strong>must</strong> make a call to eHealth pseudonymisation service: please do not return a cached response !</li>
+   *   <li>{@code identify}, {@code identifyMultiple}, {@code pseudonymize} or {@code pseudonymizeMultiple}</li>
+   *   <li>{@code convertTo/{toDomainKey}} or {@code convertMultipleTo/{toDomainKey}}</li>
+   * </ul>
+   *
+   * @param endpoint  the part of the path following the domain key, without leading slash
+   * @param domainKey the domain key
+   * @param payload   the request body, or {@code null} for a GET
+   * @return the response as a String
+   * @throws Exception if the call failed
+   */
+  String call(String endpoint, String domainKey, String payload) throws Exception;
+
+  /**
+   * Returns a {@link PseudonymisationClient} making each call to this {@link BlockingPseudonymisationClient}
+   * on a virtual thread (Java 21 or later) or on a bounded pool of daemon threads (before Java 21).
+   *
+   * @return a {@link PseudonymisationClient} backed by this {@link BlockingPseudonymisationClient}
+   */
+  default PseudonymisationClient toPseudonymisationClient() {
+    return new BlockingPseudonymisationClientAdapter(this, BlockingPseudonymisationClientAdapter.defaultExecutor());
+  }
+
+  /**
+   * Returns a {@link PseudonymisationClient} making each call to this {@link BlockingPseudonymisationClient} on the given {@link Executor}.
+   *
+   * @param executor the {@link Executor} running the blocking calls
+   * @return a {@link PseudonymisationClient} backed by this {@link BlockingPseudonymisationClient}
+   */
+  default PseudonymisationClient toPseudonymisationClient(final Executor executor) {
+    return new BlockingPseudonymisationClientAdapter(this, executor);
+  }
+  // end::methods[]
+}
@@ -0,0 +1,48 @@
+package be.smals.shared.pseudo.helper;
+
+import java.time.Duration;
+
+/**
+ * Metrics of the compute executor of a {@link PseudonymisationHelper}.
+ * <p>
+ * The queueing delay of a task is the time between its submission to the compute executor and the start of its execution.
+ * A growing queueing delay indicates that the compute executor is too small for the load.
+ *
+ * @see PseudonymisationHelper.Builder#computeExecutor(java.util.concurrent.Executor)
+ */
+@SuppressWarnings("unused")
+public interface ComputeMetrics {
+
+  // tag::methods[]
+  /**
+   * Returns the number of tasks started by the compute executor.
+   *
+   * @return the number of started tasks
+   */
+  long startedTasks();
+
+  /**
+   * Returns the sum of the queueing delays of all the started tasks.
+   *
+   * @return the total queueing delay
+   */
+  Duration totalQueueingDelay();
+
+  /**
+   * Returns the highest queueing delay of a started task.
+   *
+   * @return the maximum queueing delay
+   */
+  Duration maxQueueingDelay();
+
+  /**
+   * Returns the average queueing delay of the started tasks.
+   *
+   * @return the average queueing delay, or {@link Duration#ZERO} if no task was started
+   */
+  default Duration averageQueueingDelay() {
+    final var startedTasks = startedTasks();
+    return startedTasks == 0 ? Duration.ZERO : totalQueueingDelay().dividedBy(startedTasks);
+  }
+  // end::methods[]
+}
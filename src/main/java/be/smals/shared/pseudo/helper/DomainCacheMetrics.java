@@ -0,0 +1,41 @@
+package be.smals.shared.pseudo.helper;
+
+/**
+ * Metrics of the domains kept in memory by a {@link PseudonymisationHelper}.
+ *
+ * @see PseudonymisationHelper.Builder#maxDomains(int)
+ * @see PseudonymisationHelper.Builder#domainIdleTimeout(java.time.Duration)
+ */
+@SuppressWarnings("unused")
+public interface DomainCacheMetrics {
+
+  // tag::methods[]
+  /**
+   * Returns the number of domains currently kept in memory.
+   *
+   * @return the number of resident domains
+   */
+  int residentDomains();
+
+  /**
+   * Returns the number of calls made to eHealth to load or refresh a domain.
+   *
+   * @return the number of domain loads
+   */
+  long loads();
+
+  /**
+   * Returns the number of domain loads that failed.
+   *
+   * @return the number of failed domain loads
+   */
+  long failedLoads();
+
+  /**
+   * Returns the number of domains removed from memory because there were too many domains or because they were not used for too long.
+   *
+   * @return the number of evicted domains
+   */
+  long evictions();
+  // end::methods[]
+}
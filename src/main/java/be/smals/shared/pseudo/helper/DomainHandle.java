@@ -0,0 +1,40 @@
+package be.smals.shared.pseudo.helper;
+
+/**
+ * Long-lived reference to the latest loaded version of a {@link Domain}.
+ * <p>
+ * A {@link DomainHandle} is created once per domain (see {@link PseudonymisationHelper#getDomainHandle(String)}) and can be kept as long as the
+ * {@link PseudonymisationHelper}: each time the domain is successfully loaded or refreshed, the handle is updated to the new version.
+ * Getting the {@link Domain} from the handle is a single memory read, without {@link java.util.concurrent.CompletableFuture}.
+ * <p>
+ * The {@link PseudonymisationHelper} only keeps a weak reference to the handles: as long as the application keeps the handle,
+ * its domain is never evicted (see {@link PseudonymisationHelper.Builder#maxDomains(int)}), and once the handle is no longer referenced,
+ * its domain can be evicted like any other domain.
+ */
+@SuppressWarnings("unused")
+public interface DomainHandle {
+
+  // tag::methods[]
+  /**
+   * Returns the key of the domain.
+   *
+   * @return the key of the domain
+   */
+  String key();
+
+  /**
+   * Returns {@code true} if the domain has been loaded at least once.
+   *
+   * @return {@code true} if {@link #current()} can be called
+   */
+  boolean isReady();
+
+  /**
+   * Returns the latest successfully loaded version of the domain.
+   *
+   * @return the latest version of the {@link Domain}
+   * @throws IllegalStateException if the domain has never been loaded yet (see {@link #isReady()})
+   */
+  Domain current();
+  // end::methods[]
+}
@@ -0,0 +1,44 @@
+package be.smals.shared.pseudo.helper;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Metrics of the JSON Web Key Set (JWKS) used by a {@link PseudonymisationHelper} to decrypt the secret keys of the domains.
+ *
+ * @see PseudonymisationHelper.Builder#jwksMinRefreshInterval(Duration)
+ */
+@SuppressWarnings("unused")
+public interface JwksMetrics {
+
+  // tag::methods[]
+  /**
+   * Returns the number of calls made to the JWKS supplier.
+   *
+   * @return the number of refreshes
+   */
+  long refreshes();
+
+  /**
+   * Returns the number of calls to the JWKS supplier that failed.
+   *
+   * @return the number of failed refreshes
+   */
+  long failedRefreshes();
+
+  /**
+   * Returns the number of refresh requests that did not call the JWKS supplier,
+   * because a refresh was already in progress or because the last refresh was too recent.
+   *
+   * @return the number of skipped refreshes
+   */
+  long skippedRefreshes();
+
+  /**
+   * Returns the time elapsed since the current JWKS was successfully retrieved.
+   *
+   * @return the age of the current JWKS, or an empty {@link Optional} if no JWKS was retrieved yet
+   */
+  Optional<Duration> age();
+  // end::methods[]
+}
@@ -14,7 +14,7 @@ public interface MultiplePoint<T extends Point> {
   /**
    * Returns the number of elements.
    * <p>
-   * The size will always be &gt;= 0 and &lt;= 10.
+   * The size is not limited, but the operations calling eHealth accept at most 10 elements.
    *
    * @return the number of elements in this collection
    */
@@ -33,6 +33,11 @@ public interface MultiplePoint<T extends Point> {
    * <p>
    * If the eHealth response for the element at this index was a problem,
    * then a {@link EHealthProblemException} is thrown.
+   * If a local batch operation (as {@link MultiplePseudonymInTransit#atRest()}) failed for the element at this index,
+   * then the exception of this operation is thrown.
+   * <p>
+   * The following operations on this collection (as {@link MultiplePseudonym#inTransit()} or {@link MultiplePseudonym#convertTo(Domain)})
+   * do not process these elements again: the problem or the exception is kept at the same index in their result.
    *
    * @param index the index of the element to return
    * @return the element at the given index
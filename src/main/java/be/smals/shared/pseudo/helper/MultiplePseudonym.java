@@ -5,7 +5,8 @@ import java.util.concurrent.CompletableFuture;
 /**
  * Collection of {@link Pseudonym}s, all belonging to the same {@link Domain}.
  * <p>
- * You cannot put more than 10 {@link Pseudonym}s in this collection.
+ * eHealth accepts at most 10 {@link Pseudonym}s per call: {@link #convertTo(Domain)} throws an {@link IllegalArgumentException}
+ * if this collection is larger. The local operations ({@link #inTransit()}) accept collections of any size.
  */
 public interface MultiplePseudonym extends MultiplePoint<Pseudonym> {
 
@@ -20,4 +21,28 @@ public interface MultiplePseudonym extends MultiplePoint<Pseudonym> {
    */
   @SuppressWarnings("unused")
   CompletableFuture<? extends MultiplePseudonymInTransit> convertTo(Domain toDomain);
+
+  /**
+   * Transform all the {@link Pseudonym}s of this collection into {@link PseudonymInTransit}s of the same domain.
+   * <p>
+   * Same as calling {@link Pseudonym#inTransit()} on each {@link Pseudonym}, but the encryption state is shared by the whole collection,
+   * the blinding scalars are inverted together, the blinded points are normalised together,
+   * and large collections are split on the compute executor.
+   * The {@link PseudonymInTransit}s are returned in the order of the {@link Pseudonym}s.
+   *
+   * @return a {@link MultiplePseudonymInTransit} containing the {@link PseudonymInTransit}s of the {@link Pseudonym}s of this collection
+   */
+  @SuppressWarnings("unused")
+  MultiplePseudonymInTransit inTransit();
+
+  /**
+   * Transform all the {@link Pseudonym}s of this collection into {@link PseudonymInTransit}s of the same domain,
+   * with custom {@link TransitInfo} header parameters and payload properties.
+   *
+   * @param transitInfoCustomizer the {@link TransitInfoCustomizer} applied to each {@link TransitInfo}
+   * @return a {@link MultiplePseudonymInTransit} containing the {@link PseudonymInTransit}s of the {@link Pseudonym}s of this collection
+   * @see #inTransit()
+   */
+  @SuppressWarnings("unused")
+  MultiplePseudonymInTransit inTransit(TransitInfoCustomizer transitInfoCustomizer);
 }
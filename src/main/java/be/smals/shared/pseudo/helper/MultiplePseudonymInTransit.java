@@ -5,7 +5,8 @@ import java.util.concurrent.CompletableFuture;
 /**
  * Collection of {@link PseudonymInTransit}s, all belonging to the same {@link Domain}.
  * <p>
- * You cannot put more than 10 {@link PseudonymInTransit}s in this collection.
+ * eHealth accepts at most 10 {@link PseudonymInTransit}s per call: {@link #convertTo(Domain)} and {@link #identify()} throw an
+ * {@link IllegalArgumentException} if this collection is larger. The local operations ({@link #atRest()}) accept collections of any size.
  */
 public interface MultiplePseudonymInTransit extends MultiplePoint<PseudonymInTransit> {
 
@@ -29,4 +30,32 @@ public interface MultiplePseudonymInTransit extends MultiplePoint<PseudonymInTra
    */
   @SuppressWarnings("unused")
   CompletableFuture<? extends MultipleValue> identify();
+
+  /**
+   * Decrypt all the {@link PseudonymInTransit}s of this collection.
+   * <p>
+   * Same as calling {@link PseudonymInTransit#atRest()} on each {@link PseudonymInTransit}, but the decryption state is shared
+   * by the whole collection, the resulting points are normalised together, and large collections are split on the compute executor.
+   * <p>
+   * The {@link Pseudonym}s are returned in the order of the {@link PseudonymInTransit}s.
+   * If a {@link PseudonymInTransit} cannot be decrypted, {@link MultiplePseudonym#get(int)} throws the
+   * {@link be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException} for its index: the other ones are not affected.
+   *
+   * @return a {@link MultiplePseudonym} containing the pseudonyms at rest
+   * @see #atRest(boolean)
+   */
+  @SuppressWarnings("unused")
+  MultiplePseudonym atRest();
+
+  /**
+   * Decrypt all the {@link PseudonymInTransit}s of this collection.
+   * <p>
+   * In regular case, you should not use this method: you should use {@link #atRest()} instead.
+   *
+   * @param validateIatAndExp must {@code iat} and {@code exp} be validated ?
+   * @return a {@link MultiplePseudonym} containing the pseudonyms at rest
+   * @see PseudonymInTransit#atRest(boolean)
+   */
+  @SuppressWarnings("unused")
+  MultiplePseudonym atRest(boolean validateIatAndExp);
 }
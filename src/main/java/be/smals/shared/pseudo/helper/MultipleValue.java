@@ -5,7 +5,8 @@ import java.util.concurrent.CompletableFuture;
 /**
  * Collection of {@link Value}s, all belonging to the same {@link Domain}.
  * <p>
- * You cannot put more than 10 {@link Value}s in this collection.
+ * eHealth accepts at most 10 {@link Value}s per call: {@link #pseudonymize()} throws an {@link IllegalArgumentException}
+ * if this collection is larger.
  */
 public interface MultipleValue extends MultiplePoint<Value> {
 
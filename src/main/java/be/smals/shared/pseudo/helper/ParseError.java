@@ -0,0 +1,36 @@
+package be.smals.shared.pseudo.helper;
+
+/**
+ * Reason why a pseudonym (at rest or in transit) cannot be parsed.
+ *
+ * @see ParseResult#error()
+ * @see be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException#getError()
+ */
+@SuppressWarnings("unused")
+public enum ParseError {
+
+  /**
+   * The input is {@code null} or empty.
+   */
+  EMPTY,
+
+  /**
+   * The input is not a valid Base64 (or Base64 URL) string, or a decoded coordinate is not a valid number.
+   */
+  INVALID_ENCODING,
+
+  /**
+   * The input does not have the expected format (missing {@code :}, unexpected SEC 1 prefix, unsupported binary format...).
+   */
+  INVALID_FORMAT,
+
+  /**
+   * The input is well-formed but does not represent a point of the curve of the domain.
+   */
+  INVALID_POINT,
+
+  /**
+   * The input is shorter than announced by its format.
+   */
+  TRUNCATED
+}
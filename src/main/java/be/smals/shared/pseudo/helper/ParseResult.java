@@ -0,0 +1,115 @@
+package be.smals.shared.pseudo.helper;
+
+import static java.util.Objects.requireNonNull;
+
+import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
+import java.util.Optional;
+
+/**
+ * Result of the parsing of an untrusted input: either the parsed value, or the reason why the input is invalid.
+ * <p>
+ * The {@code tryFrom*} methods of {@link PseudonymFactory} and {@link PseudonymInTransitFactory} return a {@link ParseResult}
+ * instead of throwing an {@link InvalidPseudonymException}: filling in the stack traces of the exceptions is the main cost of
+ * rejecting malformed inputs, and it is avoided here.
+ *
+ * @param <T> the type of the parsed value
+ */
+@SuppressWarnings("unused")
+public final class ParseResult<T> {
+
+  private final T value;
+  private final ParseError error;
+  private final String message;
+
+  private ParseResult(final T value, final ParseError error, final String message) {
+    this.value = value;
+    this.error = error;
+    this.message = message;
+  }
+
+  /**
+   * Returns a valid {@link ParseResult}.
+   *
+   * @param value the parsed value
+   * @param <T>   the type of the parsed value
+   * @return a valid {@link ParseResult} containing {@code value}
+   */
+  public static <T> ParseResult<T> valid(final T value) {
+    return new ParseResult<>(requireNonNull(value, "`value` cannot be null"), null, null);
+  }
+
+  /**
+   * Returns an invalid {@link ParseResult}.
+   *
+   * @param error   the reason why the input is invalid
+   * @param message the description of the problem
+   * @param <T>     the type of the parsed value
+   * @return an invalid {@link ParseResult}
+   */
+  public static <T> ParseResult<T> invalid(final ParseError error, final String message) {
+    return new ParseResult<>(null, requireNonNull(error, "`error` cannot be null"), message);
+  }
+
+  /**
+   * Returns {@code true} if the input was successfully parsed.
+   *
+   * @return {@code true} if the input was successfully parsed
+   */
+  public boolean isValid() {
+    return error == null;
+  }
+
+  /**
+   * Returns the parsed value, or {@code null} if the input is invalid.
+   *
+   * @return the parsed value, or {@code null} if the input is invalid
+   */
+  public T value() {
+    return value;
+  }
+
+  /**
+   * Returns the reason why the input is invalid, or {@code null} if the input was successfully parsed.
+   *
+   * @return the reason why the input is invalid, or {@code null} if the input was successfully parsed
+   */
+  public ParseError error() {
+    return error;
+  }
+
+  /**
+   * Returns the description of the problem, or {@code null} if the input was successfully parsed.
+   *
+   * @return the description of the problem, or {@code null} if the input was successfully parsed
+   */
+  public String message() {
+    return message;
+  }
+
+  /**
+   * Returns the parsed value as an {@link Optional}.
+   *
+   * @return the parsed value, or an empty {@link Optional} if the input is invalid
+   */
+  public Optional<T> toOptional() {
+    return Optional.ofNullable(value);
+  }
+
+  /**
+   * Returns the parsed value, or throws an {@link InvalidPseudonymException} if the input is invalid.
+   *
+   * @return the parsed value
+   * @throws InvalidPseudonymException if the input is invalid
+   */
+  public T orElseThrow() throws InvalidPseudonymException {
+    if (error != null) {
+      throw new InvalidPseudonymException(error, message, null, true);
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return error == null ? "ParseResult[" + value + "]" : "ParseResult[" + error + ": " + message + "]";
+  }
+}
@@ -22,4 +22,22 @@ public interface Point {
    * @return binary representation of the Y coordinate (as a byte array converted in a Base64 String)
    */
   String y();
+
+  /**
+   * Returns binary representation of the X coordinate.
+   * <p>
+   * Prefer this method to {@link #x()} when you need the bytes: it avoids the Base64 encoding.
+   *
+   * @return binary representation of the X coordinate (a new array is returned at each call)
+   */
+  byte[] xBytes();
+
+  /**
+   * Returns binary representation of the Y coordinate.
+   * <p>
+   * Prefer this method to {@link #y()} when you need the bytes: it avoids the Base64 encoding.
+   *
+   * @return binary representation of the Y coordinate (a new array is returned at each call)
+   */
+  byte[] yBytes();
 }
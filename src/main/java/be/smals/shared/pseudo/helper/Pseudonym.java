@@ -1,5 +1,7 @@
 package be.smals.shared.pseudo.helper;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -41,6 +43,43 @@ public interface Pseudonym extends Point {
   @Deprecated(forRemoval = true)
   String sec1Compressed();
 
+  /**
+   * Writes the uncompressed SEC1 Elliptic-Curve-Point-to-Octet-String Conversion of this point in the given {@link ByteBuffer}.
+   * <p>
+   * This is the binary counterpart of {@link #asString()}: use it to store the pseudonym in a binary column without any Base64 conversion.
+   * The bytes are written at the current position of the buffer, and the position is moved after the written bytes.
+   *
+   * @param buffer the {@link ByteBuffer} in which to write the SEC 1 representation of this point
+   * @return the number of written bytes
+   * @throws BufferOverflowException if there is not enough remaining space in the given buffer
+   */
+  int writeSec1(ByteBuffer buffer) throws BufferOverflowException;
+
+  /**
+   * Writes the compressed SEC1 Elliptic-Curve-Point-to-Octet-String Conversion of this point in the given {@link ByteBuffer}.
+   * <p>
+   * This is the binary counterpart of {@link #asShortString()}.
+   * The bytes are written at the current position of the buffer, and the position is moved after the written bytes.
+   *
+   * @param buffer the {@link ByteBuffer} in which to write the compressed SEC 1 representation of this point
+   * @return the number of written bytes
+   * @throws BufferOverflowException if there is not enough remaining space in the given buffer
+   */
+  int writeShortSec1(ByteBuffer buffer) throws BufferOverflowException;
+
+  /**
+   * Writes this {@link Pseudonym} in the given {@link ByteBuffer}, in the versioned binary format of this library.
+   * <p>
+   * Use it to exchange pseudonyms between services (message bus, cache...): the record starts with a format byte (type and version),
+   * followed by the compressed SEC 1 representation of this point. Read it with {@link PseudonymFactory#readFrom(ByteBuffer)}.
+   * Nothing is written if there is not enough remaining space in the buffer.
+   *
+   * @param buffer the {@link ByteBuffer} in which to write this {@link Pseudonym}
+   * @return the number of written bytes
+   * @throws BufferOverflowException if there is not enough remaining space in the given buffer
+   */
+  int writeTo(ByteBuffer buffer) throws BufferOverflowException;
+
   /**
    * Convert this {@link Pseudonym} into a {@link PseudonymInTransit} for the given domain.
    *
@@ -1,6 +1,7 @@
 package be.smals.shared.pseudo.helper;
 
 import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 /**
@@ -32,6 +33,80 @@ public interface PseudonymFactory {
    */
   Pseudonym fromXY(String xAsBase64String, String yAsBase64String) throws InvalidPseudonymException;
 
+  /**
+   * Create a {@link Pseudonym} from the given coordinates.
+   * <p>
+   * This is the binary counterpart of {@link #fromXY(String, String)}.
+   *
+   * @param x binary representation of the X coordinate.
+   * @param y binary representation of the Y coordinate.
+   * @return Pseudonym
+   * @throws InvalidPseudonymException If the coordinates are invalid.
+   */
+  Pseudonym fromXY(byte[] x, byte[] y) throws InvalidPseudonymException;
+
+  /**
+   * Create a {@link Pseudonym} from the given SEC 1 representation of the elliptic curve point.
+   *
+   * @param sec1 SEC 1 encoded point (can be SEC 1 compressed or uncompressed format).
+   * @return Pseudonym
+   * @throws InvalidPseudonymException If the SEC 1 representation of the point is invalid.
+   */
+  Pseudonym fromSec1(byte[] sec1) throws InvalidPseudonymException;
+
+  /**
+   * Create a {@link Pseudonym} from the SEC 1 representation of the elliptic curve point read from the given {@link ByteBuffer}.
+   * <p>
+   * The point is read from the current position of the buffer.
+   * Only the bytes of the SEC 1 representation (compressed or uncompressed, as indicated by its first byte) are consumed:
+   * the position of the buffer is moved after the point, so several points can be read sequentially from the same buffer.
+   * If the SEC 1 representation is invalid or truncated, the position of the buffer is not changed.
+   *
+   * @param sec1 {@link ByteBuffer} containing the SEC 1 encoded point (can be SEC 1 compressed or uncompressed format).
+   * @return Pseudonym
+   * @throws InvalidPseudonymException If the SEC 1 representation of the point is invalid or truncated.
+   */
+  Pseudonym fromSec1(ByteBuffer sec1) throws InvalidPseudonymException;
+
+  /**
+   * Reads a {@link Pseudonym} written by {@link Pseudonym#writeTo(ByteBuffer)} from the given {@link ByteBuffer}.
+   * <p>
+   * The record is read from the current position of the buffer, and the position is moved after it.
+   * If the record is invalid, the position of the buffer is not changed.
+   *
+   * @param buffer {@link ByteBuffer} containing the binary representation of the pseudonym
+   * @return Pseudonym
+   * @throws InvalidPseudonymException If the binary representation is invalid, truncated, or in an unsupported version of the format.
+   */
+  Pseudonym readFrom(ByteBuffer buffer) throws InvalidPseudonymException;
+
+  /**
+   * Same as {@link #fromX(String)}, but returns an invalid {@link ParseResult} instead of throwing an {@link InvalidPseudonymException}.
+   * <p>
+   * Use the {@code tryFrom*} methods to parse untrusted inputs: rejecting a malformed input does not create any stack trace.
+   *
+   * @param xAsBase64String Base64 string representation of the X coordinate.
+   * @return a {@link ParseResult} containing a {@link Pseudonym} having the given X coordinate, or the reason why it is invalid.
+   */
+  ParseResult<Pseudonym> tryFromX(String xAsBase64String);
+
+  /**
+   * Same as {@link #fromXY(String, String)}, but returns an invalid {@link ParseResult} instead of throwing an {@link InvalidPseudonymException}.
+   *
+   * @param xAsBase64String Base64 string representation of the X coordinate.
+   * @param yAsBase64String Base64 string representation of the Y coordinate.
+   * @return a {@link ParseResult} containing the {@link Pseudonym}, or the reason why it is invalid.
+   */
+  ParseResult<Pseudonym> tryFromXY(String xAsBase64String, String yAsBase64String);
+
+  /**
+   * Same as {@link #fromSec1(byte[])}, but returns an invalid {@link ParseResult} instead of throwing an {@link InvalidPseudonymException}.
+   *
+   * @param sec1 SEC 1 encoded point (can be SEC 1 compressed or uncompressed format).
+   * @return a {@link ParseResult} containing the {@link Pseudonym}, or the reason why it is invalid.
+   */
+  ParseResult<Pseudonym> tryFromSec1(byte[] sec1);
+
   /**
    * Create an empty {@link MultiplePseudonym}.
    *
@@ -1,6 +1,8 @@
 package be.smals.shared.pseudo.helper;
 
 import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
 
 @SuppressWarnings("unused")
@@ -92,6 +94,33 @@ public interface PseudonymInTransit extends Point {
    */
   Pseudonym atRest(boolean validateIatAndExp) throws InvalidTransitInfoException;
 
+  /**
+   * Returns the {@link AtRestKey} of the pseudonym at rest of this {@link PseudonymInTransit}.
+   * <p>
+   * The transit info is decrypted (see {@link #atRest()}) on the first call only: the key is cached.
+   * Use it instead of {@link Object#equals(Object)} to compare or to deduplicate {@link PseudonymInTransit}s by their pseudonym at rest.
+   *
+   * @return the {@link AtRestKey} of the pseudonym at rest
+   * @see be.smals.shared.pseudo.helper.utils.AtRestEquivalence
+   */
+  AtRestKey atRestKey() throws InvalidTransitInfoException;
+
+  /**
+   * Writes this {@link PseudonymInTransit} in the given {@link ByteBuffer}, in the versioned binary format of this library.
+   * <p>
+   * Use it to exchange pseudonyms in transit between services (message bus, cache...): the record starts with a format byte
+   * (type and version), followed by the compressed SEC 1 representation of the point and by the raw bytes of the segments of
+   * the transit info. As nothing is Base64 encoded, it is smaller than {@link #asShortString()}.
+   * Read it with {@link PseudonymInTransitFactory#readFrom(ByteBuffer)}: {@link #asString()} is preserved.
+   * Nothing is written if there is not enough remaining space in the buffer.
+   *
+   * @param buffer the {@link ByteBuffer} in which to write this {@link PseudonymInTransit}
+   * @return the number of written bytes
+   * @throws BufferOverflowException     if there is not enough remaining space in the given buffer
+   * @throws InvalidTransitInfoException if the transit info is not a JWE compact serialisation
+   */
+  int writeTo(ByteBuffer buffer) throws BufferOverflowException, InvalidTransitInfoException;
+
   /**
    * Convert this {@link PseudonymInTransit} into a {@link PseudonymInTransit} for the given domain.
    *
@@ -1,6 +1,7 @@
 package be.smals.shared.pseudo.helper;
 
 import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 /**
@@ -33,6 +34,70 @@ public interface PseudonymInTransitFactory {
    */
   PseudonymInTransit fromSec1AndTransitInfo(final String sec1AndTransitInfo) throws InvalidPseudonymException;
 
+  /**
+   * Creates a {@link PseudonymInTransit} from the given SEC 1 representation of the elliptic curve point and transit info.
+   * <p>
+   * This is the binary counterpart of {@link #fromSec1AndTransitInfo(String)}.
+   *
+   * @param sec1        SEC 1 encoded point (can be SEC 1 compressed or uncompressed format)
+   * @param transitInfo the standard JWE compact representation (Base64 URL encoded String) of the transitInfo
+   *                    which contains the scalar that will be used to unblind the given point (pseudonym).
+   * @return A {@link PseudonymInTransit} created from the given SEC 1 point and transit info
+   * @throws InvalidPseudonymException if the SEC 1 representation of the point is invalid
+   */
+  PseudonymInTransit fromSec1AndTransitInfo(final byte[] sec1, final String transitInfo) throws InvalidPseudonymException;
+
+  /**
+   * Creates a {@link PseudonymInTransit} from the SEC 1 representation of the elliptic curve point read from the given {@link ByteBuffer},
+   * and from the given transit info.
+   * <p>
+   * Only the bytes of the SEC 1 representation are consumed: see {@link PseudonymFactory#fromSec1(ByteBuffer)}.
+   *
+   * @param sec1        {@link ByteBuffer} containing the SEC 1 encoded point (can be SEC 1 compressed or uncompressed format)
+   * @param transitInfo the standard JWE compact representation (Base64 URL encoded String) of the transitInfo
+   *                    which contains the scalar that will be used to unblind the given point (pseudonym).
+   * @return A {@link PseudonymInTransit} created from the given SEC 1 point and transit info
+   * @throws InvalidPseudonymException if the SEC 1 representation of the point is invalid
+   */
+  PseudonymInTransit fromSec1AndTransitInfo(final ByteBuffer sec1, final String transitInfo) throws InvalidPseudonymException;
+
+  /**
+   * Reads a {@link PseudonymInTransit} written by {@link PseudonymInTransit#writeTo(ByteBuffer)} from the given {@link ByteBuffer}.
+   * <p>
+   * The record is read from the current position of the buffer, and the position is moved after it.
+   * If the record is invalid, the position of the buffer is not changed.
+   * As with {@link #fromSec1AndTransitInfo(String)}, the transit info is only decrypted when needed.
+   *
+   * @param buffer {@link ByteBuffer} containing the binary representation of the pseudonym in transit
+   * @return A {@link PseudonymInTransit} equal to the written one
+   * @throws InvalidPseudonymException if the binary representation is invalid, truncated, or in an unsupported version of the format
+   */
+  PseudonymInTransit readFrom(final ByteBuffer buffer) throws InvalidPseudonymException;
+
+  /**
+   * Same as {@link #fromXYAndTransitInfo(String, String, String)}, but returns an invalid {@link ParseResult}
+   * instead of throwing an {@link InvalidPseudonymException}.
+   * <p>
+   * Use the {@code tryFrom*} methods to parse untrusted inputs: rejecting a malformed input does not create any stack trace.
+   * As with {@link #fromXYAndTransitInfo(String, String, String)}, the transit info is only decrypted when needed.
+   *
+   * @param x           Base64 string representation of the X coordinate.
+   * @param y           Base64 string representation of the Y coordinate.
+   * @param transitInfo the standard JWE compact representation (Base64 URL encoded String) of the transitInfo
+   * @return a {@link ParseResult} containing the {@link PseudonymInTransit}, or the reason why it is invalid
+   */
+  ParseResult<PseudonymInTransit> tryFromXYAndTransitInfo(final String x, final String y, final String transitInfo);
+
+  /**
+   * Same as {@link #fromSec1AndTransitInfo(String)}, but returns an invalid {@link ParseResult} instead of throwing an
+   * {@link InvalidPseudonymException}.
+   *
+   * @param sec1AndTransitInfo Base64 URL string representation (without padding) of the SEC 1 encoded point,
+   *                           followed by {@code :}, and by the standard JWE compact representation of the transitInfo
+   * @return a {@link ParseResult} containing the {@link PseudonymInTransit}, or the reason why it is invalid
+   */
+  ParseResult<PseudonymInTransit> tryFromSec1AndTransitInfo(final String sec1AndTransitInfo);
+
   /**
    * Create an empty {@link MultiplePseudonymInTransit}.
    *
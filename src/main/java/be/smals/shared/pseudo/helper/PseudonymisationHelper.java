@@ -1,15 +1,25 @@
 package be.smals.shared.pseudo.helper;
 
 import static be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException.throwWrapped;
-import static java.lang.Boolean.TRUE;
 import static java.util.Collections.synchronizedSet;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 
+import be.smals.shared.pseudo.helper.exceptions.DomainUnavailableException;
+import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
 import be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException;
+import be.smals.shared.pseudo.helper.internal.Backoff;
+import be.smals.shared.pseudo.helper.internal.CurveResolver;
+import be.smals.shared.pseudo.helper.internal.DomainDescriptor;
+import be.smals.shared.pseudo.helper.internal.DomainHandleImpl;
 import be.smals.shared.pseudo.helper.internal.DomainImpl;
-import be.smals.shared.pseudo.helper.utils.ThrowingFunction;
+import be.smals.shared.pseudo.helper.internal.InstrumentedExecutor;
+import be.smals.shared.pseudo.helper.internal.JwksCache;
+import be.smals.shared.pseudo.helper.internal.SyncDomainImpl;
 import com.nimbusds.jose.EncryptionMethod;
 import com.nimbusds.jose.JWEObjectJSON;
 import com.nimbusds.jose.UnprotectedHeader;
@@ -18,26 +28,37 @@ import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
 import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.shaded.gson.Gson;
-import com.nimbusds.jose.shaded.gson.GsonBuilder;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.security.SecureRandom;
 import java.text.ParseException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import javax.crypto.SecretKey;
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
-import org.bouncycastle.jce.ECNamedCurveTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,9 +69,20 @@ import org.slf4j.LoggerFactory;
  */
 public final class PseudonymisationHelper {
 
-  private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
   private static final Logger log = LoggerFactory.getLogger(PseudonymisationHelper.class);
   private static final String[] EMPTY_STRING_ARRAY = new String[0];
+  /**
+   * Maximum delay between two attempts to load a domain that failed to load.
+   */
+  private static final Duration MAX_DOMAIN_RETRY_DELAY = Duration.ofMinutes(5);
+  /**
+   * Minimum interval between two refreshes of a domain caused by unknown kids.
+   */
+  private static final Duration UNKNOWN_KID_REFRESH_INTERVAL = Duration.ofSeconds(10);
+  /**
+   * Maximum time a decryption waits for the refresh of the domain caused by an unknown kid.
+   */
+  private static final Duration UNKNOWN_KID_REFRESH_TIMEOUT = Duration.ofSeconds(10);
   private static final String KID_PROBLEM_W_DOMAIN = "Failed to decrypt the secret key with kid `{}` of the domain `{}`. " +
                                                      "The response from eHealth was\n{}";
 
@@ -59,8 +91,36 @@ public final class PseudonymisationHelper {
   private final PseudonymisationClient pseudonymisationClient;
   private final PrivateKeySupplier privateKeySupplier;
   private final SecureRandom secureRandom;
+  private final InstrumentedExecutor computeExecutor;
+  private final int parallelThreshold;
   private final ConcurrentHashMap<String, CompletableFuture<DomainImpl>> domains;
   private final ConcurrentHashMap<String, CompletableFuture<DomainImpl>> previousDomains;
+  private final ConcurrentHashMap<String, DomainFailure> domainFailures;
+  /**
+   * Weak references to the {@link DomainHandle}s, so that the handles no longer used by the application (and their domains) can be removed.
+   */
+  private final ConcurrentHashMap<String, HandleReference> domainHandles;
+  private final ReferenceQueue<DomainHandleImpl> collectedHandles = new ReferenceQueue<>();
+  private final Map<String, DomainHandle> preloadedDomains;
+  private final CompletableFuture<Void> ready;
+  private final Duration domainRetryBaseDelay;
+  private final boolean refreshDomainOnUnknownKid;
+  private final ConcurrentHashMap<String, Long> unknownKidRefreshes;
+  private final int maxDomains;
+  private final Duration domainIdleTimeout;
+  private final RequestIdGenerator requestIdGenerator;
+  private final boolean stacklessValidationExceptions;
+  /**
+   * Time of the last call to {@link #getDomain(String)} or {@link #refreshDomain(String)} for each domain, used to choose the domains to evict.
+   */
+  private final ConcurrentHashMap<String, Long> domainLastAccesses;
+  /**
+   * Time of the last removal of the idle domains (see {@link #touch(String)}).
+   */
+  private final AtomicLong lastIdleSweep = new AtomicLong(System.nanoTime());
+  private final LongAdder domainLoads = new LongAdder();
+  private final LongAdder failedDomainLoads = new LongAdder();
+  private final LongAdder domainEvictions = new LongAdder();
   private final Set<String> refreshableDomains;
   /**
    * Unmodifiable copy of refreshableDomains.
@@ -68,7 +128,7 @@ public final class PseudonymisationHelper {
    * It is created to prevent any change on refreshableDomains causing damage on the navigation in the returned list by the caller.
    */
   private volatile Set<String> unmodifiableCopyOfRefreshableDomains;
-  private volatile CompletableFuture<JWKSet> jwkSet;
+  private final JwksCache jwksCache;
 
   /**
    * @param jwksUrl                The JSON Web Key Set URL used by eHealth Pseudonymisation service to encrypt the domaim secret keys.
@@ -76,19 +136,50 @@ public final class PseudonymisationHelper {
    * @param jwksSupplier           A {@link Supplier} of the JWKS pointed by {@code jwksUrl}.
    * @param pseudonymisationClient The {@link PseudonymisationClient} to use to make calls to eHealth pseudonymisation service.
    * @param privateKeySupplier     The {@link PrivateKeySupplier} to use to decrypt the secret keys of the domain.
+   * @param computeExecutor        The {@link Executor} on which the CPU-bound operations are run.
+   * @param parallelThreshold      The minimum size of a batch for its cryptographic operations to be split on {@code computeExecutor}.
+   * @param jwksMinRefreshInterval The minimum interval between two calls to {@code jwksSupplier}.
+   * @param domainRetryBaseDelay   The delay before the first retry of a domain that failed to load.
+   * @param preloadDomains         The keys of the domains to load at creation.
+   * @param refreshDomainOnUnknownKid {@code true} to refresh the domain when a transit info is encrypted with an unknown kid.
+   * @param maxDomains             The maximum number of domains kept in memory.
+   * @param domainIdleTimeout      The time after which an unused domain is removed from memory, or {@code null} to keep them.
+   * @param requestIdGenerator     The {@link RequestIdGenerator} of the ids of the inputs sent to eHealth.
+   * @param stacklessValidationExceptions {@code true} to not fill in the stack traces of the {@link InvalidPseudonymException}s.
    */
   @SuppressWarnings("RedundantThrows")
   private PseudonymisationHelper(final URI jwksUrl,
                                  final Supplier<CompletableFuture<String>> jwksSupplier,
                                  final PseudonymisationClient pseudonymisationClient,
-                                 final PrivateKeySupplier privateKeySupplier) {
+                                 final PrivateKeySupplier privateKeySupplier,
+                                 final Executor computeExecutor,
+                                 final int parallelThreshold,
+                                 final Duration jwksMinRefreshInterval,
+                                 final Duration domainRetryBaseDelay,
+                                 final Set<String> preloadDomains,
+                                 final boolean refreshDomainOnUnknownKid,
+                                 final int maxDomains,
+                                 final Duration domainIdleTimeout,
+                                 final RequestIdGenerator requestIdGenerator,
+                                 final boolean stacklessValidationExceptions) {
     this.jwksUrl = jwksUrl;
     this.jwksSupplier = jwksSupplier;
     this.pseudonymisationClient = pseudonymisationClient;
     this.privateKeySupplier = privateKeySupplier;
+    this.computeExecutor = new InstrumentedExecutor(computeExecutor);
+    this.parallelThreshold = parallelThreshold;
+    this.domainRetryBaseDelay = domainRetryBaseDelay;
+    this.refreshDomainOnUnknownKid = refreshDomainOnUnknownKid;
+    unknownKidRefreshes = new ConcurrentHashMap<>(8, 0.75f, 8);
+    this.maxDomains = maxDomains;
+    this.domainIdleTimeout = domainIdleTimeout;
+    this.requestIdGenerator = requestIdGenerator;
+    this.stacklessValidationExceptions = stacklessValidationExceptions;
+    domainLastAccesses = new ConcurrentHashMap<>(8, 0.75f, 8);
     refreshableDomains = synchronizedSet(new HashSet<>(4, 1f));
     unmodifiableCopyOfRefreshableDomains = Set.of();
     secureRandom = CryptoServicesRegistrar.getSecureRandom();
+    jwksCache = new JwksCache(jwksSupplier, jwksMinRefreshInterval);
     initJwksSilently();
     Stream.of(Map.entry("jwksSupplier", Optional.ofNullable(jwksSupplier)),
               Map.entry("jwksUrl", Optional.ofNullable(jwksUrl)))
@@ -98,6 +189,18 @@ public final class PseudonymisationHelper {
           });
     domains = new ConcurrentHashMap<>(8, 0.75f, 8);
     previousDomains = new ConcurrentHashMap<>(8, 0.75f, 8);
+    domainFailures = new ConcurrentHashMap<>(8, 0.75f, 8);
+    domainHandles = new ConcurrentHashMap<>(8, 0.75f, 8);
+    final var handles = new LinkedHashMap<String, DomainHandle>(preloadDomains.size() * 2);
+    final var loadedDomains = new CompletableFuture<?>[preloadDomains.size()];
+    var i = 0;
+    for (final var domainKey : preloadDomains) {
+      final var handle = (DomainHandleImpl) getDomainHandle(domainKey);
+      handles.put(domainKey, handle);
+      loadedDomains[i++] = handle.loaded();
+    }
+    preloadedDomains = Collections.unmodifiableMap(handles);
+    ready = CompletableFuture.allOf(loadedDomains);
   }
 
   /**
@@ -105,7 +208,10 @@ public final class PseudonymisationHelper {
    * If the domain is not available or encounters issues like unfinished initialization, completion with exceptions,
    * or cancellation, this method will return the previous version of the domain.
    * <p>
-   * Please note that if the {@link CompletableFuture} did not complete successfully, no automatic refresh will be attempted.
+   * If the domain failed to load and there is no previous version, a new attempt is made,
+   * unless the last attempt is more recent than the backoff delay (see {@link Builder#domainRetryBaseDelay(Duration)}):
+   * in this case, the returned {@link CompletableFuture} immediately fails with a {@link DomainUnavailableException}.
+   * If there is a previous version, the failed load is retried in the background after the backoff delay.
    *
    * @param domainKey the unique key identifying the domain to be retrieved
    * @return a {@link CompletableFuture} containing the {@link Domain} object associated with the provided key
@@ -115,10 +221,195 @@ public final class PseudonymisationHelper {
     if (domain == null) {
       return refreshDomain(domainKey);
     }
+    touch(domainKey);
     if (domain.isDone() && !domain.isCompletedExceptionally() && !domain.isCancelled()) {
       return domain;
     }
-    return previousDomains.getOrDefault(domainKey, domain);
+    final var previousDomain = previousDomains.get(domainKey);
+    if (previousDomain != null) {
+      return previousDomain;
+    }
+    if (!domain.isDone()) {
+      return domain;
+    }
+    // The domain failed to load and there is no previous version: retry unless the last attempt is too recent
+    return refreshDomain(domainKey);
+  }
+
+  /**
+   * Returns the {@link DomainHandle} of the specified domain, and starts loading the domain if it is not loaded yet.
+   * <p>
+   * If the domain fails to load, it is retried in the background (see {@link Builder#domainRetryBaseDelay(Duration)}) until it is loaded.
+   * The same {@link DomainHandle} is returned for each call with the same domain key, as long as the application keeps a reference to it.
+   * It always points to the latest successfully loaded version of the domain: keep it and call {@link DomainHandle#current()}
+   * on the hot paths instead of calling {@link #getDomain(String)}.
+   *
+   * @param domainKey the unique key identifying the domain
+   * @return the {@link DomainHandle} of the domain
+   */
+  @SuppressWarnings("unused")
+  public DomainHandle getDomainHandle(final String domainKey) {
+    while (true) {
+      final var existingHandle = domainHandle(domainKey);
+      if (existingHandle != null) {
+        return existingHandle;
+      }
+      removeCollectedHandles();
+      final var newHandle = new DomainHandleImpl(domainKey);
+      final var newReference = new HandleReference(newHandle, collectedHandles);
+      // A handle collected by the GC is replaced by the new one
+      final var reference = domainHandles.compute(domainKey, (key, previousReference) -> {
+        return previousReference == null || previousReference.get() == null ? newReference : previousReference;
+      });
+      if (reference == newReference) {
+        initialize(newReference);
+        return newHandle;
+      }
+      // A concurrent call created the handle in the meantime: return it, unless it has already been collected
+    }
+  }
+
+  /**
+   * Returns the {@link DomainHandleImpl} of the given domain.
+   *
+   * @param domainKey the key of the domain
+   * @return the {@link DomainHandleImpl} or {@code null} if the domain has no handle or if its handle is no longer used by the application
+   */
+  private DomainHandleImpl domainHandle(final String domainKey) {
+    final var reference = domainHandles.get(domainKey);
+    return reference == null ? null : reference.get();
+  }
+
+  /**
+   * Removes the references to the {@link DomainHandle}s collected by the GC.
+   */
+  private void removeCollectedHandles() {
+    Reference<? extends DomainHandleImpl> reference;
+    while ((reference = collectedHandles.poll()) != null) {
+      domainHandles.remove(((HandleReference) reference).domainKey, reference);
+    }
+  }
+
+  /**
+   * Retrieves the {@link Domain} associated with the specified domain key, waits for it, and returns a blocking view of it.
+   * <p>
+   * This method follows the same rules as {@link #getDomain(String)}.
+   *
+   * @param domainKey the unique key identifying the domain to be retrieved
+   * @return a {@link SyncDomain} of the {@link Domain} associated with the provided key
+   * @see SyncDomain
+   */
+  @SuppressWarnings("unused")
+  public SyncDomain getSyncDomain(final String domainKey) {
+    return new SyncDomainImpl((DomainImpl) SyncDomainImpl.await(getDomain(domainKey)));
+  }
+
+  /**
+   * Returns a {@link CompletableFuture} that completes once all the domains given to {@link Builder#preloadDomains(Collection)}
+   * have been loaded.
+   * <p>
+   * The domains that fail to load are retried (see {@link Builder#domainRetryBaseDelay(Duration)}) until they are loaded:
+   * the returned {@link CompletableFuture} never completes exceptionally, but it may never complete if a domain cannot be loaded.
+   * Use {@link #preloadedDomains()} to know which domains are not loaded yet.
+   *
+   * @return a {@link CompletableFuture} that completes when all the preloaded domains are ready
+   */
+  @SuppressWarnings("unused")
+  public CompletableFuture<Void> ready() {
+    return ready.copy();
+  }
+
+  /**
+   * Returns the {@link DomainHandle}s of the domains given to {@link Builder#preloadDomains(Collection)}.
+   * <p>
+   * {@link DomainHandle#isReady()} tells whether each domain has been loaded.
+   *
+   * @return an unmodifiable {@link Map} of the {@link DomainHandle}s of the preloaded domains, by domain key
+   */
+  @SuppressWarnings("unused")
+  public Map<String, DomainHandle> preloadedDomains() {
+    return preloadedDomains;
+  }
+
+  /**
+   * Loads the domain of the given handle and initialises the handle with it, retrying after the backoff delay until it succeeds
+   * or until the handle is no longer used by the application.
+   *
+   * @param reference the reference to the {@link DomainHandleImpl} to initialise
+   */
+  private void initialize(final HandleReference reference) {
+    final var domainKey = reference.domainKey;
+    getDomain(domainKey).whenComplete((domain, e) -> {
+      final var handle = reference.get();
+      if (handle == null) {
+        return;
+      }
+      if (e == null) {
+        handle.initialize((DomainImpl) domain);
+        return;
+      }
+      // The handle may have been initialised by a concurrent load in the meantime
+      if (handle.isReady()) {
+        return;
+      }
+      final var failure = domainFailures.get(domainKey);
+      final var delayNanos = failure == null ? domainRetryBaseDelay.toNanos() : Math.max(0, failure.retryAtNanos - System.nanoTime());
+      CompletableFuture.delayedExecutor(delayNanos, NANOSECONDS, computeExecutor).execute(() -> initialize(reference));
+    });
+  }
+
+  /**
+   * Returns the metrics of the compute executor.
+   *
+   * @return the {@link ComputeMetrics} of this {@link PseudonymisationHelper}
+   * @see Builder#computeExecutor(Executor)
+   */
+  @SuppressWarnings("unused")
+  public ComputeMetrics computeMetrics() {
+    return computeExecutor;
+  }
+
+  /**
+   * Returns the metrics of the JSON Web Key Set.
+   *
+   * @return the {@link JwksMetrics} of this {@link PseudonymisationHelper}
+   * @see Builder#jwksMinRefreshInterval(Duration)
+   */
+  @SuppressWarnings("unused")
+  public JwksMetrics jwksMetrics() {
+    return jwksCache;
+  }
+
+  /**
+   * Returns the metrics of the domains kept in memory.
+   *
+   * @return the {@link DomainCacheMetrics} of this {@link PseudonymisationHelper}
+   * @see Builder#maxDomains(int)
+   * @see Builder#domainIdleTimeout(Duration)
+   */
+  @SuppressWarnings("unused")
+  public DomainCacheMetrics domainCacheMetrics() {
+    return new DomainCacheMetrics() {
+      @Override
+      public int residentDomains() {
+        return domains.size();
+      }
+
+      @Override
+      public long loads() {
+        return domainLoads.sum();
+      }
+
+      @Override
+      public long failedLoads() {
+        return failedDomainLoads.sum();
+      }
+
+      @Override
+      public long evictions() {
+        return domainEvictions.sum();
+      }
+    };
   }
 
   /**
@@ -141,127 +432,473 @@ public final class PseudonymisationHelper {
    * creating a new domain object, and updating the domain cache.
    * <p>
    * Please call the {@code get()} method on the returned {@link CompletableFuture} to check that the refresh was successful.
+   * <p>
+   * If the last attempts to load the domain failed, eHealth is not called again before the end of the backoff delay
+   * (see {@link Builder#domainRetryBaseDelay(Duration)}): in this case, the returned {@link CompletableFuture} immediately fails
+   * with a {@link DomainUnavailableException}.
    *
    * @param domainKey the unique key identifying the domain to be refreshed
    * @return a {@link CompletableFuture} containing the refreshed domain object
    */
   public CompletableFuture<? extends Domain> refreshDomain(final String domainKey) {
+    return refreshDomain(domainKey, computeExecutor);
+  }
+
+  /**
+   * Same as {@link #refreshDomain(String)}, but the CPU-bound creation of the domain is run on the given {@link Executor}.
+   *
+   * @param domainKey the unique key identifying the domain to be refreshed
+   * @param executor  the {@link Executor} on which the domain is created once it is received from eHealth
+   * @return a {@link CompletableFuture} containing the refreshed domain object
+   */
+  private CompletableFuture<? extends Domain> refreshDomain(final String domainKey, final Executor executor) {
+    touch(domainKey);
     var domain = domains.get(domainKey);
     // The first time the domain is asked, we create a new CompletableFuture
     if (domain == null) {
-      return domains.computeIfAbsent(domainKey, this::domainCompletableFuture);
+      return loadNewDomain(domainKey, executor);
     }
     // If the domain is still being initialized, we return the same CompletableFuture
     if (!domain.isDone()) {
       return domain;
     }
-    // If the domain completed successfully (not exceptionally or canceled),
-    // store it in previousDomains map to keep a usable domain to return
-    if (!domain.isCompletedExceptionally() && !domain.isCancelled()) {
-      previousDomains.put(domainKey, domain);
+    // If the last attempts failed, we do not call eHealth again before the end of the backoff delay
+    final var failure = domainFailures.get(domainKey);
+    if (failure != null && domain.isCompletedExceptionally()) {
+      final var retryInNanos = failure.retryAtNanos - System.nanoTime();
+      if (retryInNanos > 0) {
+        return failedFuture(new DomainUnavailableException(domainKey, failure.consecutiveFailures, Duration.ofNanos(retryInNanos), failure.cause));
+      }
     }
-    final var newDomain = domainCompletableFuture(domainKey);
-    final var replaced = domains.replace(domainKey, domain, newDomain);
-    // If the domain was successfully replaced, return the new domain
-    // Otherwise return the current domain from the map (which may have been updated by another thread)
-    return replaced ? newDomain : domains.get(domainKey);
+    // The load is only started if the domain is still the one in the map: otherwise another thread already replaced it
+    final var current = domains.computeIfPresent(domainKey, (key, installed) -> {
+      if (installed != domain) {
+        return installed;
+      }
+      // If the domain completed successfully (not exceptionally or canceled),
+      // store it in previousDomains map to keep a usable domain to return
+      if (!domain.isCompletedExceptionally() && !domain.isCancelled()) {
+        previousDomains.put(key, domain);
+      }
+      return domainCompletableFuture(key, executor);
+    });
+    // If the domain was evicted in the meantime, it is loaded again as if it was asked for the first time
+    return current != null ? current : loadNewDomain(domainKey, executor);
+  }
+
+  /**
+   * Starts the load of a domain that is not in memory, after evicting the domains exceeding {@code maxDomains}.
+   *
+   * @param domainKey the unique key identifying the domain to be loaded
+   * @param executor  the {@link Executor} on which the domain is created once it is received from eHealth
+   * @return a {@link CompletableFuture} containing the domain object, or the one of the load started concurrently by another thread
+   */
+  private CompletableFuture<? extends Domain> loadNewDomain(final String domainKey, final Executor executor) {
+    evictDomains(domainKey);
+    return domains.computeIfAbsent(domainKey, key -> domainCompletableFuture(key, executor));
   }
 
   /**
    * Retrieves a {@link CompletableFuture} that, when completed, provides a {@link DomainImpl} object
    * corresponding to the specified domain key. The domain information is fetched using the
    * pseudonymisation client and processed to create the {@link DomainImpl} instance.
+   * <p>
+   * The secret keys already decrypted by the previous version of the domain (if any) are reused.
    *
    * @param domainKey the unique key identifying the domain to be retrieved
+   * @param executor  the {@link Executor} on which the domain is created once it is received from eHealth
    * @return a {@link CompletableFuture} containing the {@link DomainImpl} object for the given domain key
    */
-  private CompletableFuture<DomainImpl> domainCompletableFuture(final String domainKey) {
+  private CompletableFuture<DomainImpl> domainCompletableFuture(final String domainKey, final Executor executor) {
+    domainLoads.increment();
     return pseudonymisationClient
                .getDomain(domainKey)
                .orTimeout(5, SECONDS)
-               .thenApply(this::createDomain);
+               .thenComposeAsync(rawDomain -> createDomain(rawDomain, previousDomain(domainKey), executor), executor)
+               .whenComplete((domain, e) -> {
+                 if (e == null) {
+                   domainFailures.remove(domainKey);
+                   final var handle = domainHandle(domainKey);
+                   if (handle != null) {
+                     handle.update(domain);
+                   }
+                 } else {
+                   onDomainFailure(domainKey, e);
+                 }
+               });
+  }
+
+  /**
+   * Records the failure of the load of a domain and computes the backoff delay before the next attempt.
+   * <p>
+   * If a previous version of the domain exists, the callers keep using it and the load is retried in the background after the backoff delay.
+   *
+   * @param domainKey the key of the domain
+   * @param e         the cause of the failure
+   */
+  private void onDomainFailure(final String domainKey, final Throwable e) {
+    failedDomainLoads.increment();
+    final var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    final var failure = domainFailures.compute(domainKey, (key, previousFailure) -> {
+      final var consecutiveFailures = previousFailure == null ? 1 : previousFailure.consecutiveFailures + 1;
+      final var delayNanos = Backoff.withJitter(Backoff.delayNanos(consecutiveFailures, domainRetryBaseDelay.toNanos(), MAX_DOMAIN_RETRY_DELAY.toNanos()));
+      return new DomainFailure(consecutiveFailures, System.nanoTime() + delayNanos, delayNanos, cause);
+    });
+    log.warn("Failed to load the domain `{}` ({} consecutive failure(s)): next attempt in {} ms",
+             domainKey, failure.consecutiveFailures, NANOSECONDS.toMillis(failure.delayNanos), cause);
+    if (previousDomain(domainKey) != null) {
+      CompletableFuture.delayedExecutor(failure.delayNanos, NANOSECONDS, computeExecutor).execute(() -> {
+        // The domain may have been evicted in the meantime
+        if (domains.containsKey(domainKey)) {
+          refreshDomain(domainKey);
+        }
+      });
+    }
+  }
+
+  /**
+   * Records an access to the given domain.
+   *
+   * @param domainKey the key of the domain
+   */
+  private void touch(final String domainKey) {
+    if (maxDomains == Integer.MAX_VALUE && domainIdleTimeout == null) {
+      return;
+    }
+    final var now = System.nanoTime();
+    domainLastAccesses.put(domainKey, now);
+    // The idle domains are looked for at most twice per idle timeout, by the thread that wins the race
+    if (domainIdleTimeout != null) {
+      final var lastSweep = lastIdleSweep.get();
+      if (now - lastSweep >= domainIdleTimeout.toNanos() / 2 && lastIdleSweep.compareAndSet(lastSweep, now)) {
+        evictIdleDomains(domainKey, now);
+      }
+    }
+  }
+
+  /**
+   * Removes from memory the domains not used for {@code domainIdleTimeout}, then the least recently used domains
+   * until there is room for a new domain.
+   * <p>
+   * The domains whose {@link DomainHandle} is still used by the application and the domains being loaded are never evicted.
+   *
+   * @param newDomainKey the key of the domain about to be loaded
+   */
+  private void evictDomains(final String newDomainKey) {
+    if (maxDomains == Integer.MAX_VALUE && domainIdleTimeout == null) {
+      return;
+    }
+    final var candidates = evictIdleDomains(newDomainKey, System.nanoTime());
+    var overflow = domains.size() + 1 - maxDomains;
+    if (overflow <= 0) {
+      return;
+    }
+    candidates.sort(Map.Entry.comparingByValue());
+    for (final var candidate : candidates) {
+      if (overflow-- <= 0) {
+        break;
+      }
+      evictDomain(candidate.getKey());
+    }
+  }
+
+  /**
+   * Removes from memory the domains not used for {@code domainIdleTimeout}.
+   * <p>
+   * The domains whose {@link DomainHandle} is still used by the application and the domains being loaded are never evicted.
+   *
+   * @param excludedDomainKey the key of a domain that must not be evicted
+   * @param now               the current value of {@link System#nanoTime()}
+   * @return the domains that can be evicted but are not idle, with the time of their last access
+   */
+  private List<Map.Entry<String, Long>> evictIdleDomains(final String excludedDomainKey, final long now) {
+    removeCollectedHandles();
+    final var candidates = new ArrayList<Map.Entry<String, Long>>();
+    for (final var entry : domainLastAccesses.entrySet()) {
+      final var domainKey = entry.getKey();
+      final var domain = domains.get(domainKey);
+      if (domainKey.equals(excludedDomainKey) || domain == null || !domain.isDone() || domainHandle(domainKey) != null) {
+        continue;
+      }
+      if (domainIdleTimeout != null && now - entry.getValue() > domainIdleTimeout.toNanos()) {
+        evictDomain(domainKey);
+      } else {
+        candidates.add(entry);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Removes the given domain from memory, with its previous version and all its bookkeeping.
+   *
+   * @param domainKey the key of the domain to evict
+   */
+  private void evictDomain(final String domainKey) {
+    if (domains.remove(domainKey) == null) {
+      return;
+    }
+    domainEvictions.increment();
+    previousDomains.remove(domainKey);
+    domainFailures.remove(domainKey);
+    unknownKidRefreshes.remove(domainKey);
+    domainLastAccesses.remove(domainKey);
+    if (refreshableDomains.remove(domainKey)) {
+      synchronized (refreshableDomains) {
+        unmodifiableCopyOfRefreshableDomains = Set.of(refreshableDomains.toArray(EMPTY_STRING_ARRAY));
+      }
+    }
+    log.debug("The domain `{}` has been evicted", domainKey);
   }
 
-  private DomainImpl createDomain(final String rawDomain) throws ThrowableWrapperException {
+  /**
+   * Returns the last successfully created version of the given domain.
+   *
+   * @param domainKey the key of the domain
+   * @return the previous version of the domain or {@code null} if there is no previous version
+   */
+  private DomainImpl previousDomain(final String domainKey) {
+    final var previousDomain = previousDomains.get(domainKey);
+    if (previousDomain == null || !previousDomain.isDone() || previousDomain.isCompletedExceptionally() || previousDomain.isCancelled()) {
+      return null;
+    }
+    return previousDomain.join();
+  }
+
+  /**
+   * Creates a {@link DomainImpl} from the domain returned by eHealth.
+   * <p>
+   * The secret keys whose kid is already known by {@code previousDomain} are not decrypted again:
+   * only the new secret keys are decrypted.
+   * <p>
+   * This method never waits for the JWKS: if some secret keys must be decrypted, the returned {@link CompletableFuture} is composed
+   * with the {@link CompletableFuture} of the JWKS, and the decryption is done on the given executor once the JWKS is available.
+   *
+   * @param rawDomain      the domain returned by eHealth
+   * @param previousDomain the previous version of the domain or {@code null}
+   * @param executor       the {@link Executor} on which the secret keys are decrypted (usually the compute executor)
+   * @return a {@link CompletableFuture} of the created {@link DomainImpl}
+   */
+  private CompletableFuture<DomainImpl> createDomain(final String rawDomain,
+                                                     final DomainImpl previousDomain,
+                                                     final Executor executor) throws ThrowableWrapperException {
+    final DomainDescriptor descriptor;
     try {
-      String activeKid = null;
-      EncryptionMethod activeKeyAlgorithm = null;
-      boolean isKnownJku = false;
-      final var jku = jwksUrl == null ? null : jwksUrl.toString();
-      final var parsedEHealthDomain = GSON.fromJson(rawDomain, Map.class);
-      final var domainKey = (String) parsedEHealthDomain.get("domain");
-      @SuppressWarnings("unchecked")
-      final var secretKeysFromEHealth = (List<Map<String, Object>>) parsedEHealthDomain.get("secretKeys");
-      final var secretKeys = new ConcurrentHashMap<String, SecretKey>(secretKeysFromEHealth.size(), 1f, 1);
-      // If we are an owner of the domain, we decrypt all the secret keys
-      //noinspection unchecked
-      if (jku != null && jwksSupplier != null && ((List<String>) parsedEHealthDomain.get("jku")).contains(jku)) {
-        isKnownJku = true;
-        for (final Map<String, Object> secretKey : secretKeysFromEHealth) {
-          try {
-            final var kid = (String) secretKey.get("kid");
-            @SuppressWarnings("unchecked")
-            final var parsedJwe = JWEObjectJSON.parse((Map<String, Object>) secretKey.get("encoded"));
-            final var jweKey = getJweKey(parsedJwe, jku);
-            if (jweKey != null) {
-              final var privateKey = privateKeySupplier.getByHash(jweKey.getX509CertSHA256Thumbprint().toString());
-              parsedJwe.decrypt(new MultiDecrypter(new RSAKey.Builder(jweKey.toRSAKey()).privateKey(privateKey).build()));
-              final var jwk = JWK.parse(parsedJwe.getPayload().toString());
-              final var algName = jwk.getAlgorithm().getName();
-              secretKeys.put(kid, ((OctetSequenceKey) jwk).toSecretKey(algName));
-              if (TRUE.equals(secretKey.get("active"))) {
-                activeKid = kid;
-                activeKeyAlgorithm = EncryptionMethod.parse(algName);
-              }
-            } else {
-              log.error(KID_PROBLEM_W_DOMAIN, kid, domainKey, rawDomain);
-              throw new IllegalStateException("Failed to decrypt the secret key with kid `" + kid + "` of the domain `" + domainKey + "`");
-            }
-          } catch (final ParseException e) {
-            log.error("An error occurred when processing the domain `{}`. Response from eHealth was\n{}", domainKey, rawDomain);
-            throw new ThrowableWrapperException(e);
-          }
+      descriptor = DomainDescriptor.parse(rawDomain);
+    } catch (final ParseException e) {
+      return throwWrapped(e);
+    }
+    final var jku = jwksUrl == null ? null : jwksUrl.toString();
+    final var domainKey = descriptor.key();
+    final var secretKeysFromEHealth = descriptor.secretKeys();
+    final var secretKeys = new ConcurrentHashMap<String, SecretKey>(secretKeysFromEHealth.size(), 1f, 1);
+    // If we are not an owner of the domain, there is no secret key to decrypt
+    if (jku == null || jwksSupplier == null || !descriptor.jku().contains(jku)) {
+      return completedFuture(newDomain(descriptor, secretKeys, null, null, false));
+    }
+    String activeKid = null;
+    EncryptionMethod activeKeyAlgorithm = null;
+    final var encryptedSecretKeys = new ArrayList<EncryptedSecretKey>();
+    for (final var secretKey : secretKeysFromEHealth) {
+      final var kid = secretKey.kid();
+      final var previousSecretKey = previousDomain == null ? null : previousDomain.secretKey(kid);
+      if (previousSecretKey != null) {
+        secretKeys.put(kid, previousSecretKey);
+        if (secretKey.active()) {
+          activeKid = kid;
+          activeKeyAlgorithm = EncryptionMethod.parse(previousSecretKey.getAlgorithm());
         }
+        continue;
       }
-      final var crv = (String) parsedEHealthDomain.get("crv");
-      final var curve = ECNamedCurveTable.getParameterSpec(crv).getCurve();
-      final var bufferSize = ((Number) parsedEHealthDomain.get("bufferSize")).intValue();
-      final var domain = new DomainImpl(domainKey,
-                                        crv,
-                                        curve,
-                                        (String) parsedEHealthDomain.get("audience"),
-                                        bufferSize,
-                                        secretKeys,
-                                        activeKid,
-                                        activeKeyAlgorithm,
-                                        Duration.parse((String) parsedEHealthDomain.get("timeToLiveInTransit")),
-                                        pseudonymisationClient,
-                                        secureRandom);
-      if (isKnownJku) {
-        if (refreshableDomains.add(domainKey)) {
-          // Synchronized block ensures that if 2 domains are refreshed at the same time,
-          synchronized (refreshableDomains) {
-            unmodifiableCopyOfRefreshableDomains = Set.of(refreshableDomains.toArray(EMPTY_STRING_ARRAY));
+      final JWEObjectJSON parsedJwe;
+      try {
+        parsedJwe = secretKey.encoded();
+      } catch (final ParseException e) {
+        log.error("An error occurred when processing the domain `{}`. Response from eHealth was\n{}", domainKey, rawDomain);
+        return throwWrapped(e);
+      }
+      final var kids = recipientKids(parsedJwe, jku);
+      if (kids.isEmpty()) {
+        log.error(KID_PROBLEM_W_DOMAIN, kid, domainKey, rawDomain);
+        throw new IllegalStateException("Failed to decrypt the secret key with kid `" + kid + "` of the domain `" + domainKey + "`");
+      }
+      encryptedSecretKeys.add(new EncryptedSecretKey(kid, secretKey.active(), parsedJwe, kids));
+    }
+    if (encryptedSecretKeys.isEmpty()) {
+      return completedFuture(newDomain(descriptor, secretKeys, activeKid, activeKeyAlgorithm, true));
+    }
+    final var reusedActiveKid = activeKid;
+    final var reusedActiveKeyAlgorithm = activeKeyAlgorithm;
+    return jwksContaining(encryptedSecretKeys)
+               .thenApplyAsync(jwks -> {
+                 var newActiveKid = reusedActiveKid;
+                 var newActiveKeyAlgorithm = reusedActiveKeyAlgorithm;
+                 for (final var encryptedSecretKey : encryptedSecretKeys) {
+                   final var kid = encryptedSecretKey.kid;
+                   final var jweKey = findMatchingJwk(jwks, encryptedSecretKey.kids).orElse(null);
+                   if (jweKey == null) {
+                     log.error("No JWK with kids in {} found in the JKU `{}`", encryptedSecretKey.kids, jku);
+                     log.error(KID_PROBLEM_W_DOMAIN, kid, domainKey, rawDomain);
+                     throw new IllegalStateException("Failed to decrypt the secret key with kid `" + kid + "` of the domain `" + domainKey + "`");
+                   }
+                   try {
+                     final var parsedJwe = encryptedSecretKey.parsedJwe;
+                     final var privateKey = privateKeySupplier.getByHash(jweKey.getX509CertSHA256Thumbprint().toString());
+                     parsedJwe.decrypt(new MultiDecrypter(new RSAKey.Builder(jweKey.toRSAKey()).privateKey(privateKey).build()));
+                     final var jwk = JWK.parse(parsedJwe.getPayload().toString());
+                     final var algName = jwk.getAlgorithm().getName();
+                     secretKeys.put(kid, ((OctetSequenceKey) jwk).toSecretKey(algName));
+                     if (encryptedSecretKey.active) {
+                       newActiveKid = kid;
+                       newActiveKeyAlgorithm = EncryptionMethod.parse(algName);
+                     }
+                   } catch (final ParseException e) {
+                     log.error("An error occurred when processing the domain `{}`. Response from eHealth was\n{}", domainKey, rawDomain);
+                     throw new ThrowableWrapperException(e);
+                   } catch (final Exception e) {
+                     return throwWrapped(e);
+                   }
+                 }
+                 return newDomain(descriptor, secretKeys, newActiveKid, newActiveKeyAlgorithm, true);
+               }, executor);
+  }
+
+  /**
+   * Creates the {@link DomainImpl} and, if we are an owner of the domain, adds it to the refreshable domains.
+   *
+   * @param descriptor         the domain returned by eHealth
+   * @param secretKeys         the decrypted secret keys
+   * @param activeKid          the kid of the active secret key
+   * @param activeKeyAlgorithm the algorithm of the active secret key
+   * @param isKnownJku         {@code true} if our JKU is a recipient of the secret keys of the domain
+   * @return the created {@link DomainImpl}
+   */
+  private DomainImpl newDomain(final DomainDescriptor descriptor,
+                               final Map<String, SecretKey> secretKeys,
+                               final String activeKid,
+                               final EncryptionMethod activeKeyAlgorithm,
+                               final boolean isKnownJku) {
+    final var domainKey = descriptor.key();
+    final var crv = descriptor.crv();
+    final var curve = CurveResolver.resolve(crv);
+    final var domain = new DomainImpl(domainKey,
+                                      crv,
+                                      curve,
+                                      descriptor.audience(),
+                                      descriptor.bufferSize(),
+                                      secretKeys,
+                                      activeKid,
+                                      activeKeyAlgorithm,
+                                      descriptor.timeToLiveInTransit(),
+                                      pseudonymisationClient,
+                                      secureRandom,
+                                      computeExecutor,
+                                      parallelThreshold,
+                                      refreshDomainOnUnknownKid ? this::resolveUnknownKid : null,
+                                      requestIdGenerator,
+                                      stacklessValidationExceptions);
+    if (isKnownJku) {
+      if (refreshableDomains.add(domainKey)) {
+        // Synchronized block ensures that if 2 domains are refreshed at the same time,
+        synchronized (refreshableDomains) {
+          unmodifiableCopyOfRefreshableDomains = Set.of(refreshableDomains.toArray(EMPTY_STRING_ARRAY));
+        }
+      }
+    }
+    return domain;
+  }
+
+  /**
+   * Returns the secret key with the given kid from the latest version of the domain, refreshing the domain if needed.
+   * <p>
+   * The refreshes caused by unknown kids are coalesced with any refresh in flight, and a domain is refreshed at most once per
+   * {@link #UNKNOWN_KID_REFRESH_INTERVAL} for this reason: the callers arriving in the meantime wait for the refresh in flight,
+   * or only look at the latest version of the domain.
+   * <p>
+   * This method is typically called from a thread of the compute executor (batch decryptions): the domain refreshed for this reason
+   * is therefore created on the thread that receives it instead of on the compute executor, which could have no free thread left,
+   * and the wait is signalled to the {@link ForkJoinPool} (if any) with {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}
+   * so that it can add a compensating thread.
+   *
+   * @param domainKey the key of the domain
+   * @param kid       the kid unknown by the version of the domain that received the transit info
+   * @return the secret key, or {@code null} if the kid is still unknown
+   */
+  private SecretKey resolveUnknownKid(final String domainKey, final String kid) {
+    final var latestDomain = latestDomain(domainKey);
+    final var secretKey = latestDomain == null ? null : latestDomain.secretKey(kid);
+    if (secretKey != null) {
+      return secretKey;
+    }
+    final var now = System.nanoTime();
+    final var lastRefresh = unknownKidRefreshes.get(domainKey);
+    final var refreshAllowed = lastRefresh == null
+                               ? unknownKidRefreshes.putIfAbsent(domainKey, now) == null
+                               : now - lastRefresh >= UNKNOWN_KID_REFRESH_INTERVAL.toNanos() && unknownKidRefreshes.replace(domainKey, lastRefresh, now);
+    final CompletableFuture<? extends Domain> refreshedDomain;
+    if (refreshAllowed) {
+      log.info("Unknown kid `{}` in a transit info of the domain `{}`: the domain is refreshed", kid, domainKey);
+      refreshedDomain = refreshDomain(domainKey, Runnable::run);
+    } else {
+      refreshedDomain = domains.get(domainKey);
+    }
+    if (refreshedDomain == null) {
+      return null;
+    }
+    final var deadline = System.nanoTime() + UNKNOWN_KID_REFRESH_TIMEOUT.toNanos();
+    try {
+      ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+        @Override
+        public boolean block() throws InterruptedException {
+          try {
+            refreshedDomain.get(deadline - System.nanoTime(), NANOSECONDS);
+          } catch (final ExecutionException | TimeoutException e) {
+            // Handled once the wait is over
           }
+          return true;
         }
+
+        @Override
+        public boolean isReleasable() {
+          return refreshedDomain.isDone();
+        }
+      });
+      if (!refreshedDomain.isDone()) {
+        log.warn("The refresh of the domain `{}` to get the kid `{}` did not complete within {}", domainKey, kid, UNKNOWN_KID_REFRESH_TIMEOUT);
+        return null;
       }
-      return domain;
+      return ((DomainImpl) refreshedDomain.join()).secretKey(kid);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
     } catch (final Exception e) {
-      return throwWrapped(e);
+      log.warn("The refresh of the domain `{}` to get the kid `{}` failed", domainKey, kid, e);
+      return null;
     }
   }
 
   /**
-   * Retrieves a JSON Web Key (JWK) matching the specified JSON Web Encryption (JWE) object and the JSON Web Key Set URL (JKU).
-   * The method identifies the appropriate key by examining the "unprotected headers" of the recipients in the parsed JWE object
-   * and finding a key in the JWKS that matches the key IDs (kids) associated with the given JKU.
-   * If no matching key is found initially, the JWKS is refreshed and the search is performed again.
+   * Returns the latest successfully loaded version of the given domain.
+   *
+   * @param domainKey the key of the domain
+   * @return the latest version of the domain, or {@code null} if the domain has never been loaded
+   */
+  private DomainImpl latestDomain(final String domainKey) {
+    final var domain = domains.get(domainKey);
+    if (domain != null && domain.isDone() && !domain.isCompletedExceptionally() && !domain.isCancelled()) {
+      return domain.join();
+    }
+    return previousDomain(domainKey);
+  }
+
+  /**
+   * Returns the key IDs (kids) of the recipients of the given JWE whose "unprotected header" references the given JKU.
    *
    * @param parsedJwe The parsed JWE object containing recipients' headers and encryption data.
    * @param jku       The JSON Web Key Set URL used to match recipient key IDs to those in the JWK set.
-   * @return The matching JWK if found, or null if no matching key is available.
+   * @return the kids of the recipients matching the JKU, or an empty list if there is no such recipient
    */
-  private JWK getJweKey(final JWEObjectJSON parsedJwe, final String jku) {
+  private List<String> recipientKids(final JWEObjectJSON parsedJwe, final String jku) {
     final var kids = parsedJwe.getRecipients().stream()
                               .map(JWEObjectJSON.Recipient::getUnprotectedHeader)
                               .filter(Objects::nonNull)
@@ -271,20 +908,29 @@ public final class PseudonymisationHelper {
                               .collect(toList());
     if (kids.isEmpty()) {
       log.error("No valid recipient found in the domain's secret key for the JKU: {}", jku);
-      return null;
-    }
-    var jwks = getJwks();
-    var optionalJweKey = findMatchingJwk(jwks, kids);
-    if (optionalJweKey.isEmpty()) {
-      flagJwksForRefresh();
-      jwks = getJwks();
-      optionalJweKey = findMatchingJwk(jwks, kids);
-    }
-    if (optionalJweKey.isEmpty()) {
-      log.error("No JWK with kids in {} found in the JKU `{}`", kids, jku);
-      return null;
     }
-    return optionalJweKey.get();
+    return kids;
+  }
+
+  /**
+   * Returns a {@link CompletableFuture} of the JWKS containing a key for each of the given encrypted secret keys.
+   * <p>
+   * If the current JWKS does not contain all the keys, the JWKS is refreshed once.
+   * If a key is still missing after the refresh, the refreshed JWKS is returned anyway: the caller reports the missing key.
+   * The refresh is coalesced with any refresh in flight, and is skipped if the last one is too recent
+   * (see {@link Builder#jwksMinRefreshInterval(Duration)}).
+   *
+   * @param encryptedSecretKeys the secret keys to decrypt
+   * @return a {@link CompletableFuture} of the {@link JWKSet}
+   */
+  private CompletableFuture<JWKSet> jwksContaining(final List<EncryptedSecretKey> encryptedSecretKeys) {
+    return jwks().thenCompose(jwks -> {
+      final var complete = encryptedSecretKeys.stream().allMatch(encryptedSecretKey -> findMatchingJwk(jwks, encryptedSecretKey.kids).isPresent());
+      if (complete) {
+        return completedFuture(jwks);
+      }
+      return jwksCache.refresh();
+    });
   }
 
   private Optional<JWK> findMatchingJwk(final JWKSet jwks, final List<String> kids) {
@@ -292,30 +938,22 @@ public final class PseudonymisationHelper {
   }
 
   /**
-   * Retrieves the JSON Web Key Set (JWKS).
-   * If the process is interrupted, or an execution error occurs,
-   * the JWKS is flagged for refresh, and the cause of the error is rethrown.
+   * Returns the {@link CompletableFuture} of the JSON Web Key Set (JWKS).
+   * If the current one completed exceptionally, a new attempt to retrieve it is made (subject to the backoff of {@link JwksCache}).
    *
-   * @return the current {@link JWKSet}
+   * @return the {@link CompletableFuture} of the current {@link JWKSet}
    */
-  private JWKSet getJwks() {
-    try {
-      return jwkSet.get();
-    } catch (final InterruptedException e) {
-      flagJwksForRefresh();
-      Thread.currentThread().interrupt();
-      return throwWrapped(e);
-    } catch (final ExecutionException e) {
-      flagJwksForRefresh();
-      return throwWrapped(e.getCause());
-    }
+  private CompletableFuture<JWKSet> jwks() {
+    return jwksCache.get();
   }
 
   /**
    * Flag the JWK set for refresh.
    * <p>
-   * This method will reinitialize the {@code CompletableFuture<JWKSet>} to force the retrieve of the JWK set.
-   * This method will be automatically called every time there is an unknown key ID in your recipient of one of the JWE defined in the domain.
+   * This method will reinitialize the {@code CompletableFuture<JWKSet>} to force the retrieve of the JWK set,
+   * unless a retrieval is already in progress (in which case its result will be used).
+   * The JWK set is automatically refreshed every time there is an unknown key ID in your recipient of one of the JWE defined in the domain,
+   * but at most once per {@link Builder#jwksMinRefreshInterval(Duration) jwksMinRefreshInterval}.
    * Despite this, it is recommended to call this method as soon as you know that an update has been made to the JWKS.
    * <p>
    * It is up to you to cache or not the string returned by `jwksSupplier`.
@@ -323,21 +961,63 @@ public final class PseudonymisationHelper {
    * If you did not provide any `jwksSupplier`, this method has no effect.
    */
   public void flagJwksForRefresh() {
-    if (jwksSupplier != null) {
-      jwkSet = jwksSupplier.get().orTimeout(5, SECONDS).thenApply(ThrowingFunction.sneaky(JWKSet::parse));
-    }
+    jwksCache.forceRefresh();
   }
 
   private void initJwksSilently() {
-    if (jwksSupplier == null) {
-      jwkSet = failedFuture(new NullPointerException("`jwksSupplier` cannot be null if you need to encrypt/decrypt transit info"));
-      return;
+    jwks().whenComplete((jwks, e) -> {
+      if (e != null && jwksSupplier != null) {
+        log.error("Failed to retrieve JWKS", e);
+      }
+    });
+  }
+
+  /**
+   * Weak reference to a {@link DomainHandleImpl}, which knows the key of its domain once the handle has been collected.
+   */
+  private static final class HandleReference extends WeakReference<DomainHandleImpl> {
+
+    private final String domainKey;
+
+    private HandleReference(final DomainHandleImpl handle, final ReferenceQueue<DomainHandleImpl> queue) {
+      super(handle, queue);
+      this.domainKey = handle.key();
     }
-    flagJwksForRefresh();
-    try {
-      getJwks();
-    } catch (Exception e) {
-      log.error("Failed to retrieve JWKS", e);
+  }
+
+  /**
+   * Consecutive failures of the load of a domain.
+   */
+  private static final class DomainFailure {
+
+    private final int consecutiveFailures;
+    private final long retryAtNanos;
+    private final long delayNanos;
+    private final Throwable cause;
+
+    private DomainFailure(final int consecutiveFailures, final long retryAtNanos, final long delayNanos, final Throwable cause) {
+      this.consecutiveFailures = consecutiveFailures;
+      this.retryAtNanos = retryAtNanos;
+      this.delayNanos = delayNanos;
+      this.cause = cause;
+    }
+  }
+
+  /**
+   * Secret key of a domain that must be decrypted.
+   */
+  private static final class EncryptedSecretKey {
+
+    private final String kid;
+    private final boolean active;
+    private final JWEObjectJSON parsedJwe;
+    private final List<String> kids;
+
+    private EncryptedSecretKey(final String kid, final boolean active, final JWEObjectJSON parsedJwe, final List<String> kids) {
+      this.kid = kid;
+      this.active = active;
+      this.parsedJwe = parsedJwe;
+      this.kids = kids;
     }
   }
 
@@ -353,10 +1033,35 @@ public final class PseudonymisationHelper {
   @SuppressWarnings("unused")
   public static class Builder {
 
+    /**
+     * Default value of {@link #parallelThreshold(int)}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4;
+
+    /**
+     * Default value of {@link #jwksMinRefreshInterval(Duration)}.
+     */
+    public static final Duration DEFAULT_JWKS_MIN_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    /**
+     * Default value of {@link #domainRetryBaseDelay(Duration)}.
+     */
+    public static final Duration DEFAULT_DOMAIN_RETRY_BASE_DELAY = Duration.ofSeconds(1);
+
     private URI jwksUrl;
     private Supplier<CompletableFuture<String>> jwksSupplier;
     private PrivateKeySupplier privateKeySupplier;
     private PseudonymisationClient pseudonymisationClient;
+    private Executor computeExecutor = ForkJoinPool.commonPool();
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private Duration jwksMinRefreshInterval = DEFAULT_JWKS_MIN_REFRESH_INTERVAL;
+    private Duration domainRetryBaseDelay = DEFAULT_DOMAIN_RETRY_BASE_DELAY;
+    private Set<String> preloadDomains = Set.of();
+    private boolean refreshDomainOnUnknownKid;
+    private int maxDomains = Integer.MAX_VALUE;
+    private Duration domainIdleTimeout;
+    private RequestIdGenerator requestIdGenerator = RequestIdGenerator.threadLocalRandomUuid();
+    private boolean stacklessValidationExceptions;
 
     private Builder() {
     }
@@ -406,13 +1111,232 @@ public final class PseudonymisationHelper {
       return this;
     }
 
+    /**
+     * Set {@code computeExecutor}.
+     * <p>
+     * The CPU-bound work done on the responses of the {@link PseudonymisationClient} (creation of the domains, including the decryption
+     * of their secret keys, unblinding of the points, parsing of the transit infos...) is run on this {@link Executor}
+     * instead of the thread that completed the {@link CompletableFuture} returned by the {@link PseudonymisationClient}
+     * (typically an I/O thread of the HTTP client).
+     * <p>
+     * When a batch ({@link MultipleValue}, {@link MultiplePseudonym} or {@link MultiplePseudonymInTransit}) contains at least
+     * {@link #parallelThreshold(int) parallelThreshold} elements, the blinding of its elements before the call to eHealth and the unblinding
+     * of the elements returned by eHealth are also split on this {@link Executor}.
+     * The order of the elements and the problems returned by eHealth for individual elements are preserved.
+     * <p>
+     * Defaults to {@link ForkJoinPool#commonPool()}.
+     * The queueing delay of this {@link Executor} can be monitored with {@link PseudonymisationHelper#computeMetrics()}.
+     *
+     * @param computeExecutor The {@link Executor} to use for the cryptographic operations.
+     * @return {@code this}
+     */
+    public Builder computeExecutor(final Executor computeExecutor) {
+      this.computeExecutor = requireNonNull(computeExecutor, "`computeExecutor` cannot be null");
+      return this;
+    }
+
+    /**
+     * Set {@code parallelThreshold}.
+     * <p>
+     * Batches smaller than this threshold are processed on the calling thread.
+     * <p>
+     * Defaults to {@value #DEFAULT_PARALLEL_THRESHOLD}.
+     *
+     * @param parallelThreshold The minimum size of a batch for its cryptographic operations to be split on the {@code computeExecutor}.
+     * @return {@code this}
+     * @throws IllegalArgumentException if {@code parallelThreshold} is lower than 1
+     */
+    public Builder parallelThreshold(final int parallelThreshold) {
+      if (parallelThreshold < 1) {
+        throw new IllegalArgumentException("`parallelThreshold` must be greater than 0");
+      }
+      this.parallelThreshold = parallelThreshold;
+      return this;
+    }
+
+    /**
+     * Set {@code jwksMinRefreshInterval}.
+     * <p>
+     * When a secret key of a domain is encrypted with a key missing from the JWKS, the JWKS is refreshed.
+     * All the refreshes requested while a call to the {@code jwksSupplier} is in progress share the result of this call,
+     * and the {@code jwksSupplier} is not called again before this interval has elapsed.
+     * After failures, the interval is doubled at each consecutive failure, up to 5 minutes.
+     * {@link PseudonymisationHelper#flagJwksForRefresh()} ignores this interval.
+     * <p>
+     * Defaults to 30 seconds.
+     * The refreshes can be monitored with {@link PseudonymisationHelper#jwksMetrics()}.
+     *
+     * @param jwksMinRefreshInterval The minimum interval between two calls to {@code jwksSupplier}.
+     * @return {@code this}
+     * @throws IllegalArgumentException if {@code jwksMinRefreshInterval} is negative
+     */
+    public Builder jwksMinRefreshInterval(final Duration jwksMinRefreshInterval) {
+      requireNonNull(jwksMinRefreshInterval, "`jwksMinRefreshInterval` cannot be null");
+      if (jwksMinRefreshInterval.isNegative()) {
+        throw new IllegalArgumentException("`jwksMinRefreshInterval` cannot be negative");
+      }
+      this.jwksMinRefreshInterval = jwksMinRefreshInterval;
+      return this;
+    }
+
+    /**
+     * Set {@code domainRetryBaseDelay}.
+     * <p>
+     * When a domain fails to load, no new attempt to load it is made before this delay.
+     * The delay is doubled at each consecutive failure, up to 5 minutes, and randomised (between the half and the whole of the delay)
+     * so that the instances of an application do not retry at the same time.
+     * During this delay, {@link PseudonymisationHelper#getDomain(String)} returns the previous version of the domain if any,
+     * or fails immediately with a {@link DomainUnavailableException} otherwise.
+     * <p>
+     * Defaults to 1 second.
+     *
+     * @param domainRetryBaseDelay The delay before the first retry of a domain that failed to load.
+     * @return {@code this}
+     * @throws IllegalArgumentException if {@code domainRetryBaseDelay} is negative
+     */
+    public Builder domainRetryBaseDelay(final Duration domainRetryBaseDelay) {
+      requireNonNull(domainRetryBaseDelay, "`domainRetryBaseDelay` cannot be null");
+      if (domainRetryBaseDelay.isNegative()) {
+        throw new IllegalArgumentException("`domainRetryBaseDelay` cannot be negative");
+      }
+      this.domainRetryBaseDelay = domainRetryBaseDelay;
+      return this;
+    }
+
+    /**
+     * Set {@code preloadDomains}.
+     * <p>
+     * The given domains are loaded concurrently as soon as the {@link PseudonymisationHelper} is built, instead of on their first use.
+     * {@link PseudonymisationHelper#ready()} completes once all of them are loaded: a readiness probe can wait for it.
+     *
+     * @param preloadDomains The keys of the domains to load when the {@link PseudonymisationHelper} is built.
+     * @return {@code this}
+     */
+    public Builder preloadDomains(final Collection<String> preloadDomains) {
+      requireNonNull(preloadDomains, "`preloadDomains` cannot be null");
+      this.preloadDomains = Collections.unmodifiableSet(new LinkedHashSet<>(preloadDomains));
+      return this;
+    }
+
+    /**
+     * Set {@code refreshDomainOnUnknownKid}.
+     * <p>
+     * When enabled, decrypting a transit info encrypted with a kid unknown by the domain (typically just after eHealth rotated the active key)
+     * refreshes the domain and retries the decryption once with the secret keys of the refreshed domain,
+     * instead of throwing an {@link be.smals.shared.pseudo.helper.exceptions.UnknownKidException} immediately.
+     * The decryption ({@link TransitInfo#payload()}, {@link PseudonymInTransit#atRest()}...) then waits for the refresh (at most 10 seconds).
+     * <p>
+     * All the decryptions failing at the same time share the same refresh, and a domain is refreshed at most once every 10 seconds
+     * because of unknown kids.
+     * <p>
+     * Disabled by default.
+     *
+     * @param refreshDomainOnUnknownKid {@code true} to refresh the domain when a transit info is encrypted with an unknown kid.
+     * @return {@code this}
+     */
+    public Builder refreshDomainOnUnknownKid(final boolean refreshDomainOnUnknownKid) {
+      this.refreshDomainOnUnknownKid = refreshDomainOnUnknownKid;
+      return this;
+    }
+
+    /**
+     * Set {@code maxDomains}.
+     * <p>
+     * When a new domain must be loaded while {@code maxDomains} domains are already in memory,
+     * the least recently used domains (by {@link PseudonymisationHelper#getDomain(String)} or {@link PseudonymisationHelper#refreshDomain(String)})
+     * are removed from memory, with their previous version. They will be loaded again on their next use.
+     * The domains whose {@link DomainHandle} is still referenced by the application (including the preloaded domains) are never removed.
+     * <p>
+     * Unlimited by default.
+     *
+     * @param maxDomains The maximum number of domains kept in memory.
+     * @return {@code this}
+     * @throws IllegalArgumentException if {@code maxDomains} is lower than 1
+     */
+    public Builder maxDomains(final int maxDomains) {
+      if (maxDomains < 1) {
+        throw new IllegalArgumentException("`maxDomains` must be greater than 0");
+      }
+      this.maxDomains = maxDomains;
+      return this;
+    }
+
+    /**
+     * Set {@code domainIdleTimeout}.
+     * <p>
+     * The domains not used (by {@link PseudonymisationHelper#getDomain(String)} or {@link PseudonymisationHelper#refreshDomain(String)})
+     * for this duration are removed from memory. They are looked for when a new domain is loaded, and on the accesses to the domains
+     * (at most twice per {@code domainIdleTimeout}). They will be loaded again on their next use.
+     * The domains whose {@link DomainHandle} is still referenced by the application (including the preloaded domains) are never removed.
+     * <p>
+     * Disabled by default.
+     *
+     * @param domainIdleTimeout The time after which an unused domain is removed from memory, or {@code null} to disable it.
+     * @return {@code this}
+     * @throws IllegalArgumentException if {@code domainIdleTimeout} is negative
+     */
+    public Builder domainIdleTimeout(final Duration domainIdleTimeout) {
+      if (domainIdleTimeout != null && domainIdleTimeout.isNegative()) {
+        throw new IllegalArgumentException("`domainIdleTimeout` cannot be negative");
+      }
+      this.domainIdleTimeout = domainIdleTimeout;
+      return this;
+    }
+
+    /**
+     * Set {@code requestIdGenerator}.
+     * <p>
+     * The {@link RequestIdGenerator} generates the {@code id} of each input sent to eHealth pseudonymisation service.
+     * <p>
+     * Defaults to {@link RequestIdGenerator#threadLocalRandomUuid()}.
+     * Use {@link RequestIdGenerator#secureRandomUuid()} to generate each id with {@link java.util.UUID#randomUUID()}.
+     *
+     * @param requestIdGenerator The {@link RequestIdGenerator} of the ids of the inputs sent to eHealth.
+     * @return {@code this}
+     */
+    public Builder requestIdGenerator(final RequestIdGenerator requestIdGenerator) {
+      this.requestIdGenerator = requireNonNull(requestIdGenerator, "`requestIdGenerator` cannot be null");
+      return this;
+    }
+
+    /**
+     * Set {@code stacklessValidationExceptions}.
+     * <p>
+     * When enabled, the {@link InvalidPseudonymException}s thrown when a pseudonym (at rest or in transit) cannot be parsed
+     * have no stack trace: filling it in is the main cost of rejecting a malformed input.
+     * Enable it if your application validates a lot of untrusted inputs and does not need these stack traces.
+     * The {@code tryFrom*} methods of {@link PseudonymFactory} and {@link PseudonymInTransitFactory} never create any stack trace.
+     * <p>
+     * Disabled by default.
+     *
+     * @param stacklessValidationExceptions {@code true} to not fill in the stack traces of the {@link InvalidPseudonymException}s.
+     * @return {@code this}
+     */
+    public Builder stacklessValidationExceptions(final boolean stacklessValidationExceptions) {
+      this.stacklessValidationExceptions = stacklessValidationExceptions;
+      return this;
+    }
+
     /**
      * Build the {@link PseudonymisationHelper}.
      *
      * @return a new {@link PseudonymisationHelper}.
      */
     public PseudonymisationHelper build() {
-      return new PseudonymisationHelper(jwksUrl, jwksSupplier, pseudonymisationClient, privateKeySupplier);
+      return new PseudonymisationHelper(jwksUrl,
+                                        jwksSupplier,
+                                        pseudonymisationClient,
+                                        privateKeySupplier,
+                                        computeExecutor,
+                                        parallelThreshold,
+                                        jwksMinRefreshInterval,
+                                        domainRetryBaseDelay,
+                                        preloadDomains,
+                                        refreshDomainOnUnknownKid,
+                                        maxDomains,
+                                        domainIdleTimeout,
+                                        requestIdGenerator,
+                                        stacklessValidationExceptions);
     }
   }
 }
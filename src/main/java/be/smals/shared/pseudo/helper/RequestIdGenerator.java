@@ -0,0 +1,65 @@
+package be.smals.shared.pseudo.helper;
+
+import be.smals.shared.pseudo.helper.internal.ThreadLocalRandomRequestIdGenerator;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Generates the {@code id} of each input sent to eHealth pseudonymisation service.
+ * <p>
+ * An id is generated for each single call and for each input of a batch call ({@code pseudonymizeMultiple}, {@code identifyMultiple}...).
+ * The ids must be unique within a request, and should be unique enough to match a request with the logs of eHealth.
+ * They are not used for any cryptographic purpose.
+ * <p>
+ * The implementations must be thread-safe.
+ */
+@SuppressWarnings("unused")
+@FunctionalInterface
+public interface RequestIdGenerator {
+
+  // tag::methods[]
+  /**
+   * Returns a new id.
+   *
+   * @return a new id
+   */
+  String nextId();
+
+  /**
+   * Returns a {@link Supplier} of the ids of the inputs of one batch.
+   * <p>
+   * The returned {@link Supplier} is only used by one thread, to build one request.
+   * The ids it returns must be unique within the batch.
+   * By default, each id is generated by {@link #nextId()}.
+   *
+   * @return a {@link Supplier} of the ids of the inputs of one batch
+   */
+  default Supplier<String> batch() {
+    return this::nextId;
+  }
+  // end::methods[]
+
+  /**
+   * Returns the default {@link RequestIdGenerator}.
+   * <p>
+   * It generates random (version 4) UUIDs with {@link java.util.concurrent.ThreadLocalRandom}, without any contention between threads.
+   * All the ids of a batch are derived from one random UUID: they only differ by their last bits.
+   *
+   * @return the default {@link RequestIdGenerator}
+   */
+  static RequestIdGenerator threadLocalRandomUuid() {
+    return ThreadLocalRandomRequestIdGenerator.INSTANCE;
+  }
+
+  /**
+   * Returns a {@link RequestIdGenerator} using {@link UUID#randomUUID()} for each id.
+   * <p>
+   * {@link UUID#randomUUID()} draws from a {@link java.security.SecureRandom} shared by all the threads:
+   * it is slower than {@link #threadLocalRandomUuid()} under load.
+   *
+   * @return a {@link RequestIdGenerator} using {@link UUID#randomUUID()}
+   */
+  static RequestIdGenerator secureRandomUuid() {
+    return () -> UUID.randomUUID().toString();
+  }
+}
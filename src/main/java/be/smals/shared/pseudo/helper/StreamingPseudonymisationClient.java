@@ -0,0 +1,67 @@
+package be.smals.shared.pseudo.helper;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link PseudonymisationClient} able to send and receive the bodies of the "multiple" endpoints as bytes.
+ * <p>
+ * When the {@link PseudonymisationClient} given to the {@link PseudonymisationHelper} implements this interface,
+ * the requests of the "multiple" operations are written directly in a UTF-8 encoded {@link ByteBuffer},
+ * and the responses are read incrementally from the returned {@link InputStream}:
+ * no intermediate String is created for the whole request or response body.
+ * <p>
+ * Please override the methods of this interface with a streaming implementation (for example, by giving the {@link ByteBuffer} to your HTTP client
+ * and by returning the {@link InputStream} of the response body).
+ * By default, they convert the bodies and call the String based methods of {@link PseudonymisationClient}.
+ * <p>
+ * The returned {@link InputStream} will be closed once the response is processed.
+ */
+@SuppressWarnings("unused")
+public interface StreamingPseudonymisationClient extends PseudonymisationClient {
+
+  // tag::methods[]
+  /**
+   * Calls /pseudo/v1/domains/{domainKey}/identifyMultiple with the given payload and returns a {@link CompletableFuture} of the response body.
+   *
+   * @param domainKey the domain key
+   * @param payload   the UTF-8 encoded request body
+   * @return the response body
+   */
+  default CompletableFuture<InputStream> identifyMultiple(final String domainKey, final ByteBuffer payload) {
+    return identifyMultiple(domainKey, UTF_8.decode(payload).toString()).thenApply(StreamingPseudonymisationClient::toInputStream);
+  }
+
+  /**
+   * Calls /pseudo/v1/domains/{domainKey}/pseudonymizeMultiple with the given payload and returns a {@link CompletableFuture} of the response body.
+   *
+   * @param domainKey the domain key
+   * @param payload   the UTF-8 encoded request body
+   * @return the response body
+   */
+  default CompletableFuture<InputStream> pseudonymizeMultiple(final String domainKey, final ByteBuffer payload) {
+    return pseudonymizeMultiple(domainKey, UTF_8.decode(payload).toString()).thenApply(StreamingPseudonymisationClient::toInputStream);
+  }
+
+  /**
+   * Calls /pseudo/v1/domains/{fromDomainKey}/convertMultipleTo/{toDomainKey} with the given payload
+   * and returns a {@link CompletableFuture} of the response body.
+   *
+   * @param fromDomainKey the domain of the pseudonym to convert
+   * @param toDomainKey   the target domain
+   * @param payload       the UTF-8 encoded request body
+   * @return the response body
+   */
+  default CompletableFuture<InputStream> convertMultipleTo(final String fromDomainKey, final String toDomainKey, final ByteBuffer payload) {
+    return convertMultipleTo(fromDomainKey, toDomainKey, UTF_8.decode(payload).toString()).thenApply(StreamingPseudonymisationClient::toInputStream);
+  }
+  // end::methods[]
+
+  private static InputStream toInputStream(final String response) {
+    return new ByteArrayInputStream(response.getBytes(UTF_8));
+  }
+}
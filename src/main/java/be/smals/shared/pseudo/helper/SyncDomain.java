@@ -0,0 +1,109 @@
+package be.smals.shared.pseudo.helper;
+
+import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
+
+/**
+ * Blocking view of a {@link Domain}.
+ * <p>
+ * Each method of this interface makes the call to eHealth, waits for the response and returns the result directly:
+ * no {@link java.util.concurrent.CompletableFuture} is exposed to the caller,
+ * and the cryptographic operations following the response of eHealth are run on the calling thread, which waits for the result anyway,
+ * instead of being handed over to the compute executor or run on the thread of the HTTP client that receives the response.
+ * If the {@link PseudonymisationClient} is a {@link BlockingPseudonymisationClient} converted with
+ * {@link BlockingPseudonymisationClient#toPseudonymisationClient()}, the blocking call itself is also made on the calling thread.
+ * <p>
+ * This is the API to use from code that is already blocking, typically code running on virtual threads.
+ * <p>
+ * The exceptions are thrown as-is: for example, an {@link EHealthProblemException} is thrown if eHealth returns a problem.
+ * A checked exception (for example an {@link InterruptedException}) is thrown wrapped in a
+ * {@link be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException}.
+ */
+@SuppressWarnings("unused")
+public interface SyncDomain {
+
+  // tag::methods[]
+  /**
+   * Returns the {@link Domain} this {@link SyncDomain} is a view of.
+   *
+   * @return the {@link Domain} this {@link SyncDomain} is a view of
+   */
+  Domain domain();
+
+  /**
+   * Pseudonymise the given {@link Value} and waits for the result.
+   *
+   * @param value the {@link Value} to pseudonymise. It must belong to {@link #domain()}.
+   * @return the {@link PseudonymInTransit}
+   * @see Value#pseudonymize()
+   */
+  PseudonymInTransit pseudonymize(Value value);
+
+  /**
+   * Pseudonymise all the {@link Value}s of the given collection and waits for the result.
+   *
+   * @param values the {@link MultipleValue} to pseudonymise. It must belong to {@link #domain()}.
+   * @return the {@link MultiplePseudonymInTransit}, in the order of {@code values}
+   * @see MultipleValue#pseudonymize()
+   */
+  MultiplePseudonymInTransit pseudonymize(MultipleValue values);
+
+  /**
+   * Identify the given {@link PseudonymInTransit} and waits for the result.
+   *
+   * @param pseudonymInTransit the {@link PseudonymInTransit} to identify. It must belong to {@link #domain()}.
+   * @return the identified {@link Value}
+   * @see PseudonymInTransit#identify()
+   */
+  Value identify(PseudonymInTransit pseudonymInTransit);
+
+  /**
+   * Identify all the {@link PseudonymInTransit}s of the given collection and waits for the result.
+   *
+   * @param pseudonymsInTransit the {@link MultiplePseudonymInTransit} to identify. It must belong to {@link #domain()}.
+   * @return the identified {@link MultipleValue}, in the order of {@code pseudonymsInTransit}
+   * @see MultiplePseudonymInTransit#identify()
+   */
+  MultipleValue identify(MultiplePseudonymInTransit pseudonymsInTransit);
+
+  /**
+   * Convert the given {@link Pseudonym} into a {@link PseudonymInTransit} of {@code toDomain} and waits for the result.
+   *
+   * @param pseudonym the {@link Pseudonym} to convert. It must belong to {@link #domain()}.
+   * @param toDomain  the target domain
+   * @return the {@link PseudonymInTransit} of {@code toDomain}
+   * @see Pseudonym#convertTo(Domain)
+   */
+  PseudonymInTransit convertTo(Pseudonym pseudonym, Domain toDomain);
+
+  /**
+   * Convert the given {@link PseudonymInTransit} into a {@link PseudonymInTransit} of {@code toDomain} and waits for the result.
+   *
+   * @param pseudonymInTransit the {@link PseudonymInTransit} to convert. It must belong to {@link #domain()}.
+   * @param toDomain           the target domain
+   * @return the {@link PseudonymInTransit} of {@code toDomain}
+   * @see PseudonymInTransit#convertTo(Domain)
+   */
+  PseudonymInTransit convertTo(PseudonymInTransit pseudonymInTransit, Domain toDomain);
+
+  /**
+   * Convert all the {@link Pseudonym}s of the given collection into {@link PseudonymInTransit}s of {@code toDomain} and waits for the result.
+   *
+   * @param pseudonyms the {@link MultiplePseudonym} to convert. It must belong to {@link #domain()}.
+   * @param toDomain   the target domain
+   * @return the {@link MultiplePseudonymInTransit} of {@code toDomain}, in the order of {@code pseudonyms}
+   * @see MultiplePseudonym#convertTo(Domain)
+   */
+  MultiplePseudonymInTransit convertTo(MultiplePseudonym pseudonyms, Domain toDomain);
+
+  /**
+   * Convert all the {@link PseudonymInTransit}s of the given collection into {@link PseudonymInTransit}s of {@code toDomain}
+   * and waits for the result.
+   *
+   * @param pseudonymsInTransit the {@link MultiplePseudonymInTransit} to convert. It must belong to {@link #domain()}.
+   * @param toDomain            the target domain
+   * @return the {@link MultiplePseudonymInTransit} of {@code toDomain}, in the order of {@code pseudonymsInTransit}
+   * @see MultiplePseudonymInTransit#convertTo(Domain)
+   */
+  MultiplePseudonymInTransit convertTo(MultiplePseudonymInTransit pseudonymsInTransit, Domain toDomain);
+  // end::methods[]
+}
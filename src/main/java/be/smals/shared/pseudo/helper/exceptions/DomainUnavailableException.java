@@ -0,0 +1,36 @@
+package be.smals.shared.pseudo.helper.exceptions;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a domain cannot be loaded and the next attempt to load it is postponed because of previous failures.
+ * <p>
+ * The cause is the failure of the last attempt.
+ */
+@SuppressWarnings("unused")
+public class DomainUnavailableException extends RuntimeException {
+
+  private final String domainKey;
+  private final int failedAttempts;
+  private final Duration retryIn;
+
+  public DomainUnavailableException(final String domainKey, final int failedAttempts, final Duration retryIn, final Throwable cause) {
+    super("The domain `" + domainKey + "` is unavailable: " + failedAttempts + " consecutive attempt(s) to load it failed, " +
+          "the next attempt will be made in " + retryIn.toMillis() + " ms", cause);
+    this.domainKey = domainKey;
+    this.failedAttempts = failedAttempts;
+    this.retryIn = retryIn;
+  }
+
+  public String getDomainKey() {
+    return domainKey;
+  }
+
+  public int getFailedAttempts() {
+    return failedAttempts;
+  }
+
+  public Duration getRetryIn() {
+    return retryIn;
+  }
+}
@@ -1,12 +1,37 @@
 package be.smals.shared.pseudo.helper.exceptions;
 
+import be.smals.shared.pseudo.helper.ParseError;
+
 public class InvalidPseudonymException extends RuntimeException {
 
+  private final ParseError error;
+
   public InvalidPseudonymException(final String message) {
-    super(message);
+    this(ParseError.INVALID_FORMAT, message, null, true);
   }
 
   public InvalidPseudonymException(final String message, final Exception e) {
-    super(message, e);
+    this(ParseError.INVALID_FORMAT, message, e, true);
+  }
+
+  /**
+   * @param error              the reason why the pseudonym is invalid
+   * @param message            the description of the problem
+   * @param e                  the cause, can be {@code null}
+   * @param writableStackTrace {@code false} to not fill in the stack trace: it is much cheaper to create, which matters when a lot of
+   *                           untrusted inputs are rejected
+   */
+  public InvalidPseudonymException(final ParseError error, final String message, final Exception e, final boolean writableStackTrace) {
+    super(message, e, writableStackTrace, writableStackTrace);
+    this.error = error;
+  }
+
+  /**
+   * Returns the reason why the pseudonym is invalid.
+   *
+   * @return the reason why the pseudonym is invalid
+   */
+  public ParseError getError() {
+    return error;
   }
 }
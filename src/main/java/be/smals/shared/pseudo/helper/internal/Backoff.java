@@ -0,0 +1,38 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff used to space the retries of failed remote calls.
+ */
+public final class Backoff {
+
+  private Backoff() {
+  }
+
+  /**
+   * Returns the delay to wait after {@code consecutiveFailures} consecutive failures:
+   * {@code baseNanos} after the first failure, doubled at each subsequent failure, and capped to {@code maxNanos}.
+   *
+   * @param consecutiveFailures the number of consecutive failures (at least 1)
+   * @param baseNanos           the delay after the first failure, in nanoseconds
+   * @param maxNanos            the maximum delay, in nanoseconds
+   * @return the delay, in nanoseconds
+   */
+  public static long delayNanos(final int consecutiveFailures, final long baseNanos, final long maxNanos) {
+    final var shift = Math.min(Math.max(consecutiveFailures - 1, 0), 62);
+    return Math.min(baseNanos, maxNanos >> shift) << shift;
+  }
+
+  /**
+   * Returns a random delay between the half of {@code delayNanos} and {@code delayNanos},
+   * so that the retries of several clients failing at the same time are spread.
+   *
+   * @param delayNanos the delay, in nanoseconds
+   * @return the delay with jitter, in nanoseconds
+   */
+  public static long withJitter(final long delayNanos) {
+    final var half = delayNanos / 2;
+    return half + ThreadLocalRandom.current().nextLong(delayNanos - half + 1);
+  }
+}
@@ -0,0 +1,196 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import be.smals.shared.pseudo.helper.ParseError;
+import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
+import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Versioned binary format of {@link PseudonymImpl} and {@link PseudonymInTransitImpl}, used between services (message bus, caches...).
+ * <p>
+ * Each record starts with a format byte: its high nibble is the type of the record and its low nibble is the version of the format.
+ * <ul>
+ *   <li>Pseudonym, version 1 ({@code 0x11}): the compressed SEC 1 representation of the point.</li>
+ *   <li>Pseudonym in transit, version 1 ({@code 0x21}): the compressed SEC 1 representation of the point,
+ *   followed by the 5 segments of the JWE compact serialisation of the transit info (header, encrypted key, IV, cipher text and tag).
+ *   Each segment is written as its length (unsigned LEB128 varint) followed by its raw (Base64 URL decoded) bytes.</li>
+ * </ul>
+ * The compressed SEC 1 representation needs no length prefix: its length is given by its first byte and by the curve of the domain.
+ * <p>
+ * The format is round-trip compatible with the String form: the transit info read from a record is the same JWE compact String as
+ * the one that was written.
+ */
+final class BinaryCodec {
+
+  static final byte PSEUDONYM_V1 = 0x11;
+  static final byte PSEUDONYM_IN_TRANSIT_V1 = 0x21;
+
+  private static final int JWE_SEGMENTS = 5;
+  private static final Base64.Encoder base64UrlEncoder = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder base64UrlDecoder = Base64.getUrlDecoder();
+
+  private BinaryCodec() {
+  }
+
+  /**
+   * Writes the given pseudonym in the given buffer. Nothing is written if the buffer is too small.
+   *
+   * @param pseudonym the pseudonym to write
+   * @param buffer    the buffer
+   * @return the number of written bytes
+   * @throws BufferOverflowException if there is not enough remaining space in the given buffer
+   */
+  static int write(final PseudonymImpl pseudonym, final ByteBuffer buffer) throws BufferOverflowException {
+    final var point = pseudonym.ecPoint.getEncoded(true);
+    final var length = 1 + point.length;
+    if (buffer.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+    buffer.put(PSEUDONYM_V1).put(point);
+    return length;
+  }
+
+  /**
+   * Writes the given pseudonym in transit in the given buffer. Nothing is written if the buffer is too small.
+   *
+   * @param pseudonymInTransit the pseudonym in transit to write
+   * @param buffer             the buffer
+   * @return the number of written bytes
+   * @throws BufferOverflowException     if there is not enough remaining space in the given buffer
+   * @throws InvalidTransitInfoException if the transit info is not a JWE compact serialisation with canonical Base64 URL segments
+   */
+  static int write(final PseudonymInTransitImpl pseudonymInTransit, final ByteBuffer buffer) throws BufferOverflowException, InvalidTransitInfoException {
+    final var point = pseudonymInTransit.pseudonym().ecPoint.getEncoded(true);
+    final var segments = encodeSegments(pseudonymInTransit.transitInfo().asString());
+    final var length = 1 + point.length + segments.length;
+    if (buffer.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+    buffer.put(PSEUDONYM_IN_TRANSIT_V1).put(point).put(segments);
+    return length;
+  }
+
+  /**
+   * Reads a pseudonym written by {@link #write(PseudonymImpl, ByteBuffer)}.
+   * If the record is invalid, the position of the buffer is not changed.
+   *
+   * @param factory the factory of the domain of the pseudonym
+   * @param buffer  the buffer
+   * @return the pseudonym
+   * @throws InvalidPseudonymException if the record is invalid or truncated
+   */
+  static PseudonymImpl readPseudonym(final PseudonymFactoryImpl factory, final ByteBuffer buffer) throws InvalidPseudonymException {
+    if (buffer == null) {
+      throw factory.invalid(ParseError.EMPTY, "The binary representation is null", null);
+    }
+    final var start = buffer.position();
+    try {
+      readFormat(factory, buffer, PSEUDONYM_V1);
+      return factory.fromSec1(buffer);
+    } catch (final RuntimeException e) {
+      buffer.position(start);
+      throw e;
+    }
+  }
+
+  /**
+   * Reads a pseudonym in transit written by {@link #write(PseudonymInTransitImpl, ByteBuffer)}.
+   * If the record is invalid, the position of the buffer is not changed.
+   * <p>
+   * Only the structure of the transit info is checked here: it is parsed and decrypted when needed, as for the String form.
+   *
+   * @param factory the pseudonym factory of the domain of the pseudonym in transit
+   * @param buffer  the buffer
+   * @return the pseudonym in transit
+   * @throws InvalidPseudonymException if the record is invalid or truncated
+   */
+  static PseudonymInTransitImpl readPseudonymInTransit(final PseudonymFactoryImpl factory, final ByteBuffer buffer) throws InvalidPseudonymException {
+    if (buffer == null) {
+      throw factory.invalid(ParseError.EMPTY, "The binary representation is null", null);
+    }
+    final var start = buffer.position();
+    try {
+      readFormat(factory, buffer, PSEUDONYM_IN_TRANSIT_V1);
+      final var pseudonym = factory.fromSec1(buffer);
+      final var transitInfo = new StringBuilder(512);
+      for (int i = 0; i < JWE_SEGMENTS; i++) {
+        if (i > 0) {
+          transitInfo.append('.');
+        }
+        final var segment = new byte[readLength(factory, buffer)];
+        buffer.get(segment);
+        transitInfo.append(base64UrlEncoder.encodeToString(segment));
+      }
+      return new PseudonymInTransitImpl(pseudonym, new TransitInfoImpl(factory.domain, transitInfo.toString()));
+    } catch (final RuntimeException e) {
+      buffer.position(start);
+      throw e;
+    }
+  }
+
+  private static void readFormat(final PseudonymFactoryImpl factory, final ByteBuffer buffer, final byte expected) throws InvalidPseudonymException {
+    if (!buffer.hasRemaining()) {
+      throw factory.invalid(ParseError.EMPTY, "The binary representation is empty", null);
+    }
+    final var format = buffer.get();
+    if (format != expected) {
+      throw factory.invalid(ParseError.INVALID_FORMAT, String.format("Unsupported binary format 0x%02x: 0x%02x expected", format, expected), null);
+    }
+  }
+
+  private static int readLength(final PseudonymFactoryImpl factory, final ByteBuffer buffer) throws InvalidPseudonymException {
+    int length = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      if (!buffer.hasRemaining()) {
+        throw factory.invalid(ParseError.TRUNCATED, "The binary representation of the transit info is truncated", null);
+      }
+      final var b = buffer.get();
+      length |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        if (length < 0 || length > buffer.remaining()) {
+          throw factory.invalid(ParseError.TRUNCATED, "The binary representation of the transit info is truncated", null);
+        }
+        return length;
+      }
+    }
+    throw factory.invalid(ParseError.INVALID_FORMAT, "Invalid length in the binary representation of the transit info", null);
+  }
+
+  private static byte[] encodeSegments(final String transitInfo) throws InvalidTransitInfoException {
+    final var out = new ByteArrayOutputStream(transitInfo.length());
+    int from = 0;
+    for (int i = 0; i < JWE_SEGMENTS; i++) {
+      final var to = i < JWE_SEGMENTS - 1 ? transitInfo.indexOf('.', from) : transitInfo.length();
+      if (to < 0 || (i == JWE_SEGMENTS - 1 && transitInfo.indexOf('.', from) >= 0)) {
+        throw new InvalidTransitInfoException("The transit info is not a JWE compact serialisation");
+      }
+      final var segment = transitInfo.substring(from, to);
+      final byte[] bytes;
+      try {
+        bytes = base64UrlDecoder.decode(segment);
+      } catch (final IllegalArgumentException e) {
+        throw new InvalidTransitInfoException("The transit info is not a JWE compact serialisation", e);
+      }
+      // The String form must be restored exactly: the header is the additional authenticated data of the JWE
+      if (!base64UrlEncoder.encodeToString(bytes).equals(segment)) {
+        throw new InvalidTransitInfoException("The transit info contains a non canonical Base64 URL segment");
+      }
+      writeLength(out, bytes.length);
+      out.write(bytes, 0, bytes.length);
+      from = to + 1;
+    }
+    return out.toByteArray();
+  }
+
+  private static void writeLength(final ByteArrayOutputStream out, final int length) {
+    var remaining = length;
+    while ((remaining & ~0x7F) != 0) {
+      out.write((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.write(remaining);
+  }
+}
@@ -0,0 +1,140 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+
+import be.smals.shared.pseudo.helper.BlockingPseudonymisationClient;
+import be.smals.shared.pseudo.helper.PseudonymisationClient;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link PseudonymisationClient} running each call of a {@link BlockingPseudonymisationClient} on an {@link Executor}.
+ */
+public final class BlockingPseudonymisationClientAdapter implements PseudonymisationClient {
+
+  private final BlockingPseudonymisationClient client;
+  private final Executor executor;
+  private volatile BlockingPseudonymisationClientAdapter onCallingThread;
+
+  public BlockingPseudonymisationClientAdapter(final BlockingPseudonymisationClient client, final Executor executor) {
+    this.client = requireNonNull(client, "client cannot be null");
+    this.executor = requireNonNull(executor, "executor cannot be null");
+  }
+
+  /**
+   * Returns the {@link Executor} shared by all the {@link BlockingPseudonymisationClientAdapter}s created without explicit {@link Executor}.
+   * <p>
+   * On Java 21 or later, it starts a new virtual thread for each call.
+   * Otherwise, it is a pool of at most {@code max(64, 8 * availableProcessors)} daemon threads, which are released after one minute of inactivity.
+   *
+   * @return the default {@link Executor}
+   */
+  public static Executor defaultExecutor() {
+    return DefaultExecutor.INSTANCE;
+  }
+
+  /**
+   * Returns the same client, but making each call directly on the calling thread: the returned futures are always completed.
+   * <p>
+   * Used when the calling thread waits for the result anyway (see {@link SyncDomainImpl}): there is no point in handing the call over
+   * to the {@link Executor} of this adapter.
+   *
+   * @return the {@link PseudonymisationClient} making the blocking calls on the calling thread
+   */
+  BlockingPseudonymisationClientAdapter onCallingThread() {
+    var adapter = onCallingThread;
+    if (adapter == null) {
+      adapter = new BlockingPseudonymisationClientAdapter(client, Runnable::run);
+      onCallingThread = adapter;
+    }
+    return adapter;
+  }
+
+  @Override
+  public CompletableFuture<String> getDomain(final String domainKey) {
+    return call("", domainKey, null);
+  }
+
+  @Override
+  public CompletableFuture<String> identify(final String domainKey, final String payload) {
+    return call("identify", domainKey, payload);
+  }
+
+  @Override
+  public CompletableFuture<String> identifyMultiple(final String domainKey, final String payload) {
+    return call("identifyMultiple", domainKey, payload);
+  }
+
+  @Override
+  public CompletableFuture<String> pseudonymize(final String domainKey, final String payload) {
+    return call("pseudonymize", domainKey, payload);
+  }
+
+  @Override
+  public CompletableFuture<String> pseudonymizeMultiple(final String domainKey, final String payload) {
+    return call("pseudonymizeMultiple", domainKey, payload);
+  }
+
+  @Override
+  public CompletableFuture<String> convertTo(final String fromDomainKey, final String toDomainKey, final String payload) {
+    return call("convertTo/" + toDomainKey, fromDomainKey, payload);
+  }
+
+  @Override
+  public CompletableFuture<String> convertMultipleTo(final String fromDomainKey, final String toDomainKey, final String payload) {
+    return call("convertMultipleTo/" + toDomainKey, fromDomainKey, payload);
+  }
+
+  private CompletableFuture<String> call(final String endpoint, final String domainKey, final String payload) {
+    final var future = new CompletableFuture<String>();
+    try {
+      executor.execute(() -> {
+        try {
+          future.complete(client.call(endpoint, domainKey, payload));
+        } catch (final Throwable t) {
+          future.completeExceptionally(t);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      return failedFuture(e);
+    }
+    return future;
+  }
+
+  /**
+   * Lazily created default {@link Executor}.
+   */
+  private static final class DefaultExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultExecutor.class);
+    private static final int MAX_THREADS = Math.max(64, 8 * Runtime.getRuntime().availableProcessors());
+    private static final Executor INSTANCE = create();
+
+    private static Executor create() {
+      try {
+        // Executors.newVirtualThreadPerTaskExecutor() only exists since Java 21
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (final ReflectiveOperationException e) {
+        log.debug("Virtual threads are not available: the blocking calls to eHealth will be made on a pool of {} threads", MAX_THREADS);
+      }
+      final var threadCount = new AtomicInteger();
+      final var pool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+        final var thread = new Thread(runnable, "pseudonymisation-client-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException.throwWrapped;
+import static java.lang.Thread.currentThread;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * {@link Executor} whose tasks are run by the thread waiting in {@link #await(CompletableFuture)}.
+ * <p>
+ * Used by {@link SyncDomainImpl}: the CPU-bound work following the response of eHealth is run on the calling thread,
+ * which waits for the result anyway, instead of on the I/O thread of the HTTP client or on the compute executor.
+ * An instance must only be used for one call.
+ */
+final class CallingThreadExecutor implements Executor {
+
+  private static final Runnable WAKE_UP = () -> {
+  };
+
+  private final LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+
+  @Override
+  public void execute(final Runnable command) {
+    tasks.add(command);
+  }
+
+  /**
+   * Runs the tasks given to this executor until the given future completes, then returns its result.
+   *
+   * @param future the {@link CompletableFuture} to wait for
+   * @param <T>    the type of the result
+   * @return the result of {@code future}, see {@link SyncDomainImpl#await(CompletableFuture)}
+   */
+  <T> T await(final CompletableFuture<T> future) {
+    future.whenComplete((result, e) -> tasks.add(WAKE_UP));
+    try {
+      while (!future.isDone()) {
+        tasks.take().run();
+      }
+    } catch (final InterruptedException e) {
+      currentThread().interrupt();
+      return throwWrapped(e);
+    }
+    return SyncDomainImpl.await(future);
+  }
+}
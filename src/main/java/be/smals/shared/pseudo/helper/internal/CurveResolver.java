@@ -0,0 +1,60 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import java.util.Objects;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.bouncycastle.math.ec.ECCurve;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the name of a curve (the {@code crv} of a domain) to its Bouncy Castle implementation.
+ * <p>
+ * The optimised implementations of {@link CustomNamedCurves} (for example {@code SecP521R1Curve}, which uses fixed-size limb arithmetic)
+ * are preferred. They are only used if their parameters are identical to the ones of {@link ECNamedCurveTable}:
+ * otherwise, or if no custom implementation exists for the curve, the generic implementation of {@link ECNamedCurveTable} is used.
+ */
+public final class CurveResolver {
+
+  private static final Logger log = LoggerFactory.getLogger(CurveResolver.class);
+
+  private CurveResolver() {
+  }
+
+  /**
+   * Returns the {@link ECCurve} to use for the given curve name.
+   *
+   * @param crv the name of the curve (for example {@code P-521})
+   * @return the optimised implementation of the curve if available, the generic implementation otherwise
+   * @throws IllegalArgumentException if the curve is unknown
+   */
+  public static ECCurve resolve(final String crv) {
+    final var generic = ECNamedCurveTable.getParameterSpec(crv);
+    if (generic == null) {
+      throw new IllegalArgumentException("Unknown curve `" + crv + "`");
+    }
+    final var custom = CustomNamedCurves.getByName(crv);
+    if (custom == null) {
+      return generic.getCurve();
+    }
+    if (!isSameCurve(generic, custom)) {
+      log.warn("The optimised implementation of the curve `{}` does not match its standard parameters: the generic implementation will be used", crv);
+      return generic.getCurve();
+    }
+    return custom.getCurve();
+  }
+
+  private static boolean isSameCurve(final ECNamedCurveParameterSpec generic, final X9ECParameters custom) {
+    final var genericCurve = generic.getCurve();
+    final var customCurve = custom.getCurve();
+    return Objects.equals(genericCurve.getField(), customCurve.getField())
+           && Objects.equals(genericCurve.getA().toBigInteger(), customCurve.getA().toBigInteger())
+           && Objects.equals(genericCurve.getB().toBigInteger(), customCurve.getB().toBigInteger())
+           && Objects.equals(genericCurve.getOrder(), customCurve.getOrder())
+           && Objects.equals(genericCurve.getCofactor(), customCurve.getCofactor())
+           && Objects.equals(generic.getG().getAffineXCoord().toBigInteger(), custom.getG().getAffineXCoord().toBigInteger())
+           && Objects.equals(generic.getG().getAffineYCoord().toBigInteger(), custom.getG().getAffineYCoord().toBigInteger());
+  }
+}
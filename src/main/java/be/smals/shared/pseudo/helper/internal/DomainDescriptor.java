@@ -0,0 +1,313 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import com.nimbusds.jose.JWEObjectJSON;
+import com.nimbusds.jose.shaded.gson.JsonParseException;
+import com.nimbusds.jose.shaded.gson.stream.JsonReader;
+import com.nimbusds.jose.shaded.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed view of a domain, as returned by eHealth.
+ * <p>
+ * The domain is read in a single pass with a streaming {@link JsonReader}: only the fields needed by the helper are kept,
+ * the others are skipped without being materialised.
+ * The encrypted secret keys are kept as small JSON objects,
+ * the {@link JWEObjectJSON} is only parsed (with {@link JWEObjectJSON#parse(Map)}) when {@link SecretKeyDescriptor#encoded()} is called.
+ */
+public final class DomainDescriptor {
+
+  private final String key;
+  private final String crv;
+  private final String audience;
+  private final int bufferSize;
+  private final Duration timeToLiveInTransit;
+  private final List<String> jku;
+  private final List<SecretKeyDescriptor> secretKeys;
+
+  private DomainDescriptor(final String key,
+                           final String crv,
+                           final String audience,
+                           final int bufferSize,
+                           final Duration timeToLiveInTransit,
+                           final List<String> jku,
+                           final List<SecretKeyDescriptor> secretKeys) {
+    this.key = key;
+    this.crv = crv;
+    this.audience = audience;
+    this.bufferSize = bufferSize;
+    this.timeToLiveInTransit = timeToLiveInTransit;
+    this.jku = jku;
+    this.secretKeys = secretKeys;
+  }
+
+  /**
+   * @return the key of the domain
+   */
+  public String key() {
+    return key;
+  }
+
+  /**
+   * @return the name of the curve of the domain (for example {@code P-521})
+   */
+  public String crv() {
+    return crv;
+  }
+
+  /**
+   * @return the audience of the domain
+   */
+  public String audience() {
+    return audience;
+  }
+
+  /**
+   * @return the buffer size of the domain
+   */
+  public int bufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return the time to live of the pseudonyms in transit
+   */
+  public Duration timeToLiveInTransit() {
+    return timeToLiveInTransit;
+  }
+
+  /**
+   * @return the unmodifiable list of JWKS URLs that can decrypt the secret keys of the domain (empty if none)
+   */
+  public List<String> jku() {
+    return jku;
+  }
+
+  /**
+   * @return the unmodifiable list of secret keys of the domain, in the order of the eHealth response
+   */
+  public List<SecretKeyDescriptor> secretKeys() {
+    return secretKeys;
+  }
+
+  /**
+   * Parse the given domain.
+   *
+   * @param rawDomain the domain, as returned by eHealth
+   * @return the parsed domain
+   * @throws ParseException if the domain is not valid JSON, or if a mandatory field is missing or invalid
+   */
+  public static DomainDescriptor parse(final String rawDomain) throws ParseException {
+    try {
+      final var reader = new JsonReader(new StringReader(rawDomain));
+      String key = null;
+      String crv = null;
+      String audience = null;
+      Integer bufferSize = null;
+      Duration timeToLiveInTransit = null;
+      List<String> jku = List.of();
+      List<SecretKeyDescriptor> secretKeys = List.of();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "domain":
+            key = nextString(reader);
+            break;
+          case "crv":
+            crv = nextString(reader);
+            break;
+          case "audience":
+            audience = nextString(reader);
+            break;
+          case "bufferSize":
+            bufferSize = reader.nextInt();
+            break;
+          case "timeToLiveInTransit":
+            final var ttl = nextString(reader);
+            timeToLiveInTransit = ttl == null ? null : Duration.parse(ttl);
+            break;
+          case "jku":
+            jku = readStrings(reader);
+            break;
+          case "secretKeys":
+            secretKeys = readSecretKeys(reader);
+            break;
+          default:
+            reader.skipValue();
+        }
+      }
+      reader.endObject();
+      if (key == null || crv == null || bufferSize == null || timeToLiveInTransit == null) {
+        throw new ParseException("Invalid domain: `domain`, `crv`, `bufferSize` and `timeToLiveInTransit` are mandatory", 0);
+      }
+      return new DomainDescriptor(key, crv, audience, bufferSize, timeToLiveInTransit, jku, secretKeys);
+    } catch (final IOException | JsonParseException | IllegalStateException | NumberFormatException | DateTimeParseException e) {
+      final var parseException = new ParseException("Invalid domain: " + e.getMessage(), 0);
+      parseException.initCause(e);
+      throw parseException;
+    }
+  }
+
+  private static List<String> readStrings(final JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return List.of();
+    }
+    final var strings = new ArrayList<String>(2);
+    reader.beginArray();
+    while (reader.hasNext()) {
+      strings.add(reader.nextString());
+    }
+    reader.endArray();
+    return Collections.unmodifiableList(strings);
+  }
+
+  private static List<SecretKeyDescriptor> readSecretKeys(final JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return List.of();
+    }
+    final var secretKeys = new ArrayList<SecretKeyDescriptor>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      String kid = null;
+      boolean active = false;
+      Map<String, Object> encoded = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+        switch (reader.nextName()) {
+          case "kid":
+            kid = nextString(reader);
+            break;
+          case "active":
+            if (reader.peek() == JsonToken.BOOLEAN) {
+              active = reader.nextBoolean();
+            } else {
+              reader.skipValue();
+            }
+            break;
+          case "encoded":
+            encoded = readObject(reader);
+            break;
+          default:
+            reader.skipValue();
+        }
+      }
+      reader.endObject();
+      secretKeys.add(new SecretKeyDescriptor(kid, active, encoded));
+    }
+    reader.endArray();
+    return Collections.unmodifiableList(secretKeys);
+  }
+
+  /**
+   * Reads a (small) JSON object, used for the encrypted secret keys.
+   * <p>
+   * The values have the same types as with {@link com.nimbusds.jose.util.JSONObjectUtils#parse(String)}.
+   */
+  private static Map<String, Object> readObject(final JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    final var object = new LinkedHashMap<String, Object>(4);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      object.put(reader.nextName(), readValue(reader));
+    }
+    reader.endObject();
+    return object;
+  }
+
+  private static Object readValue(final JsonReader reader) throws IOException {
+    switch (reader.peek()) {
+      case BEGIN_OBJECT:
+        return readObject(reader);
+      case BEGIN_ARRAY:
+        final var array = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+          array.add(readValue(reader));
+        }
+        reader.endArray();
+        return array;
+      case NUMBER:
+        final var number = reader.nextString();
+        try {
+          return Long.parseLong(number);
+        } catch (final NumberFormatException e) {
+          return Double.parseDouble(number);
+        }
+      case BOOLEAN:
+        return reader.nextBoolean();
+      case NULL:
+        reader.nextNull();
+        return null;
+      default:
+        return reader.nextString();
+    }
+  }
+
+  private static String nextString(final JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    return reader.nextString();
+  }
+
+  /**
+   * Secret key of a domain.
+   */
+  public static final class SecretKeyDescriptor {
+
+    private final String kid;
+    private final boolean active;
+    private final Map<String, Object> encoded;
+
+    private SecretKeyDescriptor(final String kid, final boolean active, final Map<String, Object> encoded) {
+      this.kid = kid;
+      this.active = active;
+      this.encoded = encoded;
+    }
+
+    /**
+     * @return the kid of the secret key
+     */
+    public String kid() {
+      return kid;
+    }
+
+    /**
+     * @return {@code true} if this secret key is the one to use to encrypt the transit info
+     */
+    public boolean active() {
+      return active;
+    }
+
+    /**
+     * Creates the {@link JWEObjectJSON} containing the encrypted secret key.
+     * <p>
+     * A new {@link JWEObjectJSON} is created at each call since it is mutated by its decryption.
+     * It is created by {@link JWEObjectJSON#parse(Map)}, which checks the JWE (for example, that the protected, unprotected and
+     * per-recipient headers are disjoint).
+     *
+     * @return the encrypted secret key
+     * @throws ParseException if the encrypted secret key is missing or invalid
+     */
+    public JWEObjectJSON encoded() throws ParseException {
+      if (encoded == null) {
+        throw new ParseException("Missing encoded secret key for kid `" + kid + "`", 0);
+      }
+      return JWEObjectJSON.parse(encoded);
+    }
+  }
+}
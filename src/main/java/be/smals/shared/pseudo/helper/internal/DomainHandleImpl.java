@@ -0,0 +1,68 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import be.smals.shared.pseudo.helper.DomainHandle;
+import java.util.concurrent.CompletableFuture;
+
+public final class DomainHandleImpl implements DomainHandle {
+
+  private final String key;
+  private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+  private volatile DomainImpl current;
+
+  public DomainHandleImpl(final String key) {
+    this.key = key;
+  }
+
+  @Override
+  public String key() {
+    return key;
+  }
+
+  @Override
+  public boolean isReady() {
+    return current != null;
+  }
+
+  @Override
+  public DomainImpl current() {
+    final var domain = current;
+    if (domain == null) {
+      throw new IllegalStateException("The domain `" + key + "` is not loaded yet");
+    }
+    return domain;
+  }
+
+  /**
+   * Returns a {@link CompletableFuture} that completes when this handle gets its first version of the domain.
+   *
+   * @return a {@link CompletableFuture} that completes when this handle is ready
+   */
+  public CompletableFuture<Void> loaded() {
+    return loaded;
+  }
+
+  /**
+   * Replaces the current version of the domain by the given one.
+   *
+   * @param domain the new version of the domain
+   */
+  public synchronized void update(final DomainImpl domain) {
+    current = domain;
+    loaded.complete(null);
+  }
+
+  /**
+   * Sets the current version of the domain if this handle has no domain yet.
+   * <p>
+   * Used to initialise the handle with a version of the domain that was loaded before the handle was created:
+   * this version must not replace a more recent one set by {@link #update(DomainImpl)} in the meantime.
+   *
+   * @param domain the version of the domain loaded before the creation of this handle
+   */
+  public synchronized void initialize(final DomainImpl domain) {
+    if (current == null) {
+      current = domain;
+      loaded.complete(null);
+    }
+  }
+}
@@ -1,20 +1,25 @@
 package be.smals.shared.pseudo.helper.internal;
 
 import static java.math.BigInteger.ZERO;
-import static java.util.UUID.randomUUID;
 
 import be.smals.shared.pseudo.helper.Domain;
 import be.smals.shared.pseudo.helper.Pseudonym;
-import be.smals.shared.pseudo.helper.PseudonymInTransit;
 import be.smals.shared.pseudo.helper.PseudonymisationClient;
+import be.smals.shared.pseudo.helper.RequestIdGenerator;
 import be.smals.shared.pseudo.helper.TransitInfo;
 import com.nimbusds.jose.EncryptionMethod;
-import com.nimbusds.jose.shaded.gson.JsonObject;
-import com.nimbusds.jose.shaded.gson.JsonPrimitive;
+import com.nimbusds.jose.shaded.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import javax.crypto.SecretKey;
 import org.bouncycastle.math.ec.ECCurve;
 
@@ -23,6 +28,7 @@ public class DomainImpl implements Domain {
   private final String key;
   private final String crv;
   private final ECCurve curve;
+  private final SquareRootEngine squareRootEngine;
   private final String audience;
   private final int bufferSize;
   private final Map<String, SecretKey> secretKeys;
@@ -34,6 +40,12 @@ public class DomainImpl implements Domain {
   private final PseudonymFactoryImpl pseudonymFactory;
   private final PseudonymInTransitFactoryImpl pseudonymInTransitFactory;
   private final SecureRandom secureRandom;
+  private final Executor computeExecutor;
+  private final int parallelThreshold;
+  private final BiFunction<String, String, SecretKey> unknownKidResolver;
+  private final RequestIdGenerator requestIdGenerator;
+  // Lazily created (racy single-check: it is immutable, creating it more than once is harmless)
+  private TransitInfoTemplate transitInfoTemplate;
 
   public DomainImpl(final String key,
                     final String crv,
@@ -45,10 +57,40 @@ public class DomainImpl implements Domain {
                     final EncryptionMethod activeKeyEncryptionMethod,
                     final Duration inTransitTtl,
                     final PseudonymisationClient pseudonymisationClient,
-                    final SecureRandom secureRandom) {
+                    final SecureRandom secureRandom,
+                    final Executor computeExecutor,
+                    final int parallelThreshold) {
+    this(key, crv, curve, audience, bufferSize, secretKeys, activeKid, activeKeyEncryptionMethod, inTransitTtl, pseudonymisationClient,
+         secureRandom, computeExecutor, parallelThreshold, null, RequestIdGenerator.threadLocalRandomUuid(), false);
+  }
+
+  /**
+   * @param unknownKidResolver called with the key of this domain and a kid unknown by this domain, to get the secret key from a refreshed
+   *                           version of the domain. It returns {@code null} if the kid is still unknown. Can be {@code null}.
+   * @param requestIdGenerator the {@link RequestIdGenerator} of the ids of the inputs sent to eHealth
+   * @param stacklessValidationExceptions {@code true} to not fill in the stack traces of the
+   *                           {@link be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException}s thrown by the factories
+   */
+  public DomainImpl(final String key,
+                    final String crv,
+                    final ECCurve curve,
+                    final String audience,
+                    final int bufferSize,
+                    final Map<String, SecretKey> secretKeys,
+                    final String activeKid,
+                    final EncryptionMethod activeKeyEncryptionMethod,
+                    final Duration inTransitTtl,
+                    final PseudonymisationClient pseudonymisationClient,
+                    final SecureRandom secureRandom,
+                    final Executor computeExecutor,
+                    final int parallelThreshold,
+                    final BiFunction<String, String, SecretKey> unknownKidResolver,
+                    final RequestIdGenerator requestIdGenerator,
+                    final boolean stacklessValidationExceptions) {
     this.key = key;
     this.crv = crv;
     this.curve = curve;
+    this.squareRootEngine = SquareRootEngine.forCurve(curve);
     this.audience = audience;
     this.bufferSize = bufferSize;
     this.secretKeys = secretKeys;
@@ -57,9 +99,13 @@ public class DomainImpl implements Domain {
     this.inTransitTtl = inTransitTtl;
     this.pseudonymisationClient = pseudonymisationClient;
     this.valueFactory = new ValueFactoryImpl(this);
-    this.pseudonymFactory = new PseudonymFactoryImpl(this);
-    this.pseudonymInTransitFactory = new PseudonymInTransitFactoryImpl(this);
+    this.pseudonymFactory = new PseudonymFactoryImpl(this, stacklessValidationExceptions);
+    this.pseudonymInTransitFactory = new PseudonymInTransitFactoryImpl(this, pseudonymFactory);
     this.secureRandom = secureRandom;
+    this.computeExecutor = computeExecutor;
+    this.parallelThreshold = parallelThreshold;
+    this.unknownKidResolver = unknownKidResolver;
+    this.requestIdGenerator = requestIdGenerator;
   }
 
   @Override
@@ -67,10 +113,22 @@ public class DomainImpl implements Domain {
     return key;
   }
 
-  ECCurve curve() {
+  /**
+   * Returns the implementation of the curve of this domain.
+   * <p>
+   * It is the optimised implementation of Bouncy Castle (for example {@code SecP521R1Curve}) when available.
+   *
+   * @return the curve of this domain
+   * @see CurveResolver
+   */
+  public ECCurve curve() {
     return curve;
   }
 
+  SquareRootEngine squareRootEngine() {
+    return squareRootEngine;
+  }
+
   String audience() {
     return audience;
   }
@@ -83,6 +141,35 @@ public class DomainImpl implements Domain {
     return secretKeys;
   }
 
+  /**
+   * Returns the decrypted secret key with the given kid.
+   * <p>
+   * Used when the domain is refreshed to reuse the secret keys that were already decrypted.
+   *
+   * @param kid the kid of the secret key
+   * @return the secret key or {@code null} if this domain does not know this kid
+   */
+  public SecretKey secretKey(final String kid) {
+    return kid == null || secretKeys == null ? null : secretKeys.get(kid);
+  }
+
+  /**
+   * Returns the secret key with the given kid, from this domain or, if this domain does not know this kid, from a refreshed version of it.
+   * <p>
+   * The refreshed version is only looked for if the {@link be.smals.shared.pseudo.helper.PseudonymisationHelper} is configured to
+   * refresh the domains on unknown kids: this method may then block until the refresh completes.
+   *
+   * @param kid the kid of the secret key
+   * @return the secret key or {@code null} if the kid is unknown
+   */
+  SecretKey resolveSecretKey(final String kid) {
+    final var secretKey = secretKey(kid);
+    if (secretKey != null || kid == null || unknownKidResolver == null) {
+      return secretKey;
+    }
+    return unknownKidResolver.apply(key, kid);
+  }
+
   /**
    * Returns the active kid.
    *
@@ -101,32 +188,140 @@ public class DomainImpl implements Domain {
     return inTransitTtl;
   }
 
+  SecureRandom secureRandom() {
+    return secureRandom;
+  }
+
+  /**
+   * Returns the template of the {@link TransitInfo}s encrypted with the active secret key of this domain.
+   * <p>
+   * A refresh of the domain creates a new {@link DomainImpl}, and therefore a new template.
+   *
+   * @return the template of the {@link TransitInfo}s of this domain
+   * @throws IllegalStateException    if this domain has no active kid
+   * @throws IllegalArgumentException if the active secret key is not available
+   */
+  TransitInfoTemplate transitInfoTemplate() {
+    var template = transitInfoTemplate;
+    if (template == null) {
+      template = TransitInfoTemplate.create(this);
+      transitInfoTemplate = template;
+    }
+    return template;
+  }
+
+  /**
+   * Returns the {@link Executor} on which the cryptographic operations of large batches are split.
+   *
+   * @return the {@link Executor} or {@code null} if the batches must always be processed on the calling thread
+   */
+  Executor computeExecutor() {
+    return computeExecutor;
+  }
+
+  /**
+   * Applies {@code fn} to the result of {@code future} on the compute executor.
+   * <p>
+   * This prevents the CPU-bound work (unblinding, parsing and decryption of the transit info...) from running on the thread
+   * that completed {@code future}, which is typically an I/O thread of the HTTP client.
+   * If this domain has no compute executor, {@code fn} is applied with {@link CompletableFuture#thenApply(Function)}.
+   *
+   * @param future the future returned by the {@link PseudonymisationClient}
+   * @param fn     the CPU-bound function to apply
+   * @param <T>    the type of the result of {@code future}
+   * @param <U>    the type of the result of {@code fn}
+   * @return the {@link CompletableFuture} of the result of {@code fn}
+   */
+  <T, U> CompletableFuture<U> thenCompute(final CompletableFuture<T> future, final Function<? super T, ? extends U> fn) {
+    return thenCompute(future, fn, null);
+  }
+
+  /**
+   * Same as {@link #thenCompute(CompletableFuture, Function)}, but if {@code callingThread} is not {@code null}, {@code fn} is applied
+   * on the thread waiting for the result (see {@link SyncDomainImpl}) instead of the compute executor:
+   * directly if {@code future} is already completed, otherwise by {@code callingThread} once {@code future} completes.
+   * In both cases, {@code fn} never runs on the thread that completed {@code future}.
+   *
+   * @param future        the future returned by the {@link PseudonymisationClient}
+   * @param fn            the CPU-bound function to apply
+   * @param callingThread the {@link CallingThreadExecutor} of the thread waiting for the result, or {@code null}
+   * @param <T>           the type of the result of {@code future}
+   * @param <U>           the type of the result of {@code fn}
+   * @return the {@link CompletableFuture} of the result of {@code fn}
+   */
+  <T, U> CompletableFuture<U> thenCompute(final CompletableFuture<T> future,
+                                          final Function<? super T, ? extends U> fn,
+                                          final CallingThreadExecutor callingThread) {
+    if (callingThread != null) {
+      return future.isDone() ? future.thenApply(fn) : future.thenApplyAsync(fn, callingThread);
+    }
+    return computeExecutor == null ? future.thenApply(fn) : future.thenApplyAsync(fn, computeExecutor);
+  }
+
+  /**
+   * Returns the minimum size of a batch for its cryptographic operations to be split on {@link #computeExecutor()}.
+   *
+   * @return the threshold
+   */
+  int parallelThreshold() {
+    return parallelThreshold;
+  }
+
+  RequestIdGenerator requestIdGenerator() {
+    return requestIdGenerator;
+  }
+
   PseudonymisationClient pseudonymisationClient() {
     return pseudonymisationClient;
   }
 
-  String createPayloadString(final Pseudonym pseudonym) {
-    return createPayload(pseudonym, null).toString();
+  /**
+   * Returns the {@link PseudonymisationClient} to use for a call to eHealth.
+   * <p>
+   * If {@code callingThread} is not {@code null} and the client is a {@link BlockingPseudonymisationClientAdapter}, the blocking call
+   * is made directly on the calling thread, which waits for the result anyway, instead of on the executor of the adapter.
+   *
+   * @param callingThread the {@link CallingThreadExecutor} of the thread waiting for the result of the call, or {@code null}
+   * @return the {@link PseudonymisationClient} to use
+   */
+  PseudonymisationClient pseudonymisationClient(final CallingThreadExecutor callingThread) {
+    return callingThread != null && pseudonymisationClient instanceof BlockingPseudonymisationClientAdapter
+           ? ((BlockingPseudonymisationClientAdapter) pseudonymisationClient).onCallingThread()
+           : pseudonymisationClient;
   }
 
-  String createPayloadString(final Pseudonym pseudonym, final String transitInfo) {
-    return createPayload(pseudonym, transitInfo).toString();
+  String createPayloadString(final Pseudonym pseudonym) {
+    return createPayloadString(pseudonym, null);
   }
 
-  JsonObject createPayload(final Pseudonym pseudonym) {
-    return createPayload(pseudonym, pseudonym instanceof PseudonymInTransit ? ((PseudonymInTransit) pseudonym).transitInfo().asString() : null);
+  String createPayloadString(final Pseudonym pseudonym, final String transitInfo) {
+    final var out = new StringWriter(512);
+    try {
+      writePayload(new JsonWriter(out), requestIdGenerator.nextId(), pseudonym, transitInfo);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toString();
   }
 
-  JsonObject createPayload(final Pseudonym pseudonym, final String transitInfo) {
-    final var payload = new JsonObject();
-    payload.add("id", new JsonPrimitive(randomUUID().toString()));
-    payload.add("crv", new JsonPrimitive(crv));
-    payload.add("x", new JsonPrimitive(pseudonym.x()));
-    payload.add("y", new JsonPrimitive(pseudonym.y()));
+  /**
+   * Writes the payload for the given pseudonym in the given {@link JsonWriter}.
+   *
+   * @param writer      the {@link JsonWriter} in which to write the payload
+   * @param id          the id of the payload
+   * @param pseudonym   the pseudonym to write
+   * @param transitInfo the transit info or {@code null} if there is no transit info
+   */
+  void writePayload(final JsonWriter writer, final String id, final Pseudonym pseudonym, final String transitInfo) throws IOException {
+    writer.beginObject();
+    writer.name("id").value(id);
+    writer.name("crv").value(crv);
+    writer.name("x").value(pseudonym.x());
+    writer.name("y").value(pseudonym.y());
     if (transitInfo != null) {
-      payload.add("transitInfo", new JsonPrimitive(transitInfo));
+      writer.name("transitInfo").value(transitInfo);
     }
-    return payload;
+    writer.endObject();
   }
 
   BigInteger createRandom() {
@@ -64,4 +64,10 @@ public class EHealthProblemImpl implements EHealthProblem {
                                   "Unable to parse the response from eHealth." +
                                   "Response was: \n" + rawResponse);
   }
+
+  static EHealthProblemImpl fromUnparseableResponse(final Exception cause) {
+    return new EHealthProblemImpl("urn:problem-type:smals:pseudo-helper:unparseable-result",
+                                  "Unparseable Result", "undefined",
+                                  "Unable to parse the response from eHealth: " + cause.getMessage());
+  }
 }
@@ -0,0 +1,49 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import be.smals.shared.pseudo.helper.ComputeMetrics;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Executor} that measures the queueing delay of the tasks it gives to its delegate.
+ */
+public final class InstrumentedExecutor implements Executor, ComputeMetrics {
+
+  private final Executor delegate;
+  private final LongAdder startedTasks = new LongAdder();
+  private final LongAdder totalQueueingDelayNanos = new LongAdder();
+  private final LongAccumulator maxQueueingDelayNanos = new LongAccumulator(Math::max, 0);
+
+  public InstrumentedExecutor(final Executor delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    final var submittedAt = System.nanoTime();
+    delegate.execute(() -> {
+      final var queueingDelay = System.nanoTime() - submittedAt;
+      startedTasks.increment();
+      totalQueueingDelayNanos.add(queueingDelay);
+      maxQueueingDelayNanos.accumulate(queueingDelay);
+      command.run();
+    });
+  }
+
+  @Override
+  public long startedTasks() {
+    return startedTasks.sum();
+  }
+
+  @Override
+  public Duration totalQueueingDelay() {
+    return Duration.ofNanos(totalQueueingDelayNanos.sum());
+  }
+
+  @Override
+  public Duration maxQueueingDelay() {
+    return Duration.ofNanos(maxQueueingDelayNanos.get());
+  }
+}
@@ -0,0 +1,172 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import be.smals.shared.pseudo.helper.JwksMetrics;
+import be.smals.shared.pseudo.helper.utils.ThrowingFunction;
+import com.nimbusds.jose.jwk.JWKSet;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Holds the {@link CompletableFuture} of the JSON Web Key Set (JWKS) and coalesces its refreshes.
+ * <p>
+ * At most one call to the JWKS supplier is in flight at any time: all the refresh requests made while a call is in flight share its result.
+ * Besides, a refresh request only calls the JWKS supplier if the last call was made at least {@code minRefreshInterval} ago.
+ * After consecutive failures, this interval is doubled at each failure (starting from one second if {@code minRefreshInterval} is shorter),
+ * up to {@link #MAX_BACKOFF} (or {@code minRefreshInterval} if it is longer).
+ */
+public final class JwksCache implements JwksMetrics {
+
+  /**
+   * Maximum interval between two calls to the JWKS supplier after failures.
+   */
+  static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+  private final Supplier<CompletableFuture<String>> jwksSupplier;
+  private final long minRefreshIntervalNanos;
+  private final LongSupplier nanoTime;
+  private final LongAdder refreshes = new LongAdder();
+  private final LongAdder failedRefreshes = new LongAdder();
+  private final LongAdder skippedRefreshes = new LongAdder();
+  private volatile CompletableFuture<JWKSet> jwkSet;
+  private volatile Long loadedAtNanos;
+  // Guarded by this
+  private long lastRefreshNanos;
+  // Guarded by this
+  private int consecutiveFailures;
+
+  /**
+   * @param jwksSupplier       the {@link Supplier} of the JWKS, or {@code null} if no JWKS is available
+   * @param minRefreshInterval the minimum interval between two calls to {@code jwksSupplier}
+   */
+  public JwksCache(final Supplier<CompletableFuture<String>> jwksSupplier, final Duration minRefreshInterval) {
+    this(jwksSupplier, minRefreshInterval, System::nanoTime);
+  }
+
+  JwksCache(final Supplier<CompletableFuture<String>> jwksSupplier, final Duration minRefreshInterval, final LongSupplier nanoTime) {
+    this.jwksSupplier = jwksSupplier;
+    this.minRefreshIntervalNanos = minRefreshInterval.toNanos();
+    this.nanoTime = nanoTime;
+    if (jwksSupplier == null) {
+      jwkSet = failedFuture(new NullPointerException("`jwksSupplier` cannot be null if you need to encrypt/decrypt transit info"));
+    } else {
+      synchronized (this) {
+        startRefresh();
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link CompletableFuture} of the current JWKS.
+   * <p>
+   * If it completed exceptionally, a refresh is requested first (subject to the backoff).
+   *
+   * @return the {@link CompletableFuture} of the current {@link JWKSet}
+   */
+  public CompletableFuture<JWKSet> get() {
+    final var current = jwkSet;
+    return current.isCompletedExceptionally() ? refresh() : current;
+  }
+
+  /**
+   * Requests a refresh of the JWKS, for example because a key is missing.
+   * <p>
+   * The JWKS supplier is not called if a refresh is already in flight or if the last refresh is more recent than the minimum interval
+   * (or than the backoff after failures): in these cases, the current {@link CompletableFuture} is returned.
+   *
+   * @return the {@link CompletableFuture} of the refreshed {@link JWKSet}, or of the current one if the refresh was skipped
+   */
+  public synchronized CompletableFuture<JWKSet> refresh() {
+    if (jwksSupplier == null) {
+      return jwkSet;
+    }
+    if (!jwkSet.isDone() || nanoTime.getAsLong() - lastRefreshNanos < currentIntervalNanos()) {
+      skippedRefreshes.increment();
+      return jwkSet;
+    }
+    return startRefresh();
+  }
+
+  /**
+   * Refreshes the JWKS regardless of the minimum interval and of the backoff, unless a refresh is already in flight.
+   *
+   * @return the {@link CompletableFuture} of the refreshed {@link JWKSet}
+   */
+  public synchronized CompletableFuture<JWKSet> forceRefresh() {
+    if (jwksSupplier == null) {
+      return jwkSet;
+    }
+    if (!jwkSet.isDone()) {
+      skippedRefreshes.increment();
+      return jwkSet;
+    }
+    return startRefresh();
+  }
+
+  @Override
+  public long refreshes() {
+    return refreshes.sum();
+  }
+
+  @Override
+  public long failedRefreshes() {
+    return failedRefreshes.sum();
+  }
+
+  @Override
+  public long skippedRefreshes() {
+    return skippedRefreshes.sum();
+  }
+
+  @Override
+  public Optional<Duration> age() {
+    final var loadedAt = loadedAtNanos;
+    return loadedAt == null ? Optional.empty() : Optional.of(Duration.ofNanos(nanoTime.getAsLong() - loadedAt));
+  }
+
+  private long currentIntervalNanos() {
+    if (consecutiveFailures == 0) {
+      return minRefreshIntervalNanos;
+    }
+    final var base = Math.max(minRefreshIntervalNanos, SECONDS.toNanos(1));
+    return Math.max(minRefreshIntervalNanos, Backoff.delayNanos(consecutiveFailures, base, MAX_BACKOFF.toNanos()));
+  }
+
+  private CompletableFuture<JWKSet> startRefresh() {
+    lastRefreshNanos = nanoTime.getAsLong();
+    refreshes.increment();
+    CompletableFuture<String> rawJwks;
+    try {
+      rawJwks = jwksSupplier.get();
+    } catch (final RuntimeException e) {
+      rawJwks = failedFuture(e);
+    }
+    final var future = new CompletableFuture<JWKSet>();
+    jwkSet = future;
+    rawJwks.orTimeout(5, SECONDS)
+           .thenApply(ThrowingFunction.sneaky(JWKSet::parse))
+           .whenComplete((jwks, e) -> {
+             synchronized (this) {
+               if (e == null) {
+                 consecutiveFailures = 0;
+                 loadedAtNanos = nanoTime.getAsLong();
+               } else {
+                 consecutiveFailures++;
+                 failedRefreshes.increment();
+               }
+             }
+             if (e == null) {
+               future.complete(jwks);
+             } else {
+               future.completeExceptionally(e);
+             }
+           });
+    return future;
+  }
+}
@@ -0,0 +1,235 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import be.smals.shared.pseudo.helper.Pseudonym;
+import be.smals.shared.pseudo.helper.StreamingPseudonymisationClient;
+import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
+import com.nimbusds.jose.shaded.gson.JsonElement;
+import com.nimbusds.jose.shaded.gson.JsonObject;
+import com.nimbusds.jose.shaded.gson.JsonParseException;
+import com.nimbusds.jose.shaded.gson.JsonParser;
+import com.nimbusds.jose.shaded.gson.stream.JsonReader;
+import com.nimbusds.jose.shaded.gson.stream.JsonToken;
+import com.nimbusds.jose.shaded.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Streaming codec for the request and the response of the "multiple" endpoints.
+ * <p>
+ * The inputs are written one by one in the request body, without building a JSON tree of the whole request.
+ * The outputs are read one by one from the response body: only the JSON object of the output being processed is kept in memory.
+ * <p>
+ * If the {@link be.smals.shared.pseudo.helper.PseudonymisationClient} of the domain is a {@link StreamingPseudonymisationClient},
+ * the request is written in a UTF-8 {@link ByteBuffer} and the response is read from an {@link InputStream}.
+ * Otherwise, String bodies are used.
+ * <p>
+ * The ids of the inputs are generated by the {@link be.smals.shared.pseudo.helper.RequestIdGenerator#batch()} of the domain.
+ */
+final class MultiplePayload {
+
+  private final DomainImpl domain;
+  private final ByteArrayOutputStream bytes;
+  private final Writer out;
+  private final JsonWriter writer;
+  private final Supplier<String> ids;
+
+  MultiplePayload(final DomainImpl domain) {
+    this.domain = domain;
+    this.ids = domain.requestIdGenerator().batch();
+    if (domain.pseudonymisationClient() instanceof StreamingPseudonymisationClient) {
+      bytes = new ByteArrayOutputStream(1024);
+      out = new OutputStreamWriter(bytes, UTF_8);
+    } else {
+      bytes = null;
+      out = new StringWriter(1024);
+    }
+    writer = new JsonWriter(out);
+    try {
+      writer.beginObject().name("inputs").beginArray();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Add an input to the request.
+   *
+   * @param pseudonym   the (blinded) pseudonym to send
+   * @param transitInfo the transit info to send or {@code null} if there is no transit info
+   */
+  void add(final Pseudonym pseudonym, final String transitInfo) {
+    try {
+      domain.writePayload(writer, ids.get(), pseudonym, transitInfo);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Terminates the request and sends it by calling the appropriate method of the {@link be.smals.shared.pseudo.helper.PseudonymisationClient}.
+   *
+   * @param stringCall    the call to make if the client only supports String bodies
+   * @param streamingCall the call to make if the client is a {@link StreamingPseudonymisationClient}
+   * @return a {@link CompletableFuture} of the {@link Reader} of the response
+   */
+  CompletableFuture<Reader> send(final Function<String, CompletableFuture<String>> stringCall,
+                                 final BiFunction<StreamingPseudonymisationClient, ByteBuffer, CompletableFuture<InputStream>> streamingCall) {
+    try {
+      writer.endArray().endObject();
+      writer.flush();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (bytes == null) {
+      return stringCall.apply(out.toString()).thenApply(StringReader::new);
+    }
+    final var client = (StreamingPseudonymisationClient) domain.pseudonymisationClient();
+    return streamingCall.apply(client, ByteBuffer.wrap(bytes.toByteArray()))
+                        .thenApply(inputStream -> new InputStreamReader(inputStream, UTF_8));
+  }
+
+  /**
+   * Reads the {@code outputs} of the given response, one by one.
+   * <p>
+   * If the response does not contain any {@code outputs} (because eHealth returned a problem for the whole request),
+   * an {@link EHealthProblemException} is thrown.
+   * <p>
+   * The exceptions thrown by the {@code consumer} are propagated as is.
+   *
+   * @param response     the {@link Reader} of the response: it will be closed by this method
+   * @param expectedSize the number of inputs sent in the request
+   * @param consumer     the {@link OutputConsumer} that will receive each output
+   * @throws EHealthProblemException if the response cannot be parsed, if it does not contain exactly {@code expectedSize} outputs,
+   *                                 or if the response is a problem
+   */
+  static void readOutputs(final Reader response, final int expectedSize, final OutputConsumer consumer) throws EHealthProblemException {
+    try (response) {
+      final var outputs = new OutputReader(response);
+      int index = 0;
+      JsonObject output;
+      while ((output = outputs.next()) != null) {
+        if (index == expectedSize) {
+          throw unparseable(new JsonParseException("Response sent by eHealth is invalid: " + expectedSize + " outputs expected but more received"));
+        }
+        consumer.accept(index++, output);
+      }
+      if (index < expectedSize) {
+        throw unparseable(new JsonParseException("Response sent by eHealth is invalid: " +
+                                                 expectedSize + " outputs expected but " + index + " received"));
+      }
+    } catch (final IOException e) {
+      throw unparseable(e);
+    }
+  }
+
+  /**
+   * Reads all the {@code outputs} of the given response.
+   *
+   * @param response     the {@link Reader} of the response: it will be closed by this method
+   * @param expectedSize the number of inputs sent in the request
+   * @return the outputs, in the order of the inputs
+   * @throws EHealthProblemException if the response cannot be parsed or if the response is a problem
+   * @see #readOutputs(Reader, int, OutputConsumer)
+   */
+  static JsonObject[] readOutputs(final Reader response, final int expectedSize) throws EHealthProblemException {
+    final var outputs = new JsonObject[expectedSize];
+    readOutputs(response, expectedSize, (index, output) -> outputs[index] = output);
+    return outputs;
+  }
+
+  private static EHealthProblemException unparseable(final Exception cause) {
+    return new EHealthProblemException(EHealthProblemImpl.fromUnparseableResponse(cause), cause);
+  }
+
+  /**
+   * Reads the {@code outputs} of a response with a {@link JsonReader}.
+   * <p>
+   * All the calls to the {@link JsonReader} are made here, so that only the parsing errors are converted into
+   * {@link EHealthProblemException}s.
+   */
+  private static final class OutputReader {
+
+    private final JsonReader reader;
+
+    /**
+     * Reads the response until the beginning of its {@code outputs}.
+     *
+     * @throws EHealthProblemException if the response cannot be parsed or if the response is a problem
+     */
+    private OutputReader(final Reader response) throws EHealthProblemException {
+      reader = new JsonReader(response);
+      final var others = new JsonObject();
+      try {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          final var name = reader.nextName();
+          if ("outputs".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            return;
+          }
+          others.add(name, JsonParser.parseReader(reader));
+        }
+        reader.endObject();
+      } catch (final IOException | JsonParseException | IllegalStateException e) {
+        throw unparseable(e);
+      }
+      throw new EHealthProblemException(EHealthProblemImpl.fromResponse(others));
+    }
+
+    /**
+     * Returns the next output, or {@code null} if all the outputs have been read (the rest of the response is then read).
+     *
+     * @throws EHealthProblemException if the response cannot be parsed
+     */
+    private JsonObject next() throws EHealthProblemException {
+      try {
+        if (reader.hasNext()) {
+          final JsonElement output = JsonParser.parseReader(reader);
+          if (!output.isJsonObject()) {
+            throw new JsonParseException("Output is not a JSON object: " + output);
+          }
+          return output.getAsJsonObject();
+        }
+        reader.endArray();
+        while (reader.hasNext()) {
+          reader.nextName();
+          reader.skipValue();
+        }
+        reader.endObject();
+        return null;
+      } catch (final IOException | JsonParseException | IllegalStateException e) {
+        throw unparseable(e);
+      }
+    }
+  }
+
+  /**
+   * Receives the outputs read by {@link #readOutputs(Reader, int, OutputConsumer)}.
+   */
+  @FunctionalInterface
+  interface OutputConsumer {
+
+    /**
+     * Process an output.
+     *
+     * @param index  the index of the output (which is also the index of the matching input)
+     * @param output the output
+     */
+    void accept(int index, JsonObject output) throws EHealthProblemException;
+  }
+}
@@ -3,8 +3,12 @@ package be.smals.shared.pseudo.helper.internal;
 import be.smals.shared.pseudo.helper.MultiplePoint;
 import be.smals.shared.pseudo.helper.Point;
 import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import org.bouncycastle.math.ec.ECPoint;
 
 public abstract class MultiplePointImpl<T extends Point> implements MultiplePoint<T> {
 
@@ -17,7 +21,6 @@ public abstract class MultiplePointImpl<T extends Point> implements MultiplePoin
   }
 
   MultiplePointImpl(final DomainImpl domain, final Collection<?> points) {
-    checkCollectionSize(points.size());
     this.domain = domain;
     this.points = new ArrayList<>(points);
   }
@@ -34,29 +37,152 @@ public abstract class MultiplePointImpl<T extends Point> implements MultiplePoin
 
   @Override
   public boolean add(final T point) {
-    checkCollectionSize(points.size() + 1);
     return points.add(validate(point));
   }
 
   void add(final EHealthProblemImpl problem) {
-    checkCollectionSize(points.size() + 1);
     points.add(problem);
   }
 
+  /**
+   * Adds the error of a local batch operation (for example an {@link be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException}):
+   * it will be thrown by {@link #get(int)}.
+   *
+   * @param error the error to add
+   */
+  void add(final RuntimeException error) {
+    points.add(error);
+  }
+
+  /**
+   * Adds a {@link Point}, an {@link EHealthProblemImpl} or the error of a local batch operation.
+   *
+   * @param pointOrProblem the {@link Point}, the {@link EHealthProblemImpl} or the {@link RuntimeException} to add
+   */
+  @SuppressWarnings("unchecked")
+  void addPointOrProblem(final Object pointOrProblem) {
+    if (pointOrProblem instanceof EHealthProblemImpl) {
+      add((EHealthProblemImpl) pointOrProblem);
+    } else if (pointOrProblem instanceof RuntimeException) {
+      add((RuntimeException) pointOrProblem);
+    } else {
+      add((T) pointOrProblem);
+    }
+  }
+
   @Override
   public T get(final int index) throws EHealthProblemException {
     final var pointOrProblem = points.get(index);
     if (pointOrProblem instanceof EHealthProblemImpl) {
       throw new EHealthProblemException((EHealthProblemImpl) pointOrProblem);
     }
+    if (pointOrProblem instanceof RuntimeException) {
+      throw (RuntimeException) pointOrProblem;
+    }
     //noinspection unchecked
     return (T) pointOrProblem;
   }
 
   /**
-   * Checks if given size is a valid size.
+   * Returns the indexes of the entries of the given type.
+   * <p>
+   * The other entries are the problems returned by eHealth or the errors of a previous batch operation:
+   * they are not processed again, but passed through to the result (see {@link #addAllTo(MultiplePointImpl, int[], List)}).
+   *
+   * @param type the type of the entries to process
+   * @return the indexes of these entries, in ascending order
+   */
+  int[] indexesOf(final Class<?> type) {
+    final var indexes = new int[points.size()];
+    int nbIndexes = 0;
+    for (int i = 0; i < points.size(); i++) {
+      if (type.isInstance(points.get(i))) {
+        indexes[nbIndexes++] = i;
+      }
+    }
+    return Arrays.copyOf(indexes, nbIndexes);
+  }
+
+  /**
+   * Adds to {@code target}, in the order of this collection, the results of the entries at the given indexes
+   * and the other entries (problems and errors) as is.
+   *
+   * @param target  the collection to fill
+   * @param indexes the indexes of the processed entries, see {@link #indexesOf(Class)}
+   * @param results the results of the processed entries, in the order of {@code indexes}
+   */
+  void addAllTo(final MultiplePointImpl<?> target, final int[] indexes, final List<?> results) {
+    int next = 0;
+    for (int i = 0; i < points.size(); i++) {
+      if (next < indexes.length && indexes[next] == i) {
+        target.addPointOrProblem(results.get(next++));
+      } else {
+        target.addPointOrProblem(points.get(i));
+      }
+    }
+  }
+
+  /**
+   * Inverts all the given scalars modulo {@code modulus} with a single modular inversion (Montgomery's trick).
+   *
+   * @param scalars the scalars to invert, all invertible modulo {@code modulus}
+   * @param modulus the modulus (the order of the curve)
+   * @return the inverses, in the order of {@code scalars}
+   */
+  static BigInteger[] modInverseAll(final BigInteger[] scalars, final BigInteger modulus) {
+    final var inverses = new BigInteger[scalars.length];
+    if (scalars.length == 0) {
+      return inverses;
+    }
+    // inverses[i] first holds the product of scalars[0..i]
+    inverses[0] = scalars[0];
+    for (int i = 1; i < scalars.length; i++) {
+      inverses[i] = inverses[i - 1].multiply(scalars[i]).mod(modulus);
+    }
+    var inverse = inverses[scalars.length - 1].modInverse(modulus);
+    for (int i = scalars.length - 1; i > 0; i--) {
+      inverses[i] = inverse.multiply(inverses[i - 1]).mod(modulus);
+      inverse = inverse.multiply(scalars[i]).mod(modulus);
+    }
+    inverses[0] = inverse;
+    return inverses;
+  }
+
+  /**
+   * Normalises all the {@link ECPoint}s of the given results with a single field inversion,
+   * and replaces them by {@link PseudonymImpl}s of the given domain. The other results are kept as is.
+   *
+   * @param domain  the domain of the points
+   * @param results the results of a batch: {@link ECPoint}s, problems or errors
+   * @return the results, in the same order, with {@link PseudonymImpl}s instead of {@link ECPoint}s
+   */
+  static List<Object> normalizeAll(final DomainImpl domain, final List<?> results) {
+    final var ecPoints = new ArrayList<ECPoint>(results.size());
+    for (final var result : results) {
+      if (result instanceof ECPoint) {
+        ecPoints.add((ECPoint) result);
+      }
+    }
+    final var normalized = ecPoints.toArray(new ECPoint[0]);
+    if (normalized.length > 0) {
+      domain.curve().normalizeAll(normalized);
+    }
+    final var pseudonyms = new ArrayList<>(results.size());
+    int next = 0;
+    for (final var result : results) {
+      pseudonyms.add(result instanceof ECPoint ? new PseudonymImpl(normalized[next++], domain) : result);
+    }
+    return pseudonyms;
+  }
+
+  /**
+   * Checks if a collection of the given size can be sent to eHealth, which accepts at most 10 elements per call.
+   * <p>
+   * Only the operations calling eHealth are limited: the local operations (for example {@code inTransit()} and {@code atRest()})
+   * accept collections of any size.
    *
    * @param size the size to validate
+   * @throws IllegalArgumentException if the collection is too large to be sent to eHealth
    */
   abstract void checkCollectionSize(final int size);
 
@@ -7,9 +7,8 @@ import be.smals.shared.pseudo.helper.Domain;
 import be.smals.shared.pseudo.helper.MultiplePseudonym;
 import be.smals.shared.pseudo.helper.Pseudonym;
 import be.smals.shared.pseudo.helper.PseudonymInTransit;
+import be.smals.shared.pseudo.helper.TransitInfoCustomizer;
 import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
-import com.nimbusds.jose.shaded.gson.JsonArray;
-import com.nimbusds.jose.shaded.gson.JsonObject;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,16 +27,31 @@ public final class MultiplePseudonymImpl extends MultiplePointImpl<Pseudonym> im
 
   @Override
   public CompletableFuture<MultiplePseudonymInTransitImpl> convertTo(final Domain toDomain) {
+    return convertTo(toDomain, null);
+  }
 
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #convertTo(Domain)
+   */
+  CompletableFuture<MultiplePseudonymInTransitImpl> convertTo(final Domain toDomain, final CallingThreadExecutor callingThread) {
+    checkCollectionSize(points.size());
     if (points.isEmpty()) {
       return completedFuture(new MultiplePseudonymInTransitImpl(domain));
     }
 
-    final var nbPseudonyms = points.size();
-    if (nbPseudonyms == 1) {
-      @SuppressWarnings("SuspiciousToArrayCall")
-      final var pseudonym = points.toArray(new Pseudonym[1])[0];
-      return pseudonym.convertTo(toDomain)
+    // The problems and errors of a previous operation are not sent to eHealth
+    final var indexes = indexesOf(PseudonymImpl.class);
+    final var nbPseudonyms = indexes.length;
+    if (nbPseudonyms == 0) {
+      final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(toDomain);
+      addAllTo(pseudonymsInTransit, indexes, List.of());
+      return completedFuture(pseudonymsInTransit);
+    }
+    if (points.size() == 1) {
+      final var pseudonym = (PseudonymImpl) points.get(0);
+      return pseudonym.convertTo(toDomain, callingThread)
                       .thenApply(pseudonymInTransit -> new MultiplePseudonymInTransitImpl(toDomain, List.of(pseudonymInTransit)))
                       .exceptionally(throwable -> {
                         if (throwable instanceof EHealthProblemException) {
@@ -47,37 +61,74 @@ public final class MultiplePseudonymImpl extends MultiplePointImpl<Pseudonym> im
                       });
     }
 
-    final var randoms = new ArrayList<BigInteger>(nbPseudonyms);
-    final var payload = new JsonObject();
-    final var inputs = new JsonArray();
-    payload.add("inputs", inputs);
-    for (int i = 0; i < nbPseudonyms; i++) {
+    final var randoms = new BigInteger[nbPseudonyms];
+    final var blindedPseudonyms = ParallelBatch.map(domain, nbPseudonyms, i -> {
       final var random = domain.createRandom();
-      inputs.add(domain.createPayload(((PseudonymImpl) points.get(i)).multiply(random)));
-      randoms.add(random);
+      randoms[i] = random;
+      return ((PseudonymImpl) points.get(indexes[i])).multiply(random);
+    });
+    final var payload = new MultiplePayload(domain);
+    for (final var blindedPseudonym : blindedPseudonyms) {
+      payload.add(blindedPseudonym, null);
+    }
+    final var client = domain.pseudonymisationClient(callingThread);
+    return domain.thenCompute(payload.send(rawPayload -> client.convertMultipleTo(domain.key(), toDomain.key(), rawPayload),
+                                           (streamingClient, rawPayload) -> streamingClient.convertMultipleTo(domain.key(), toDomain.key(), rawPayload)),
+                              response -> {
+                                final var outputs = MultiplePayload.readOutputs(response, nbPseudonyms);
+                                final var pseudonymInTransitFactory = (PseudonymInTransitFactoryImpl) toDomain.pseudonymInTransitFactory();
+                                final var results = ParallelBatch.map(domain, nbPseudonyms, i -> {
+                                  try {
+                                    return pseudonymInTransitFactory.fromResponse(outputs[i], randoms[i]);
+                                  } catch (final EHealthProblemException e) {
+                                    return e.getProblem();
+                                  }
+                                });
+                                final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(toDomain);
+                                addAllTo(pseudonymsInTransit, indexes, results);
+                                return pseudonymsInTransit;
+                              },
+                              callingThread);
+  }
+
+  @Override
+  public MultiplePseudonymInTransitImpl inTransit() {
+    return inTransit(PseudonymImpl.NO_OP_TRANSIT_INFO_CUSTOMIZER);
+  }
+
+  @Override
+  public MultiplePseudonymInTransitImpl inTransit(final TransitInfoCustomizer transitInfoCustomizer) {
+    final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(domain);
+    if (points.isEmpty()) {
+      return pseudonymsInTransit;
+    }
+    // The problems and errors of a previous operation are passed through
+    final var indexes = indexesOf(PseudonymImpl.class);
+    final var nbPseudonyms = indexes.length;
+    final var template = domain.transitInfoTemplate();
+    final var randoms = new BigInteger[nbPseudonyms];
+    for (int i = 0; i < nbPseudonyms; i++) {
+      randoms[i] = domain.createRandom();
+    }
+    final var randomModInverses = modInverseAll(randoms, domain.curve().getOrder());
+    final var transitInfos = new TransitInfoImpl[nbPseudonyms];
+    final var blindedPoints = ParallelBatch.map(domain, nbPseudonyms, i -> {
+      transitInfos[i] = template.create(randoms[i], transitInfoCustomizer);
+      return ((PseudonymImpl) points.get(indexes[i])).ecPoint.multiply(randomModInverses[i]);
+    });
+    final var blindedPseudonyms = normalizeAll(domain, blindedPoints);
+    final var results = new ArrayList<PseudonymInTransitImpl>(nbPseudonyms);
+    for (int i = 0; i < nbPseudonyms; i++) {
+      results.add(new PseudonymInTransitImpl((PseudonymImpl) blindedPseudonyms.get(i), transitInfos[i], (Pseudonym) points.get(indexes[i])));
     }
-    return domain.pseudonymisationClient()
-                 .convertMultipleTo(domain.key(), toDomain.key(), payload.toString())
-                 .thenApply(rawResponse -> {
-                   final var response = JSonHelper.parse(rawResponse);
-                   final var outputs = (JsonArray) response.get("outputs");
-                   final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(toDomain);
-                   final var pseudonymInTransitFactory = (PseudonymInTransitFactoryImpl) toDomain.pseudonymInTransitFactory();
-                   for (int i = 0; i < nbPseudonyms; i++) {
-                     try {
-                       pseudonymsInTransit.add(pseudonymInTransitFactory.fromResponse((JsonObject) outputs.get(i), randoms.get(i)));
-                     } catch (final EHealthProblemException e) {
-                       pseudonymsInTransit.add((EHealthProblemImpl) e.getProblem());
-                     }
-                   }
-                   return pseudonymsInTransit;
-                 });
+    addAllTo(pseudonymsInTransit, indexes, results);
+    return pseudonymsInTransit;
   }
 
   @Override
   void checkCollectionSize(final int size) {
     if (size > 10) {
-      throw new IllegalArgumentException("The number of pseudonyms in this collection must be less or equal to 10");
+      throw new IllegalArgumentException("The number of pseudonyms sent to eHealth in one call must be less or equal to 10");
     }
   }
 
@@ -7,13 +7,13 @@ import be.smals.shared.pseudo.helper.Domain;
 import be.smals.shared.pseudo.helper.MultiplePseudonymInTransit;
 import be.smals.shared.pseudo.helper.PseudonymInTransit;
 import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
-import com.nimbusds.jose.shaded.gson.JsonArray;
-import com.nimbusds.jose.shaded.gson.JsonObject;
+import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
+import com.nimbusds.jose.JWEDecrypter;
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class MultiplePseudonymInTransitImpl extends MultiplePointImpl<PseudonymInTransit> implements MultiplePseudonymInTransit {
 
@@ -27,17 +27,31 @@ public final class MultiplePseudonymInTransitImpl extends MultiplePointImpl<Pseu
 
   @Override
   public CompletableFuture<MultiplePseudonymInTransitImpl> convertTo(final Domain toDomain) {
+    return convertTo(toDomain, null);
+  }
 
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #convertTo(Domain)
+   */
+  CompletableFuture<MultiplePseudonymInTransitImpl> convertTo(final Domain toDomain, final CallingThreadExecutor callingThread) {
+    checkCollectionSize(points.size());
     if (points.isEmpty()) {
       return completedFuture(new MultiplePseudonymInTransitImpl(domain));
     }
 
-    final var nbPseudonymsInTransit = points.size();
-    if (nbPseudonymsInTransit == 1) {
-      @SuppressWarnings("SuspiciousToArrayCall")
-      final var pseudonymInTransitToConvert = points.toArray(new PseudonymInTransit[1])[0];
-      return pseudonymInTransitToConvert
-                 .convertTo(toDomain)
+    // The problems and errors of a previous operation are not sent to eHealth
+    final var indexes = indexesOf(PseudonymInTransitImpl.class);
+    final var nbPseudonymsInTransit = indexes.length;
+    if (nbPseudonymsInTransit == 0) {
+      final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(toDomain);
+      addAllTo(pseudonymsInTransit, indexes, List.of());
+      return completedFuture(pseudonymsInTransit);
+    }
+    if (points.size() == 1) {
+      return ((PseudonymInTransitImpl) points.get(0))
+                 .convertTo(toDomain, callingThread)
                  .thenApply(pseudonymInTransit -> new MultiplePseudonymInTransitImpl(toDomain, List.of(pseudonymInTransit)))
                  .exceptionally(throwable -> {
                    if (throwable instanceof EHealthProblemException) {
@@ -47,47 +61,63 @@ public final class MultiplePseudonymInTransitImpl extends MultiplePointImpl<Pseu
                  });
     }
 
-    final var randoms = new ArrayList<BigInteger>(nbPseudonymsInTransit);
-    final var payload = new JsonObject();
-    final var inputs = new JsonArray();
-    payload.add("inputs", inputs);
-    for (int i = 0; i < nbPseudonymsInTransit; i++) {
+    final var randoms = new BigInteger[nbPseudonymsInTransit];
+    final var blindedPseudonyms = ParallelBatch.map(domain, nbPseudonymsInTransit, i -> {
       final var random = domain.createRandom();
-      final var pseudonymInTransit = (PseudonymInTransitImpl) points.get(i);
-      inputs.add(domain.createPayload(pseudonymInTransit.pseudonym().multiply(random), pseudonymInTransit.transitInfo().asString()));
-      randoms.add(random);
+      randoms[i] = random;
+      return ((PseudonymInTransitImpl) points.get(indexes[i])).pseudonym().multiply(random);
+    });
+    final var payload = new MultiplePayload(domain);
+    for (int i = 0; i < nbPseudonymsInTransit; i++) {
+      payload.add(blindedPseudonyms.get(i), ((PseudonymInTransitImpl) points.get(indexes[i])).transitInfo().asString());
     }
-    return domain.pseudonymisationClient()
-                 .convertMultipleTo(domain.key(), toDomain.key(), payload.toString())
-                 .thenApply(rawResponse -> {
-                   final var response = JSonHelper.parse(rawResponse);
-                   final var outputs = (JsonArray) response.get("outputs");
-                   final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(toDomain);
-                   final var pseudonymInTransitFactory = (PseudonymInTransitFactoryImpl) toDomain.pseudonymInTransitFactory();
-                   for (int i = 0; i < nbPseudonymsInTransit; i++) {
-                     try {
-                       pseudonymsInTransit.add(pseudonymInTransitFactory.fromResponse((JsonObject) outputs.get(i), randoms.get(i)));
-                     } catch (final EHealthProblemException e) {
-                       pseudonymsInTransit.add((EHealthProblemImpl) e.getProblem());
-                     }
-                   }
-                   return pseudonymsInTransit;
-                 });
+    final var client = domain.pseudonymisationClient(callingThread);
+    return domain.thenCompute(payload.send(rawPayload -> client.convertMultipleTo(domain.key(), toDomain.key(), rawPayload),
+                                           (streamingClient, rawPayload) -> streamingClient.convertMultipleTo(domain.key(), toDomain.key(), rawPayload)),
+                              response -> {
+                                final var outputs = MultiplePayload.readOutputs(response, nbPseudonymsInTransit);
+                                final var pseudonymInTransitFactory = (PseudonymInTransitFactoryImpl) toDomain.pseudonymInTransitFactory();
+                                final var results = ParallelBatch.map(domain, nbPseudonymsInTransit, i -> {
+                                  try {
+                                    return pseudonymInTransitFactory.fromResponse(outputs[i], randoms[i]);
+                                  } catch (final EHealthProblemException e) {
+                                    return e.getProblem();
+                                  }
+                                });
+                                final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(toDomain);
+                                addAllTo(pseudonymsInTransit, indexes, results);
+                                return pseudonymsInTransit;
+                              },
+                              callingThread);
   }
 
   @Override
   public CompletableFuture<MultipleValueImpl> identify() {
+    return identify(null);
+  }
 
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #identify()
+   */
+  CompletableFuture<MultipleValueImpl> identify(final CallingThreadExecutor callingThread) {
+    checkCollectionSize(points.size());
     if (points.isEmpty()) {
       return completedFuture(new MultipleValueImpl(domain));
     }
 
-    final var nbPseudonymsInTransit = points.size();
-    if (nbPseudonymsInTransit == 1) {
-      @SuppressWarnings("SuspiciousToArrayCall")
-      final var pseudonymInTransitToIdentify = points.toArray(new PseudonymInTransit[0])[0];
-      return pseudonymInTransitToIdentify
-                 .identify()
+    // The problems and errors of a previous operation are not sent to eHealth
+    final var indexes = indexesOf(PseudonymInTransitImpl.class);
+    final var nbPseudonymsInTransit = indexes.length;
+    if (nbPseudonymsInTransit == 0) {
+      final var values = new MultipleValueImpl(domain);
+      addAllTo(values, indexes, List.of());
+      return completedFuture(values);
+    }
+    if (points.size() == 1) {
+      return ((PseudonymInTransitImpl) points.get(0))
+                 .identify(callingThread)
                  .thenApply(value -> new MultipleValueImpl(domain, List.of(value)))
                  .exceptionally(throwable -> {
                    if (throwable instanceof EHealthProblemException) {
@@ -97,38 +127,70 @@ public final class MultiplePseudonymInTransitImpl extends MultiplePointImpl<Pseu
                  });
     }
 
-    final var randoms = new ArrayList<BigInteger>(nbPseudonymsInTransit);
-    final var payload = new JsonObject();
-    final var inputs = new JsonArray();
-    payload.add("inputs", inputs);
-    for (int i = 0; i < nbPseudonymsInTransit; i++) {
+    final var randoms = new BigInteger[nbPseudonymsInTransit];
+    final var blindedPseudonyms = ParallelBatch.map(domain, nbPseudonymsInTransit, i -> {
       final var random = domain.createRandom();
-      final var pseudonymInTransit = (PseudonymInTransitImpl) points.get(i);
-      inputs.add(domain.createPayload(pseudonymInTransit.pseudonym().multiply(random), pseudonymInTransit.transitInfo().asString()));
-      randoms.add(random);
+      randoms[i] = random;
+      return ((PseudonymInTransitImpl) points.get(indexes[i])).pseudonym().multiply(random);
+    });
+    final var payload = new MultiplePayload(domain);
+    for (int i = 0; i < nbPseudonymsInTransit; i++) {
+      payload.add(blindedPseudonyms.get(i), ((PseudonymInTransitImpl) points.get(indexes[i])).transitInfo().asString());
     }
-    return domain.pseudonymisationClient()
-                 .identifyMultiple(domain.key(), payload.toString())
-                 .thenApply(rawResponse -> {
-                   final var response = JSonHelper.parse(rawResponse);
-                   final var outputs = (JsonArray) response.get("outputs");
-                   final var values = new MultipleValueImpl(domain);
-                   final var pseudonymFactory = domain.pseudonymFactory();
-                   for (int i = 0; i < nbPseudonymsInTransit; i++) {
-                     try {
-                       values.add(pseudonymFactory.fromResponse((JsonObject) outputs.get(i), randoms.get(i)).asValue());
-                     } catch (final EHealthProblemException e) {
-                       values.add((EHealthProblemImpl) e.getProblem());
-                     }
-                   }
-                   return values;
-                 });
+    final var client = domain.pseudonymisationClient(callingThread);
+    return domain.thenCompute(payload.send(rawPayload -> client.identifyMultiple(domain.key(), rawPayload),
+                                           (streamingClient, rawPayload) -> streamingClient.identifyMultiple(domain.key(), rawPayload)),
+                              response -> {
+                                final var outputs = MultiplePayload.readOutputs(response, nbPseudonymsInTransit);
+                                final var pseudonymFactory = domain.pseudonymFactory();
+                                final var results = ParallelBatch.map(domain, nbPseudonymsInTransit, i -> {
+                                  try {
+                                    return pseudonymFactory.fromResponse(outputs[i], randoms[i]).asValue();
+                                  } catch (final EHealthProblemException e) {
+                                    return e.getProblem();
+                                  }
+                                });
+                                final var values = new MultipleValueImpl(domain);
+                                addAllTo(values, indexes, results);
+                                return values;
+                              },
+                              callingThread);
+  }
+
+  @Override
+  public MultiplePseudonymImpl atRest() {
+    return atRest(true);
+  }
+
+  @Override
+  public MultiplePseudonymImpl atRest(final boolean validateIatAndExp) {
+    final var pseudonyms = new MultiplePseudonymImpl(domain);
+    if (points.isEmpty()) {
+      return pseudonyms;
+    }
+    // One decrypter per kid for the whole batch
+    final var decrypters = new ConcurrentHashMap<String, JWEDecrypter>(4);
+    final var results = ParallelBatch.map(domain, points.size(), i -> {
+      final var point = points.get(i);
+      if (!(point instanceof PseudonymInTransitImpl)) {
+        // Problem returned by eHealth or error of a previous batch operation
+        return point;
+      }
+      final var pseudonymInTransit = (PseudonymInTransitImpl) point;
+      try {
+        return pseudonymInTransit.pseudonym().ecPoint.multiply(pseudonymInTransit.scalar(validateIatAndExp, decrypters));
+      } catch (final InvalidTransitInfoException e) {
+        return e;
+      }
+    });
+    normalizeAll(domain, results).forEach(pseudonyms::addPointOrProblem);
+    return pseudonyms;
   }
 
   @Override
   void checkCollectionSize(final int size) {
     if (size > 10) {
-      throw new IllegalArgumentException("The number of pseudonyms in transit in this collection must be less or equal to 10");
+      throw new IllegalArgumentException("The number of pseudonyms in transit sent to eHealth in one call must be less or equal to 10");
     }
   }
 
@@ -5,10 +5,7 @@ import static java.util.concurrent.CompletableFuture.completedFuture;
 import be.smals.shared.pseudo.helper.Domain;
 import be.smals.shared.pseudo.helper.MultipleValue;
 import be.smals.shared.pseudo.helper.Value;
-import com.nimbusds.jose.shaded.gson.JsonArray;
-import com.nimbusds.jose.shaded.gson.JsonObject;
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -25,51 +22,66 @@ public final class MultipleValueImpl extends MultiplePointImpl<Value> implements
 
   @Override
   public CompletableFuture<MultiplePseudonymInTransitImpl> pseudonymize() {
+    return pseudonymize(null);
+  }
 
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #pseudonymize()
+   */
+  CompletableFuture<MultiplePseudonymInTransitImpl> pseudonymize(final CallingThreadExecutor callingThread) {
+    checkCollectionSize(points.size());
     if (points.isEmpty()) {
       return completedFuture(new MultiplePseudonymInTransitImpl(domain));
     }
 
-    final var nbValues = points.size();
-    if (nbValues == 1) {
-      @SuppressWarnings("SuspiciousToArrayCall")
-      final var value = points.toArray(new Value[1])[0];
-      return value.pseudonymize()
+    // The problems and errors of a previous operation are not sent to eHealth
+    final var indexes = indexesOf(ValueImpl.class);
+    final var nbValues = indexes.length;
+    if (nbValues == 0) {
+      final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(domain);
+      addAllTo(pseudonymsInTransit, indexes, List.of());
+      return completedFuture(pseudonymsInTransit);
+    }
+    if (points.size() == 1) {
+      return ((ValueImpl) points.get(0)).pseudonymize(callingThread)
                   .thenApply(pseudonymInTransit -> new MultiplePseudonymInTransitImpl(domain, List.of(pseudonymInTransit)));
     }
 
-    final var randoms = new ArrayList<BigInteger>(nbValues);
-    final var payload = new JsonObject();
-    final var inputs = new JsonArray();
-    payload.add("inputs", inputs);
-    for (int i = 0; i < nbValues; i++) {
+    final var randoms = new BigInteger[nbValues];
+    final var blindedValues = ParallelBatch.map(domain, nbValues, i -> {
       final var random = domain.createRandom();
-      inputs.add(domain.createPayload(((ValueImpl) points.get(i)).multiply(random)));
-      randoms.add(random);
+      randoms[i] = random;
+      return ((ValueImpl) points.get(indexes[i])).multiply(random);
+    });
+    final var payload = new MultiplePayload(domain);
+    for (final var blindedValue : blindedValues) {
+      payload.add(blindedValue, null);
     }
-    return domain.pseudonymisationClient()
-                 .pseudonymizeMultiple(domain.key(), payload.toString())
-                 .thenApply(rawResponse -> {
-                   final var response = JSonHelper.parse(rawResponse);
-                   final var outputs = (JsonArray) response.get("outputs");
-                   final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(domain);
-                   final var pseudonymInTransitFactory = domain.pseudonymInTransitFactory();
-                   for (int i = 0; i < nbValues; i++) {
-                     final var output = (JsonObject) outputs.get(i);
-                     if (pseudonymInTransitFactory.isAcceptableResponse(output)) {
-                       pseudonymsInTransit.add(pseudonymInTransitFactory.fromResponse(output, randoms.get(i)));
-                     } else {
-                       pseudonymsInTransit.add(EHealthProblemImpl.fromResponse(output));
-                     }
-                   }
-                   return pseudonymsInTransit;
-                 });
+    final var client = domain.pseudonymisationClient(callingThread);
+    return domain.thenCompute(payload.send(rawPayload -> client.pseudonymizeMultiple(domain.key(), rawPayload),
+                                           (streamingClient, rawPayload) -> streamingClient.pseudonymizeMultiple(domain.key(), rawPayload)),
+                              response -> {
+                                final var outputs = MultiplePayload.readOutputs(response, nbValues);
+                                final var pseudonymInTransitFactory = domain.pseudonymInTransitFactory();
+                                final var results = ParallelBatch.map(domain, nbValues, i -> {
+                                  final var output = outputs[i];
+                                  return pseudonymInTransitFactory.isAcceptableResponse(output)
+                                         ? pseudonymInTransitFactory.fromResponse(output, randoms[i])
+                                         : EHealthProblemImpl.fromResponse(output);
+                                });
+                                final var pseudonymsInTransit = new MultiplePseudonymInTransitImpl(domain);
+                                addAllTo(pseudonymsInTransit, indexes, results);
+                                return pseudonymsInTransit;
+                              },
+                              callingThread);
   }
 
   @Override
   protected void checkCollectionSize(final int size) {
     if (size > 10) {
-      throw new IllegalArgumentException("The number of values in this collection must be less or equal to 10");
+      throw new IllegalArgumentException("The number of values sent to eHealth in one call must be less or equal to 10");
     }
   }
 
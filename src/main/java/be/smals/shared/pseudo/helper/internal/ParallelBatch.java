@@ -0,0 +1,120 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException.throwWrapped;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+
+/**
+ * Runs the cryptographic operations of a batch, possibly in parallel on the compute {@link java.util.concurrent.Executor} of the domain.
+ * <p>
+ * If the batch is smaller than {@link DomainImpl#parallelThreshold()}, or if the domain has no compute executor,
+ * all the operations are run on the calling thread.
+ * Otherwise, the batch is split in contiguous chunks which are submitted to the compute executor.
+ * The calling thread also processes the chunks that are not yet started by the executor:
+ * it never waits for a chunk that is still in the queue of the executor,
+ * so this method cannot deadlock even when it is itself called from a thread of the compute executor.
+ */
+final class ParallelBatch {
+
+  private ParallelBatch() {
+  }
+
+  /**
+   * Applies {@code task} to each index from {@code 0} (inclusive) to {@code size} (exclusive).
+   * <p>
+   * If a task throws an exception, this exception is rethrown by this method once all the chunks are done.
+   *
+   * @param domain the domain of the batch
+   * @param size   the size of the batch
+   * @param task   the task to apply to each index
+   * @param <T>    the type of the results
+   * @return the results, in the order of the indexes
+   */
+  static <T> List<T> map(final DomainImpl domain, final int size, final IntFunction<T> task) {
+    final var results = new Object[size];
+    final var executor = domain.computeExecutor();
+    final var nbChunks = Math.min(size, Runtime.getRuntime().availableProcessors());
+    if (executor == null || size < domain.parallelThreshold() || nbChunks < 2) {
+      for (int i = 0; i < size; i++) {
+        results[i] = task.apply(i);
+      }
+      return asList(results);
+    }
+    final var chunks = new ArrayList<Chunk>(nbChunks);
+    for (int i = 0; i < nbChunks; i++) {
+      chunks.add(new Chunk(results, i * size / nbChunks, (i + 1) * size / nbChunks, task));
+    }
+    // The first chunk is always processed by the calling thread
+    for (int i = 1; i < nbChunks; i++) {
+      try {
+        executor.execute(chunks.get(i));
+      } catch (final RejectedExecutionException e) {
+        // The chunk will be processed by the calling thread
+      }
+    }
+    for (final var chunk : chunks) {
+      chunk.run();
+    }
+    RuntimeException exception = null;
+    for (final var chunk : chunks) {
+      try {
+        chunk.done.join();
+      } catch (final CompletionException e) {
+        if (exception == null) {
+          exception = e;
+        }
+      }
+    }
+    if (exception != null) {
+      return throwWrapped(exception.getCause() == null ? exception : exception.getCause());
+    }
+    return asList(results);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> asList(final Object[] results) {
+    return (List<T>) Arrays.asList(results);
+  }
+
+  /**
+   * Contiguous part of a batch, processed by the first thread that claims it.
+   */
+  private static final class Chunk implements Runnable {
+
+    private final Object[] results;
+    private final int from;
+    private final int to;
+    private final IntFunction<?> task;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private Chunk(final Object[] results, final int from, final int to, final IntFunction<?> task) {
+      this.results = results;
+      this.from = from;
+      this.to = to;
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      if (!claimed.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        for (int i = from; i < to; i++) {
+          results[i] = task.apply(i);
+        }
+        done.complete(null);
+      } catch (final Throwable t) {
+        done.completeExceptionally(t);
+      }
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package be.smals.shared.pseudo.helper.internal;
 
 import be.smals.shared.pseudo.helper.Domain;
+import be.smals.shared.pseudo.helper.ParseResult;
+import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
+import java.util.function.Supplier;
 
 public abstract class PointFactory {
 
@@ -9,4 +12,19 @@ public abstract class PointFactory {
   protected PointFactory(final Domain domain) {
     this.domain = (DomainImpl) domain;
   }
+
+  /**
+   * Runs the given parser and converts the {@link InvalidPseudonymException} it throws into an invalid {@link ParseResult}.
+   *
+   * @param parser the parser, which should throw stackless exceptions
+   * @param <T>    the type of the parsed value
+   * @return the {@link ParseResult}
+   */
+  protected static <T> ParseResult<T> tryParse(final Supplier<? extends T> parser) {
+    try {
+      return ParseResult.valid(parser.get());
+    } catch (final InvalidPseudonymException e) {
+      return ParseResult.invalid(e.getError(), e.getMessage());
+    }
+  }
 }
@@ -5,6 +5,7 @@ import be.smals.shared.pseudo.helper.Point;
 import be.smals.shared.pseudo.helper.PseudonymInTransit;
 import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Objects;
 import org.bouncycastle.math.ec.ECCurve;
@@ -15,6 +16,12 @@ public abstract class PointImpl implements Point {
 
   protected final ECPoint ecPoint;
   protected final DomainImpl domain;
+  /**
+   * Cached hash code, lazily computed by {@link #hashCode()} ({@code 0} means not computed yet).
+   * <p>
+   * Racy single-check: this point is immutable, so computing the hash code more than once is harmless.
+   */
+  private int hash;
 
   protected PointImpl(final ECPoint ecPoint, final Domain domain) {
     this.ecPoint = ecPoint;
@@ -26,6 +33,16 @@ public abstract class PointImpl implements Point {
     return domain;
   }
 
+  @Override
+  public byte[] xBytes() {
+    return ecPoint.getXCoord().getEncoded();
+  }
+
+  @Override
+  public byte[] yBytes() {
+    return ecPoint.getYCoord().getEncoded();
+  }
+
   /**
    * Indicates whether some other object is "equal to" this one.
    * <p>
@@ -50,9 +67,21 @@ public abstract class PointImpl implements Point {
     return Objects.equals(ecPoint.getXCoord(), atRest.ecPoint.getXCoord());
   }
 
+  /**
+   * Returns a hash code derived from the bytes of the X coordinate and from the domain key.
+   * <p>
+   * It is computed once and cached.
+   *
+   * @return a hash code value for this {@link Point}
+   */
   @Override
   public int hashCode() {
-    return Objects.hash(ecPoint.getXCoord(), domain.key());
+    var h = hash;
+    if (h == 0) {
+      h = 31 * Arrays.hashCode(ecPoint.getXCoord().getEncoded()) + Objects.hashCode(domain.key());
+      hash = h;
+    }
+    return h;
   }
 
   @Override
@@ -1,9 +1,10 @@
 package be.smals.shared.pseudo.helper.internal;
 
-import static be.smals.shared.pseudo.helper.internal.PointImpl.computeY;
 import static java.util.Objects.requireNonNull;
 
 import be.smals.shared.pseudo.helper.Domain;
+import be.smals.shared.pseudo.helper.ParseError;
+import be.smals.shared.pseudo.helper.ParseResult;
 import be.smals.shared.pseudo.helper.Pseudonym;
 import be.smals.shared.pseudo.helper.PseudonymFactory;
 import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
@@ -11,31 +12,44 @@ import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
 import com.nimbusds.jose.shaded.gson.JsonElement;
 import com.nimbusds.jose.shaded.gson.JsonObject;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Optional;
+import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECPoint;
 
 public class PseudonymFactoryImpl extends PointFactory implements PseudonymFactory {
 
-  PseudonymFactoryImpl(final Domain domain) {
+  private final boolean stacklessExceptions;
+  /**
+   * Same factory, but with stackless exceptions: used by the {@code tryFrom*} methods, whose exceptions never reach the caller.
+   */
+  private final PseudonymFactoryImpl stackless;
+
+  /**
+   * @param stacklessExceptions {@code true} to not fill in the stack traces of the thrown {@link InvalidPseudonymException}s
+   */
+  PseudonymFactoryImpl(final Domain domain, final boolean stacklessExceptions) {
     super(domain);
+    this.stacklessExceptions = stacklessExceptions;
+    this.stackless = stacklessExceptions ? this : new PseudonymFactoryImpl(domain, true);
   }
 
   @Override
   public PseudonymImpl fromX(final String xAsBase64String) throws InvalidPseudonymException {
-    final byte[] xAsBytes;
-    try {
-      xAsBytes = Base64.getDecoder().decode(xAsBase64String);
-    } catch (final Exception e) {
-      throw new InvalidPseudonymException("The X coordinate is not a valid Base64 string", e);
-    }
+    final var xAsBytes = decodeBase64(xAsBase64String, false, "The X coordinate is not a valid Base64 string");
     final var x = toBigInteger(xAsBytes, "The X coordinate cannot be converted in BigInteger");
-    final var y = computeY(domain.curve(), x);
+    final var squareRootEngine = domain.squareRootEngine();
+    if (!squareRootEngine.isFieldElement(x)) {
+      throw invalid(ParseError.INVALID_POINT, "Invalid X coordinate: it is not an element of the field of the curve", null);
+    }
+    final var y = squareRootEngine.computeY(x);
     if (y == null) {
-      throw new InvalidPseudonymException("Invalid X coordinate: no Y coordinate can be computed for this X coordinate");
+      throw invalid(ParseError.INVALID_POINT, "Invalid X coordinate: no Y coordinate can be computed for this X coordinate", null);
     }
-    return new PseudonymImpl(createEcPoint(x, y), domain);
+    // On the curve by construction
+    return new PseudonymImpl(domain.curve().createPoint(x, y), domain);
   }
 
   /**
@@ -46,7 +60,67 @@ public class PseudonymFactoryImpl extends PointFactory implements PseudonymFacto
    */
   @Override
   public PseudonymImpl fromXY(final String xAsBase64String, final String yAsBase64String) throws InvalidPseudonymException {
-    return fromXY(xAsBase64String, yAsBase64String, Base64.getDecoder());
+    assertNotEmpty(xAsBase64String, "The Base64 encoded X coordinate is empty or null");
+    assertNotEmpty(yAsBase64String, "The Base64 encoded Y coordinate is empty or null");
+    final var xAsBytes = decodeBase64(xAsBase64String, false, "The Base64 encoded X coordinate is not a valid Base64 String");
+    final var yAsBytes = decodeBase64(yAsBase64String, false, "The Base64 encoded Y coordinate is not a valid Base64 String");
+    final var x = toBigInteger(xAsBytes, "The Base64 encoded X coordinate is not a valid point coordinate");
+    final var y = toBigInteger(yAsBytes, "The Base64 encoded Y coordinate is not a valid point coordinate");
+    return new PseudonymImpl(createEcPoint(x, y), domain);
+  }
+
+  @Override
+  public PseudonymImpl fromXY(final byte[] x, final byte[] y) throws InvalidPseudonymException {
+    assertNotEmpty(x, "The X coordinate is empty or null");
+    assertNotEmpty(y, "The Y coordinate is empty or null");
+    final var xAsBigInteger = toBigInteger(x, "The X coordinate is not a valid point coordinate");
+    final var yAsBigInteger = toBigInteger(y, "The Y coordinate is not a valid point coordinate");
+    return new PseudonymImpl(createEcPoint(xAsBigInteger, yAsBigInteger), domain);
+  }
+
+  @Override
+  public PseudonymImpl fromSec1(final byte[] sec1) throws InvalidPseudonymException {
+    assertNotNull(sec1, "The SEC 1 representation of the point is null");
+    return new PseudonymImpl(decodeSec1(sec1), domain);
+  }
+
+  @Override
+  public PseudonymImpl fromSec1(final ByteBuffer sec1) throws InvalidPseudonymException {
+    assertNotNull(sec1, "The SEC 1 representation of the point is null");
+    if (!sec1.hasRemaining()) {
+      throw invalid(ParseError.EMPTY, "The SEC 1 representation of the point is empty", null);
+    }
+    final var length = sec1Length(sec1.get(sec1.position()));
+    if (sec1.remaining() < length) {
+      throw invalid(ParseError.TRUNCATED, "The SEC 1 representation of the point is truncated: " +
+                                          length + " bytes expected but only " + sec1.remaining() + " available", null);
+    }
+    final var sec1AsBytes = new byte[length];
+    // The bytes are only consumed once the point is valid: the position of the buffer is not changed on failure
+    sec1.duplicate().get(sec1AsBytes);
+    final var pseudonym = fromSec1(sec1AsBytes);
+    sec1.position(sec1.position() + length);
+    return pseudonym;
+  }
+
+  @Override
+  public PseudonymImpl readFrom(final ByteBuffer buffer) throws InvalidPseudonymException {
+    return BinaryCodec.readPseudonym(this, buffer);
+  }
+
+  @Override
+  public ParseResult<Pseudonym> tryFromX(final String xAsBase64String) {
+    return tryParse(() -> stackless.fromX(xAsBase64String));
+  }
+
+  @Override
+  public ParseResult<Pseudonym> tryFromXY(final String xAsBase64String, final String yAsBase64String) {
+    return tryParse(() -> stackless.fromXY(xAsBase64String, yAsBase64String));
+  }
+
+  @Override
+  public ParseResult<Pseudonym> tryFromSec1(final byte[] sec1) {
+    return tryParse(() -> stackless.fromSec1(sec1));
   }
 
   @Override
@@ -67,29 +141,40 @@ public class PseudonymFactoryImpl extends PointFactory implements PseudonymFacto
    */
   PseudonymImpl fromSec1(final String sec1) throws InvalidPseudonymException {
     assertNotNull(sec1, "The Base64 encoded SEC 1 representation of the point is null");
-    final var sec1AsBytes = decodeBase64(sec1, Base64.getUrlDecoder(),
-                                         "The Base64 encoded SEC 1 representation of the point is not a valid Base64 URL String");
-    final var ecPoint = decodeSec1(sec1AsBytes);
-    return new PseudonymImpl(ecPoint, domain);
+    final var sec1AsBytes = decodeBase64(sec1, true, "The Base64 encoded SEC 1 representation of the point is not a valid Base64 URL String");
+    return fromSec1(sec1AsBytes);
   }
 
-  private PseudonymImpl fromXY(final String xAsBase64String, final String yAsBase64String, final Base64.Decoder base64Decoder) throws
-                                                                                                                               InvalidPseudonymException {
-    assertNotEmpty(xAsBase64String, "The Base64 encoded X coordinate is empty or null");
-    assertNotEmpty(yAsBase64String, "The Base64 encoded Y coordinate is empty or null");
-    final var xAsBytes = decodeBase64(xAsBase64String, base64Decoder, "The Base64 encoded X coordinate is not a valid Base64 String");
-    final var yAsBytes = decodeBase64(yAsBase64String, base64Decoder, "The Base64 encoded Y coordinate is not a valid Base64 String");
-    final var x = toBigInteger(xAsBytes, "The Base64 encoded X coordinate is not a valid point coordinate");
-    final var y = toBigInteger(yAsBytes, "The Base64 encoded Y coordinate is not a valid point coordinate");
-    return new PseudonymImpl(createEcPoint(x, y), domain);
+  /**
+   * Returns the length of the SEC 1 representation of a point, on the basis of its first byte.
+   *
+   * @param firstByte the first byte of the SEC 1 representation of the point
+   * @return the length of the SEC 1 representation of the point (including the first byte)
+   * @throws InvalidPseudonymException if the first byte is not a valid SEC 1 prefix
+   */
+  private int sec1Length(final byte firstByte) throws InvalidPseudonymException {
+    final var fieldLength = (domain.curve().getFieldSize() + 7) / 8;
+    switch (firstByte) {
+      case 0x02:
+      case 0x03:
+        return 1 + fieldLength;
+      case 0x04:
+        return 1 + 2 * fieldLength;
+      default:
+        throw invalid(ParseError.INVALID_FORMAT, "Invalid SEC 1 representation of the point: unexpected first byte " + firstByte, null);
+    }
   }
 
+  /**
+   * Creates the point of the given coordinates, after checking that they are field elements:
+   * otherwise {@link ECCurve#createPoint(BigInteger, BigInteger)} would throw an exception with a stack trace.
+   */
   private ECPoint createEcPoint(final BigInteger x, final BigInteger y) throws InvalidPseudonymException {
-    try {
-      return domain.curve().createPoint(x, y);
-    } catch (final Exception e) {
-      throw new InvalidPseudonymException("Invalid coordinates", e);
+    final var squareRootEngine = domain.squareRootEngine();
+    if (!squareRootEngine.isFieldElement(x) || !squareRootEngine.isFieldElement(y)) {
+      throw invalid(ParseError.INVALID_POINT, "Invalid coordinates: they are not elements of the field of the curve", null);
     }
+    return domain.curve().createPoint(x, y);
   }
 
   PseudonymImpl fromRawResponse(final String rawResponse, final BigInteger scalar) throws EHealthProblemException {
@@ -119,40 +204,127 @@ public class PseudonymFactoryImpl extends PointFactory implements PseudonymFacto
     return response.has("x") && response.has("y");
   }
 
-  private static void assertNotNull(final Object o, final String exceptionMessage) throws InvalidPseudonymException {
+  /**
+   * Returns the same factory, but with stackless exceptions.
+   *
+   * @return the factory used by the {@code tryFrom*} methods
+   */
+  PseudonymFactoryImpl stackless() {
+    return stackless;
+  }
+
+  /**
+   * Creates the {@link InvalidPseudonymException} to throw, with a stack trace or not according to the configuration of this factory.
+   */
+  InvalidPseudonymException invalid(final ParseError error, final String message, final Exception cause) {
+    return new InvalidPseudonymException(error, message, cause, !stacklessExceptions);
+  }
+
+  private void assertNotNull(final Object o, final String exceptionMessage) throws InvalidPseudonymException {
     if (o == null) {
-      throw new InvalidPseudonymException(exceptionMessage);
+      throw invalid(ParseError.EMPTY, exceptionMessage, null);
     }
   }
 
-  private static void assertNotEmpty(final String string, final String exceptionMessage) throws InvalidPseudonymException {
+  private void assertNotEmpty(final String string, final String exceptionMessage) throws InvalidPseudonymException {
     if (string == null || string.isBlank()) {
-      throw new InvalidPseudonymException(exceptionMessage);
+      throw invalid(ParseError.EMPTY, exceptionMessage, null);
     }
   }
 
-  private static BigInteger toBigInteger(final byte[] bytes, final String exceptionMessage) throws InvalidPseudonymException {
-    try {
-      return new BigInteger(bytes);
-    } catch (final Exception e) {
-      throw new InvalidPseudonymException(exceptionMessage, e);
+  private void assertNotEmpty(final byte[] bytes, final String exceptionMessage) throws InvalidPseudonymException {
+    if (bytes == null || bytes.length == 0) {
+      throw invalid(ParseError.EMPTY, exceptionMessage, null);
+    }
+  }
+
+  private BigInteger toBigInteger(final byte[] bytes, final String exceptionMessage) throws InvalidPseudonymException {
+    // `new BigInteger(byte[])` only fails on an empty array
+    if (bytes.length == 0) {
+      throw invalid(ParseError.INVALID_ENCODING, exceptionMessage, null);
     }
+    return new BigInteger(bytes);
   }
 
-  private static byte[] decodeBase64(final String string, final Base64.Decoder base64Decoder, final String exceptionMessage)
-      throws InvalidPseudonymException {
+  private byte[] decodeBase64(final String string, final boolean url, final String exceptionMessage) throws InvalidPseudonymException {
+    if (string == null) {
+      throw invalid(ParseError.EMPTY, exceptionMessage, null);
+    }
+    // Reject the invalid characters before decoding: the decoder would throw an exception with a stack trace
+    if (!isBase64(string, url)) {
+      throw invalid(ParseError.INVALID_ENCODING, exceptionMessage, null);
+    }
     try {
-      return base64Decoder.decode(string);
-    } catch (final Exception e) {
-      throw new InvalidPseudonymException(exceptionMessage, e);
+      return (url ? Base64.getUrlDecoder() : Base64.getDecoder()).decode(string);
+    } catch (final IllegalArgumentException e) {
+      throw invalid(ParseError.INVALID_ENCODING, exceptionMessage, e);
+    }
+  }
+
+  private static boolean isBase64(final String string, final boolean url) {
+    var end = string.length();
+    while (end > 0 && string.charAt(end - 1) == '=') {
+      end--;
+    }
+    if (string.length() - end > 2 || end % 4 == 1) {
+      return false;
     }
+    for (int i = 0; i < end; i++) {
+      final var c = string.charAt(i);
+      if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || (url ? c == '-' || c == '_' : c == '+' || c == '/'))) {
+        return false;
+      }
+    }
+    return true;
   }
 
+  /**
+   * Decodes a compressed or uncompressed SEC 1 representation of a point.
+   * <p>
+   * The prefix, the length and the coordinates are validated here rather than by {@link ECCurve#decodePoint(byte[])},
+   * which throws exceptions with a stack trace: they would be costly for the {@code tryFrom*} methods.
+   */
   private ECPoint decodeSec1(final byte[] sec1) throws InvalidPseudonymException {
-    try {
-      return domain.curve().decodePoint(sec1);
-    } catch (final Exception e) {
-      throw new InvalidPseudonymException("Invalid SEC 1 representation of the point", e);
+    final var curve = domain.curve();
+    final var fieldLength = (curve.getFieldSize() + 7) / 8;
+    final var prefix = sec1.length == 0 ? 0 : sec1[0];
+    final var compressed = prefix == 0x02 || prefix == 0x03;
+    if (!(compressed && sec1.length == 1 + fieldLength) && !(prefix == 0x04 && sec1.length == 1 + 2 * fieldLength)) {
+      throw invalid(ParseError.INVALID_POINT, "Invalid SEC 1 representation of the point", null);
+    }
+    final var x = new BigInteger(1, sec1, 1, fieldLength);
+    if (!compressed) {
+      final var y = new BigInteger(1, sec1, 1 + fieldLength, fieldLength);
+      final var point = createEcPoint(x, y);
+      // As Bouncy Castle, which validates the decoded points
+      if (!domain.squareRootEngine().isOnCurve(x, y)) {
+        throw invalid(ParseError.INVALID_POINT, "Invalid SEC 1 representation of the point: the point is not on the curve", null);
+      }
+      return point;
+    }
+    // The decompression below relies on the equation of the curves over a prime field
+    if (!(curve instanceof ECCurve.AbstractFp)) {
+      try {
+        return curve.decodePoint(sec1);
+      } catch (final IllegalArgumentException e) {
+        throw invalid(ParseError.INVALID_POINT, "Invalid SEC 1 representation of the point", e);
+      }
+    }
+    final var squareRootEngine = domain.squareRootEngine();
+    if (!squareRootEngine.isFieldElement(x)) {
+      throw invalid(ParseError.INVALID_POINT, "Invalid SEC 1 representation of the point: the X coordinate is not an element of the field of the curve", null);
+    }
+    final var y = squareRootEngine.computeY(x);
+    if (y == null) {
+      throw invalid(ParseError.INVALID_POINT, "Invalid SEC 1 representation of the point: no Y coordinate can be computed for this X coordinate", null);
+    }
+    // The prefix gives the parity of Y: the other root is p - y
+    if (y.testBit(0) == (prefix == 0x03)) {
+      return curve.createPoint(x, y);
+    }
+    if (y.signum() == 0) {
+      throw invalid(ParseError.INVALID_POINT, "Invalid SEC 1 representation of the point: invalid compression of the Y coordinate", null);
     }
+    return curve.createPoint(x, curve.getField().getCharacteristic().subtract(y));
   }
 }
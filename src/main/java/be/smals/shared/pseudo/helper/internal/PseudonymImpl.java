@@ -5,6 +5,8 @@ import be.smals.shared.pseudo.helper.Pseudonym;
 import be.smals.shared.pseudo.helper.TransitInfoCustomizer;
 import be.smals.shared.pseudo.helper.Value;
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Base64;
 import java.util.concurrent.CompletableFuture;
 import org.bouncycastle.math.ec.ECPoint;
@@ -14,23 +16,44 @@ public class PseudonymImpl extends PointImpl implements Pseudonym {
   private static final Base64.Encoder base64EncoderWithoutPadding = Base64.getUrlEncoder().withoutPadding();
   public static final TransitInfoCustomizer NO_OP_TRANSIT_INFO_CUSTOMIZER = new TransitInfoCustomizer() {};
 
+  // Encodings lazily computed and cached (racy single-check: they are immutable Strings, computing them more than once is harmless)
+  private String x;
+  private String y;
+  private String asString;
+  private String asShortString;
+
   public PseudonymImpl(final ECPoint ecPoint, final Domain domain) {
     super(ecPoint, domain);
   }
 
   @Override
   public String x() {
-    return Base64.getEncoder().encodeToString(ecPoint.getXCoord().getEncoded());
+    var encoded = x;
+    if (encoded == null) {
+      encoded = Base64.getEncoder().encodeToString(ecPoint.getXCoord().getEncoded());
+      x = encoded;
+    }
+    return encoded;
   }
 
   @Override
   public String y() {
-    return Base64.getEncoder().encodeToString(ecPoint.getYCoord().getEncoded());
+    var encoded = y;
+    if (encoded == null) {
+      encoded = Base64.getEncoder().encodeToString(ecPoint.getYCoord().getEncoded());
+      y = encoded;
+    }
+    return encoded;
   }
 
   @Override
   public String asString() {
-    return base64EncoderWithoutPadding.encodeToString(ecPoint.getEncoded(false));
+    var encoded = asString;
+    if (encoded == null) {
+      encoded = base64EncoderWithoutPadding.encodeToString(ecPoint.getEncoded(false));
+      asString = encoded;
+    }
+    return encoded;
   }
 
   @SuppressWarnings("removal")
@@ -41,7 +64,12 @@ public class PseudonymImpl extends PointImpl implements Pseudonym {
 
   @Override
   public String asShortString() {
-    return base64EncoderWithoutPadding.encodeToString(ecPoint.getEncoded(true));
+    var encoded = asShortString;
+    if (encoded == null) {
+      encoded = base64EncoderWithoutPadding.encodeToString(ecPoint.getEncoded(true));
+      asShortString = encoded;
+    }
+    return encoded;
   }
 
   @SuppressWarnings("removal")
@@ -50,12 +78,51 @@ public class PseudonymImpl extends PointImpl implements Pseudonym {
     return asShortString();
   }
 
+  @Override
+  public int writeSec1(final ByteBuffer buffer) throws BufferOverflowException {
+    final var x = ecPoint.getXCoord().getEncoded();
+    final var y = ecPoint.getYCoord().getEncoded();
+    final var length = 1 + x.length + y.length;
+    if (buffer.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+    buffer.put((byte) 0x04).put(x).put(y);
+    return length;
+  }
+
+  @Override
+  public int writeShortSec1(final ByteBuffer buffer) throws BufferOverflowException {
+    final var x = ecPoint.getXCoord().getEncoded();
+    final var length = 1 + x.length;
+    if (buffer.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+    // Same prefix as `ECPoint.getEncoded(true)`: 0x02 for an even Y, 0x03 for an odd Y
+    buffer.put((byte) (ecPoint.getYCoord().testBitZero() ? 0x03 : 0x02)).put(x);
+    return length;
+  }
+
+  @Override
+  public int writeTo(final ByteBuffer buffer) throws BufferOverflowException {
+    return BinaryCodec.write(this, buffer);
+  }
+
   @Override
   public CompletableFuture<PseudonymInTransitImpl> convertTo(final Domain toDomain) {
+    return convertTo(toDomain, null);
+  }
+
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #convertTo(Domain)
+   */
+  CompletableFuture<PseudonymInTransitImpl> convertTo(final Domain toDomain, final CallingThreadExecutor callingThread) {
     final var random = domain.createRandom();
     final var payload = domain.createPayloadString(multiply(random));
-    return domain.pseudonymisationClient().convertTo(domain.key(), toDomain.key(), payload)
-                 .thenApply(s -> ((DomainImpl) toDomain).pseudonymInTransitFactory().fromRawResponse(s, random));
+    return domain.thenCompute(domain.pseudonymisationClient(callingThread).convertTo(domain.key(), toDomain.key(), payload),
+                              s -> ((DomainImpl) toDomain).pseudonymInTransitFactory().fromRawResponse(s, random),
+                              callingThread);
   }
 
   @Override
@@ -68,7 +135,7 @@ public class PseudonymImpl extends PointImpl implements Pseudonym {
     final var random = domain.createRandom();
     final var randomModInverse = random.modInverse(ecPoint.getCurve().getOrder());
     final var blinded = new PseudonymImpl(ecPoint.multiply(randomModInverse).normalize(), domain);
-    final var transitInfo = new TransitInfoImpl(domain, random, transitInfoCustomizer);
+    final var transitInfo = domain.transitInfoTemplate().create(random, transitInfoCustomizer);
     return new PseudonymInTransitImpl(blinded, transitInfo, this);
   }
 
@@ -1,38 +1,79 @@
 package be.smals.shared.pseudo.helper.internal;
 
 import be.smals.shared.pseudo.helper.Domain;
+import be.smals.shared.pseudo.helper.ParseError;
+import be.smals.shared.pseudo.helper.ParseResult;
 import be.smals.shared.pseudo.helper.PseudonymInTransit;
 import be.smals.shared.pseudo.helper.PseudonymInTransitFactory;
 import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
 import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
 import com.nimbusds.jose.shaded.gson.JsonObject;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 public class PseudonymInTransitFactoryImpl extends PointFactory implements PseudonymInTransitFactory {
 
-  PseudonymInTransitFactoryImpl(final Domain domain) {
+  private final PseudonymFactoryImpl pseudonymFactory;
+  /**
+   * Same factory, but with stackless exceptions: used by the {@code tryFrom*} methods, whose exceptions never reach the caller.
+   */
+  private final PseudonymInTransitFactoryImpl stackless;
+
+  /**
+   * @param pseudonymFactory the {@link PseudonymFactoryImpl} used to parse the points, and to create the exceptions
+   */
+  PseudonymInTransitFactoryImpl(final Domain domain, final PseudonymFactoryImpl pseudonymFactory) {
     super(domain);
+    this.pseudonymFactory = pseudonymFactory;
+    this.stackless = pseudonymFactory == pseudonymFactory.stackless() ? this : new PseudonymInTransitFactoryImpl(domain, pseudonymFactory.stackless());
   }
 
   @Override
   public PseudonymInTransitImpl fromXYAndTransitInfo(final String x, final String y, final String transitInfo) throws InvalidPseudonymException {
-    return new PseudonymInTransitImpl(domain.pseudonymFactory().fromXY(x, y), new TransitInfoImpl(domain, transitInfo));
+    return new PseudonymInTransitImpl(pseudonymFactory.fromXY(x, y), new TransitInfoImpl(domain, transitInfo));
   }
 
   @Override
   public PseudonymInTransitImpl fromSec1AndTransitInfo(final String sec1AndTransitInfo) throws InvalidPseudonymException {
-    assertNotEmpty(sec1AndTransitInfo);
+    if (sec1AndTransitInfo == null || sec1AndTransitInfo.isBlank()) {
+      throw pseudonymFactory.invalid(ParseError.EMPTY, "The pseudonym in transit string is empty or null", null);
+    }
     final var colonPos = sec1AndTransitInfo.indexOf(':');
     if (colonPos == -1) {
-      throw new InvalidPseudonymException("Missing `:` in the pseudonym in transit string. " +
-                                          "Format must be {sec1InBase64Url}:{transitInfoInBase64Url}");
+      throw pseudonymFactory.invalid(ParseError.INVALID_FORMAT, "Missing `:` in the pseudonym in transit string. " +
+                                                                "Format must be {sec1InBase64Url}:{transitInfoInBase64Url}", null);
     }
-    final var pseudonym = domain.pseudonymFactory().fromSec1(sec1AndTransitInfo.substring(0, colonPos));
+    final var pseudonym = pseudonymFactory.fromSec1(sec1AndTransitInfo.substring(0, colonPos));
     final var transitInfo = new TransitInfoImpl(domain, sec1AndTransitInfo.substring(colonPos + 1));
     return new PseudonymInTransitImpl(pseudonym, transitInfo);
   }
 
+  @Override
+  public PseudonymInTransitImpl fromSec1AndTransitInfo(final byte[] sec1, final String transitInfo) throws InvalidPseudonymException {
+    return new PseudonymInTransitImpl(pseudonymFactory.fromSec1(sec1), new TransitInfoImpl(domain, transitInfo));
+  }
+
+  @Override
+  public PseudonymInTransitImpl fromSec1AndTransitInfo(final ByteBuffer sec1, final String transitInfo) throws InvalidPseudonymException {
+    return new PseudonymInTransitImpl(pseudonymFactory.fromSec1(sec1), new TransitInfoImpl(domain, transitInfo));
+  }
+
+  @Override
+  public PseudonymInTransitImpl readFrom(final ByteBuffer buffer) throws InvalidPseudonymException {
+    return BinaryCodec.readPseudonymInTransit(pseudonymFactory, buffer);
+  }
+
+  @Override
+  public ParseResult<PseudonymInTransit> tryFromXYAndTransitInfo(final String x, final String y, final String transitInfo) {
+    return tryParse(() -> stackless.fromXYAndTransitInfo(x, y, transitInfo));
+  }
+
+  @Override
+  public ParseResult<PseudonymInTransit> tryFromSec1AndTransitInfo(final String sec1AndTransitInfo) {
+    return tryParse(() -> stackless.fromSec1AndTransitInfo(sec1AndTransitInfo));
+  }
+
   @Override
   public MultiplePseudonymInTransitImpl multiple() {
     return new MultiplePseudonymInTransitImpl(domain);
@@ -51,19 +92,13 @@ public class PseudonymInTransitFactoryImpl extends PointFactory implements Pseud
     if (!isAcceptableResponse(response)) {
       throw new EHealthProblemException(EHealthProblemImpl.fromResponse(response));
     }
-    return new PseudonymInTransitImpl(domain.pseudonymFactory().fromResponse(response, scalar),
+    return new PseudonymInTransitImpl(pseudonymFactory.fromResponse(response, scalar),
                                       new TransitInfoImpl(domain, response.get("transitInfo").getAsString()),
                                       null);
   }
 
   boolean isAcceptableResponse(final JsonObject response) {
-    return domain.pseudonymFactory().isAcceptableResponse(response) &&
+    return pseudonymFactory.isAcceptableResponse(response) &&
            response.has("transitInfo");
   }
-
-  private static void assertNotEmpty(final String string) throws InvalidPseudonymException {
-    if (string == null || string.isBlank()) {
-      throw new InvalidPseudonymException("The pseudonym in transit string is empty or null");
-    }
-  }
 }
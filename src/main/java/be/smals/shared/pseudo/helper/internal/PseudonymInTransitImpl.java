@@ -1,21 +1,40 @@
 package be.smals.shared.pseudo.helper.internal;
 
+import be.smals.shared.pseudo.helper.AtRestKey;
 import be.smals.shared.pseudo.helper.Domain;
 import be.smals.shared.pseudo.helper.Pseudonym;
 import be.smals.shared.pseudo.helper.PseudonymInTransit;
 import be.smals.shared.pseudo.helper.TransitInfo;
 import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
 import be.smals.shared.pseudo.helper.exceptions.UnknownKidException;
+import com.nimbusds.jose.JWEDecrypter;
 import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Base64;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * Implementation of {@link PseudonymInTransit}.
+ * <p>
+ * Instances can be shared between threads: {@link #atRest()} decrypts the transit info and computes the pseudonym at rest at most once.
+ */
 public final class PseudonymInTransitImpl implements PseudonymInTransit {
 
   private final PseudonymImpl pseudonym;
   private final TransitInfoImpl transitInfo;
-  private Pseudonym decryptedPseudonym;
+  /**
+   * Pseudonym at rest, given at creation or lazily computed by {@link #atRest()}.
+   * It is computed outside the lock, which only publishes the first result so that all the callers get the same instance.
+   */
+  private volatile Pseudonym decryptedPseudonym;
+  // Lazily computed from decryptedPseudonym and cached (racy single-check: it is immutable, computing it more than once is harmless)
+  private AtRestKey atRestKey;
+  // Lazily computed and cached (racy single-check: immutable Strings, computing them more than once is harmless)
+  private String asString;
+  private String asShortString;
 
   public PseudonymInTransitImpl(final Pseudonym pseudonym, final TransitInfo transitInfo, final Pseudonym decryptedPseudonym) {
     this.pseudonym = (PseudonymImpl) pseudonym;
@@ -42,6 +61,16 @@ public final class PseudonymInTransitImpl implements PseudonymInTransit {
     return pseudonym.y();
   }
 
+  @Override
+  public byte[] xBytes() {
+    return pseudonym.xBytes();
+  }
+
+  @Override
+  public byte[] yBytes() {
+    return pseudonym.yBytes();
+  }
+
   @SuppressWarnings("removal")
   @Override
   public String sec1() {
@@ -66,56 +95,123 @@ public final class PseudonymInTransitImpl implements PseudonymInTransit {
 
   @Override
   public String asString() {
-    return pseudonym.asString() + ":" + transitInfo.asString();
+    var string = asString;
+    if (string == null) {
+      string = pseudonym.asString() + ":" + transitInfo.asString();
+      asString = string;
+    }
+    return string;
   }
 
   @Override
   public String asShortString() {
-    return pseudonym.asShortString() + ":" + transitInfo.asString();
+    var string = asShortString;
+    if (string == null) {
+      string = pseudonym.asShortString() + ":" + transitInfo.asString();
+      asShortString = string;
+    }
+    return string;
   }
 
   @Override
   public CompletableFuture<ValueImpl> identify() {
+    return identify(null);
+  }
+
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #identify()
+   */
+  CompletableFuture<ValueImpl> identify(final CallingThreadExecutor callingThread) {
     final var domain = pseudonym.domain;
     final var random = domain.createRandom();
     final var blindedPseudonym = pseudonym.multiply(random);
     final var payload = domain.createPayloadString(blindedPseudonym, transitInfo().asString());
-    return domain.pseudonymisationClient().identify(domain.key(), payload)
-                 .thenApply(rawResponse -> {
-                   final var valueAsPseudonym = domain.pseudonymFactory().fromRawResponse(rawResponse, random);
-                   return new ValueImpl(valueAsPseudonym.ecPoint, domain);
-                 });
+    return domain.thenCompute(domain.pseudonymisationClient(callingThread).identify(domain.key(), payload),
+                              rawResponse -> {
+                                final var valueAsPseudonym = domain.pseudonymFactory().fromRawResponse(rawResponse, random);
+                                return new ValueImpl(valueAsPseudonym.ecPoint, domain);
+                              },
+                              callingThread);
   }
 
   @SuppressWarnings("DuplicateThrows")
   @Override
   public Pseudonym atRest() throws InvalidTransitInfoException, UnknownKidException {
-    if (decryptedPseudonym != null) {
-      return decryptedPseudonym;
+    var result = decryptedPseudonym;
+    if (result == null) {
+      // Not computed under the lock: resolving an unknown kid may wait for the refresh of the domain.
+      // The transit info decrypts its payload only once, so the concurrent callers only repeat the multiplication.
+      final var computed = atRest(true);
+      synchronized (this) {
+        result = decryptedPseudonym;
+        if (result == null) {
+          result = computed;
+          decryptedPseudonym = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public AtRestKey atRestKey() throws InvalidTransitInfoException {
+    var key = atRestKey;
+    if (key == null) {
+      key = AtRestKey.of(atRest());
+      atRestKey = key;
     }
-    decryptedPseudonym = atRest(true);
-    return decryptedPseudonym;
+    return key;
+  }
+
+  @Override
+  public int writeTo(final ByteBuffer buffer) throws BufferOverflowException, InvalidTransitInfoException {
+    return BinaryCodec.write(this, buffer);
   }
 
   @SuppressWarnings("DuplicateThrows")
   @Override
   public Pseudonym atRest(final boolean validateIatAndExp) throws InvalidTransitInfoException, UnknownKidException {
-    final var payload = transitInfo.payload();
+    return pseudonym.multiply(scalar(validateIatAndExp, null));
+  }
+
+  /**
+   * Returns the scalar of the transit info, by which the blinded pseudonym must be multiplied to get the pseudonym at rest.
+   *
+   * @param validateIatAndExp {@code true} to validate the {@code iat} and {@code exp} of the transit info
+   * @param decrypters        the {@link JWEDecrypter}s shared by a batch, or {@code null}
+   * @return the scalar of the transit info
+   * @see TransitInfoImpl#payload(ConcurrentMap)
+   */
+  @SuppressWarnings("DuplicateThrows")
+  BigInteger scalar(final boolean validateIatAndExp, final ConcurrentMap<String, JWEDecrypter> decrypters)
+      throws InvalidTransitInfoException, UnknownKidException {
+    final var payload = transitInfo.payload(decrypters);
     if (validateIatAndExp) {
-      transitInfo.validatePayload();
+      TransitInfoImpl.validatePayload(payload);
     }
-    final var scalar = new BigInteger(Base64.getDecoder().decode((String) payload.get("scalar")));
-    return pseudonym.multiply(scalar);
+    return new BigInteger(Base64.getDecoder().decode((String) payload.get("scalar")));
   }
 
   @Override
   public CompletableFuture<PseudonymInTransitImpl> convertTo(final Domain toDomain) {
+    return convertTo(toDomain, null);
+  }
+
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #convertTo(Domain)
+   */
+  CompletableFuture<PseudonymInTransitImpl> convertTo(final Domain toDomain, final CallingThreadExecutor callingThread) {
     final var domain = pseudonym.domain;
     final var random = domain.createRandom();
     final var blindedPseudonym = pseudonym.multiply(random);
     final var payload = domain.createPayloadString(blindedPseudonym, transitInfo.asString());
-    return domain.pseudonymisationClient().convertTo(domain.key(), toDomain.key(), payload)
-                 .thenApply(s -> ((PseudonymInTransitFactoryImpl) toDomain.pseudonymInTransitFactory()).fromRawResponse(s, random));
+    return domain.thenCompute(domain.pseudonymisationClient(callingThread).convertTo(domain.key(), toDomain.key(), payload),
+                              s -> ((PseudonymInTransitFactoryImpl) toDomain.pseudonymInTransitFactory()).fromRawResponse(s, random),
+                              callingThread);
   }
 
   @SuppressWarnings("removal")
@@ -136,7 +232,8 @@ public final class PseudonymInTransitImpl implements PseudonymInTransit {
 
   @Override
   public int hashCode() {
-    return Objects.hash(pseudonym.ecPoint.getXCoord(), pseudonym.domain.key(), transitInfo);
+    // The hash code of the pseudonym is cached and is derived from its X coordinate and its domain key
+    return 31 * pseudonym.hashCode() + Objects.hashCode(transitInfo);
   }
 
   @Override
@@ -0,0 +1,197 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.math.BigInteger.ONE;
+
+import java.math.BigInteger;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.custom.sec.SecP521R1Curve;
+import org.bouncycastle.math.ec.custom.sec.SecP521R1Field;
+import org.bouncycastle.math.raw.Nat;
+
+/**
+ * Computes the Y coordinate of a point from its X coordinate, with an implementation specialised for the curve of the domain.
+ * <p>
+ * All the implementations return the same root as {@link PointImpl#computeY(ECCurve, BigInteger)}: for a prime {@code p ≡ 3 mod 4},
+ * the root is {@code rhs^((p + 1) / 4)}, which is a square root of {@code rhs} if and only if {@code rhs} is a quadratic residue.
+ * Checking the square of this candidate root is therefore the residuosity test:
+ * no separate Legendre symbol (which would cost a second exponentiation of the same size) is computed.
+ * <p>
+ * The engine also validates the coordinates received from outside (see {@link #isFieldElement(BigInteger)} and
+ * {@link #isOnCurve(BigInteger, BigInteger)}), so that invalid points are rejected before Bouncy Castle throws its own exceptions.
+ */
+abstract class SquareRootEngine {
+
+  private static final BigInteger THREE = BigInteger.valueOf(3);
+  private static final BigInteger FOUR = BigInteger.valueOf(4);
+
+  /**
+   * Upper bound (exclusive) of the field elements: {@code p} for a prime field, {@code 2^m} for a binary field.
+   */
+  private final BigInteger fieldBound;
+
+  private SquareRootEngine(final ECCurve curve) {
+    fieldBound = curve instanceof ECCurve.AbstractFp ? curve.getField().getCharacteristic() : ONE.shiftLeft(curve.getFieldSize());
+  }
+
+  /**
+   * Compute the Y coordinate on the basis of X coordinate.
+   *
+   * @param x the X coordinate as BigInteger
+   * @return the Y coordinate if a valid Y exists, or {@code null} if it does not exist
+   * @throws IllegalArgumentException if {@code x} is not a valid field element
+   */
+  abstract BigInteger computeY(BigInteger x);
+
+  /**
+   * Checks that the given point satisfies the equation of the curve ({@code y^2 = x^3 + ax + b} for a prime field).
+   *
+   * @param x the X coordinate, which must be a field element (see {@link #isFieldElement(BigInteger)})
+   * @param y the Y coordinate, which must be a field element (see {@link #isFieldElement(BigInteger)})
+   * @return {@code true} if the point is on the curve
+   */
+  abstract boolean isOnCurve(BigInteger x, BigInteger y);
+
+  /**
+   * Checks that the given value is an element of the field of the curve, and can therefore be a coordinate of a point.
+   *
+   * @param value the value to check
+   * @return {@code true} if {@code 0 <= value < p}
+   */
+  boolean isFieldElement(final BigInteger value) {
+    return value.signum() >= 0 && value.compareTo(fieldBound) < 0;
+  }
+
+  /**
+   * Returns the {@link SquareRootEngine} to use for the given curve.
+   *
+   * @param curve the curve
+   * @return a {@link SquareRootEngine} specialised for the curve if possible, or a generic one otherwise
+   */
+  static SquareRootEngine forCurve(final ECCurve curve) {
+    if (curve instanceof ECCurve.AbstractFp) {
+      final var p = curve.getField().getCharacteristic();
+      if (SecP521R1Curve.q.equals(p)) {
+        return new P521(curve);
+      }
+      if (p.mod(FOUR).equals(THREE)) {
+        return new Fp3Mod4(curve);
+      }
+    }
+    return new Generic(curve);
+  }
+
+  /**
+   * Uses the fixed-size limb arithmetic of {@link SecP521R1Field}.
+   * <p>
+   * Since {@code p = 2^521 - 1}, {@code (p + 1) / 4 = 2^519}: the exponentiation is only 519 squarings, without any multiplication.
+   */
+  private static final class P521 extends SquareRootEngine {
+
+    private static final int LIMBS = 17;
+
+    private final int[] a;
+    private final int[] b;
+
+    private P521(final ECCurve curve) {
+      super(curve);
+      a = SecP521R1Field.fromBigInteger(curve.getA().toBigInteger());
+      b = SecP521R1Field.fromBigInteger(curve.getB().toBigInteger());
+    }
+
+    @Override
+    BigInteger computeY(final BigInteger x) {
+      if (x == null || x.signum() < 0 || x.compareTo(SecP521R1Curve.q) >= 0) {
+        throw new IllegalArgumentException("x value invalid for SecP521R1FieldElement");
+      }
+      final var rhs = rhs(x);
+      // y = rhs^(2^519)
+      final var y = Nat.create(LIMBS);
+      SecP521R1Field.squareN(rhs, 519, y);
+      final var check = Nat.create(LIMBS);
+      SecP521R1Field.square(y, check);
+      return Nat.eq(LIMBS, rhs, check) ? Nat.toBigInteger(LIMBS, y) : null;
+    }
+
+    @Override
+    boolean isOnCurve(final BigInteger x, final BigInteger y) {
+      final var ySquare = Nat.create(LIMBS);
+      SecP521R1Field.square(SecP521R1Field.fromBigInteger(y), ySquare);
+      return Nat.eq(LIMBS, rhs(x), ySquare);
+    }
+
+    /**
+     * @return {@code (x^2 + a) * x + b}
+     */
+    private int[] rhs(final BigInteger x) {
+      final var xLimbs = SecP521R1Field.fromBigInteger(x);
+      final var rhs = Nat.create(LIMBS);
+      SecP521R1Field.square(xLimbs, rhs);
+      SecP521R1Field.add(rhs, a, rhs);
+      SecP521R1Field.multiply(rhs, xLimbs, rhs);
+      SecP521R1Field.add(rhs, b, rhs);
+      return rhs;
+    }
+  }
+
+  /**
+   * Uses {@link BigInteger#modPow(BigInteger, BigInteger)} with a precomputed exponent {@code (p + 1) / 4}.
+   */
+  private static final class Fp3Mod4 extends SquareRootEngine {
+
+    private final BigInteger p;
+    private final BigInteger a;
+    private final BigInteger b;
+    private final BigInteger exponent;
+
+    private Fp3Mod4(final ECCurve curve) {
+      super(curve);
+      p = curve.getField().getCharacteristic();
+      a = curve.getA().toBigInteger();
+      b = curve.getB().toBigInteger();
+      exponent = p.add(ONE).shiftRight(2);
+    }
+
+    @Override
+    BigInteger computeY(final BigInteger x) {
+      if (x == null || x.signum() < 0 || x.compareTo(p) >= 0) {
+        throw new IllegalArgumentException("x value invalid for Fp field element");
+      }
+      final var rhs = rhs(x);
+      final var y = rhs.modPow(exponent, p);
+      return y.multiply(y).mod(p).equals(rhs) ? y : null;
+    }
+
+    @Override
+    boolean isOnCurve(final BigInteger x, final BigInteger y) {
+      return y.multiply(y).mod(p).equals(rhs(x));
+    }
+
+    private BigInteger rhs(final BigInteger x) {
+      return x.multiply(x).add(a).multiply(x).add(b).mod(p);
+    }
+  }
+
+  /**
+   * Uses the generic {@link org.bouncycastle.math.ec.ECFieldElement#sqrt()} of Bouncy Castle.
+   */
+  private static final class Generic extends SquareRootEngine {
+
+    private final ECCurve curve;
+
+    private Generic(final ECCurve curve) {
+      super(curve);
+      this.curve = curve;
+    }
+
+    @Override
+    BigInteger computeY(final BigInteger x) {
+      return PointImpl.computeY(curve, x);
+    }
+
+    @Override
+    boolean isOnCurve(final BigInteger x, final BigInteger y) {
+      // Also right for the curves whose equation is not y^2 = x^3 + ax + b
+      return curve.createPoint(x, y).isValid();
+    }
+  }
+}
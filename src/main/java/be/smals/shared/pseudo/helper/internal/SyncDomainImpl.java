@@ -0,0 +1,127 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException.throwWrapped;
+import static java.lang.Thread.currentThread;
+
+import be.smals.shared.pseudo.helper.Domain;
+import be.smals.shared.pseudo.helper.MultiplePoint;
+import be.smals.shared.pseudo.helper.MultiplePseudonym;
+import be.smals.shared.pseudo.helper.MultiplePseudonymInTransit;
+import be.smals.shared.pseudo.helper.MultipleValue;
+import be.smals.shared.pseudo.helper.Point;
+import be.smals.shared.pseudo.helper.Pseudonym;
+import be.smals.shared.pseudo.helper.PseudonymInTransit;
+import be.smals.shared.pseudo.helper.SyncDomain;
+import be.smals.shared.pseudo.helper.Value;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public final class SyncDomainImpl implements SyncDomain {
+
+  private final DomainImpl domain;
+
+  public SyncDomainImpl(final DomainImpl domain) {
+    this.domain = domain;
+  }
+
+  @Override
+  public DomainImpl domain() {
+    return domain;
+  }
+
+  @Override
+  public PseudonymInTransitImpl pseudonymize(final Value value) {
+    checkDomain(value);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((ValueImpl) value).pseudonymize(callingThread));
+  }
+
+  @Override
+  public MultiplePseudonymInTransitImpl pseudonymize(final MultipleValue values) {
+    checkDomain(values);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((MultipleValueImpl) values).pseudonymize(callingThread));
+  }
+
+  @Override
+  public ValueImpl identify(final PseudonymInTransit pseudonymInTransit) {
+    checkDomain(pseudonymInTransit);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((PseudonymInTransitImpl) pseudonymInTransit).identify(callingThread));
+  }
+
+  @Override
+  public MultipleValueImpl identify(final MultiplePseudonymInTransit pseudonymsInTransit) {
+    checkDomain(pseudonymsInTransit);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((MultiplePseudonymInTransitImpl) pseudonymsInTransit).identify(callingThread));
+  }
+
+  @Override
+  public PseudonymInTransitImpl convertTo(final Pseudonym pseudonym, final Domain toDomain) {
+    checkDomain(pseudonym);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((PseudonymImpl) pseudonym).convertTo(toDomain, callingThread));
+  }
+
+  @Override
+  public PseudonymInTransitImpl convertTo(final PseudonymInTransit pseudonymInTransit, final Domain toDomain) {
+    checkDomain(pseudonymInTransit);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((PseudonymInTransitImpl) pseudonymInTransit).convertTo(toDomain, callingThread));
+  }
+
+  @Override
+  public MultiplePseudonymInTransitImpl convertTo(final MultiplePseudonym pseudonyms, final Domain toDomain) {
+    checkDomain(pseudonyms);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((MultiplePseudonymImpl) pseudonyms).convertTo(toDomain, callingThread));
+  }
+
+  @Override
+  public MultiplePseudonymInTransitImpl convertTo(final MultiplePseudonymInTransit pseudonymsInTransit, final Domain toDomain) {
+    checkDomain(pseudonymsInTransit);
+    final var callingThread = new CallingThreadExecutor();
+    return callingThread.await(((MultiplePseudonymInTransitImpl) pseudonymsInTransit).convertTo(toDomain, callingThread));
+  }
+
+  private void checkDomain(final Point point) {
+    checkDomain(point.domain());
+  }
+
+  private void checkDomain(final MultiplePoint<?> points) {
+    checkDomain(points.domain());
+  }
+
+  private void checkDomain(final Domain otherDomain) {
+    if (!domain.key().equals(otherDomain.key())) {
+      throw new IllegalArgumentException("The domain `" + otherDomain.key() + "` does not match the domain `" + domain.key() + "` of this SyncDomain");
+    }
+  }
+
+  /**
+   * Waits for the given future and returns its result.
+   * <p>
+   * Unlike {@link be.smals.shared.pseudo.helper.utils.FutureHelper#getWithoutCheckedException(java.util.concurrent.Future)},
+   * the cause of the failure is thrown as-is if it is a {@link RuntimeException} or an {@link Error}:
+   * only checked exceptions are wrapped in a {@link be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException}.
+   *
+   * @param future the {@link CompletableFuture} to wait for
+   * @param <T>    the type of the result
+   * @return the result of {@code future}
+   */
+  public static <T> T await(final CompletableFuture<T> future) {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      currentThread().interrupt();
+      return throwWrapped(e);
+    } catch (final ExecutionException e) {
+      final var cause = e.getCause() == null ? e : e.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      return throwWrapped(cause);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import be.smals.shared.pseudo.helper.RequestIdGenerator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * {@link RequestIdGenerator} generating random (version 4) UUIDs with {@link ThreadLocalRandom}.
+ * <p>
+ * The ids of a batch are derived from one random UUID by XOR-ing the index of the input in its 62 random least significant bits:
+ * they are unique within the batch, and only one UUID is drawn per batch.
+ */
+public final class ThreadLocalRandomRequestIdGenerator implements RequestIdGenerator {
+
+  public static final ThreadLocalRandomRequestIdGenerator INSTANCE = new ThreadLocalRandomRequestIdGenerator();
+
+  private static final long VERSION_MASK = 0xF000L;
+  private static final long VERSION_4 = 0x4000L;
+  private static final long VARIANT_MASK = 0xC000000000000000L;
+  private static final long VARIANT_IETF = 0x8000000000000000L;
+
+  private ThreadLocalRandomRequestIdGenerator() {
+  }
+
+  @Override
+  public String nextId() {
+    final var random = ThreadLocalRandom.current();
+    return new UUID(mostSignificantBits(random), leastSignificantBits(random)).toString();
+  }
+
+  @Override
+  public Supplier<String> batch() {
+    final var random = ThreadLocalRandom.current();
+    final var mostSignificantBits = mostSignificantBits(random);
+    final var leastSignificantBits = leastSignificantBits(random);
+    return new Supplier<>() {
+      private long index;
+
+      @Override
+      public String get() {
+        return new UUID(mostSignificantBits, leastSignificantBits ^ index++).toString();
+      }
+    };
+  }
+
+  private static long mostSignificantBits(final ThreadLocalRandom random) {
+    return random.nextLong() & ~VERSION_MASK | VERSION_4;
+  }
+
+  private static long leastSignificantBits(final ThreadLocalRandom random) {
+    return random.nextLong() & ~VARIANT_MASK | VARIANT_IETF;
+  }
+}
@@ -1,33 +1,35 @@
 package be.smals.shared.pseudo.helper.internal;
 
-import static be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException.throwWrapped;
 import static com.nimbusds.jose.JWEAlgorithm.DIR;
 import static java.time.Instant.now;
 import static java.time.temporal.ChronoUnit.MINUTES;
+import static java.util.Collections.unmodifiableMap;
 
 import be.smals.shared.pseudo.helper.Domain;
 import be.smals.shared.pseudo.helper.PseudonymInTransit;
 import be.smals.shared.pseudo.helper.TransitInfo;
-import be.smals.shared.pseudo.helper.TransitInfoCustomizer;
 import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
 import be.smals.shared.pseudo.helper.exceptions.UnknownKidException;
 import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEDecrypter;
 import com.nimbusds.jose.JWEHeader;
 import com.nimbusds.jose.JWEObject;
-import com.nimbusds.jose.Payload;
-import com.nimbusds.jose.crypto.DirectEncrypter;
 import com.nimbusds.jose.crypto.factories.DefaultJWEDecrypterFactory;
 import com.nimbusds.jose.shaded.gson.Gson;
-import java.math.BigInteger;
 import java.text.ParseException;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Implementation of {@link TransitInfo}.
+ * <p>
+ * Instances can be shared between threads: the parsing and the decryption are each done at most once
+ * (the threads arriving during the decryption wait for its result), and a thread never observes a partially decrypted transit info.
+ * The lock is never held while waiting for a refresh of the domain (unknown kid).
+ */
 public final class TransitInfoImpl implements TransitInfo {
 
   private static final Duration CLOCK_SKEW = Duration.of(1, MINUTES);  // as per ehealth spec
@@ -35,8 +37,15 @@ public final class TransitInfoImpl implements TransitInfo {
   private static final Gson GSON = new Gson();
 
   private final DomainImpl domain;
-  private String raw;
-  private JWEObject parsed;
+  private final String raw;
+  /**
+   * Parsed transit info, lazily computed by {@link #parse()} (double-checked locking).
+   */
+  private volatile JWEObject parsed;
+  /**
+   * Unmodifiable decrypted payload, lazily computed by {@link #payload()} (double-checked locking).
+   */
+  private volatile Map<String, Object> decryptedPayload;
 
   TransitInfoImpl(final DomainImpl domain, final String raw) {
     this.domain = domain;
@@ -44,45 +53,21 @@ public final class TransitInfoImpl implements TransitInfo {
   }
 
   /**
-   * Creates a {@link TransitInfoImpl} and encrypts it immediately.
-   * <p>
-   * The JWE Algo is DIR and encryption method A256GCM.
+   * Creates a {@link TransitInfoImpl} that was just encrypted by this library.
    *
-   * @param domain     The {@link Domain} to which the {@link PseudonymInTransit} belongs
-   * @param scalar     The scalar to use to decrypt the {@link PseudonymInTransit}
-   * @param customizer The {@link TransitInfoCustomizer} to use to add custom header parameters or payload properties.
+   * @param domain  The {@link Domain} to which the {@link PseudonymInTransit} belongs
+   * @param raw     The JWE compact serialisation of the transit info
+   * @param payload The payload that was encrypted: it is returned by {@link #payload()} without decrypting the transit info
+   * @see TransitInfoTemplate
    */
-  TransitInfoImpl(final DomainImpl domain, final BigInteger scalar, final TransitInfoCustomizer customizer) {
-    final var activeKid = Optional.ofNullable(domain.activeKid())
-                                  .orElseThrow(() -> new IllegalStateException(
-                                      "Not able to decrypt the active kid of the domain `" + domain.key() + "`. " +
-                                      "The domain probably needs to be refreshed."));
-    final var secretKey = domain.secretKeys().get(activeKid);
-    final var payloadAsMap = createPayload(domain, scalar, customizer.payload());
-    final var jweHeader = new JWEHeader.Builder(DIR, domain.activeKeyEncryptionMethod())
-                              .keyID(activeKid)
-                              .customParams(createHeaderParams(domain, payloadAsMap, customizer.header()))
-                              .build();
-    final var jweCompact = new JWEObject(jweHeader, new Payload(payloadAsMap));
-    // It should never happen if the domain is refreshed often enough
-    if (secretKey == null) {
-      throw new IllegalArgumentException("SecretKey with kid '" + activeKid + "' not found: " +
-                                         "is your user allowed to get secret keys for the domain `" + domain.key() + "`?");
-    }
-    try {
-      jweCompact.encrypt(new DirectEncrypter(secretKey));
-    } catch (final JOSEException e) {
-      throwWrapped(e);
-    }
+  TransitInfoImpl(final DomainImpl domain, final String raw, final Map<String, Object> payload) {
     this.domain = domain;
-    this.parsed = jweCompact;
+    this.raw = raw;
+    this.decryptedPayload = unmodifiableMap(payload);
   }
 
   @Override
   public String asString() {
-    if (raw == null) {
-      raw = parsed.serialize();
-    }
     return raw;
   }
 
@@ -103,35 +88,108 @@ public final class TransitInfoImpl implements TransitInfo {
 
   /**
    * Returns the decrypted the payload.
+   * <p>
+   * The transit info is decrypted on the first call only: the returned {@link Map} is unmodifiable and shared by all the callers.
    *
    * @return the decrypted the payload
    */
   @SuppressWarnings("DuplicateThrows")
   @Override
   public Map<String, Object> payload() throws InvalidTransitInfoException, UnknownKidException {
-    final var parsedTransitInfo = parse();
-    var payload = parsedTransitInfo.getPayload();
+    return payload(null);
+  }
+
+  /**
+   * Same as {@link #payload()}, but the {@link JWEDecrypter}s are taken from (and added to) the given cache.
+   * <p>
+   * Used by the batch operations, to create only one {@link JWEDecrypter} per kid for the whole batch.
+   *
+   * @param decrypters the {@link JWEDecrypter}s by kid, or {@code null} to create a new {@link JWEDecrypter}
+   * @return the decrypted the payload
+   */
+  @SuppressWarnings("DuplicateThrows")
+  Map<String, Object> payload(final ConcurrentMap<String, JWEDecrypter> decrypters) throws InvalidTransitInfoException, UnknownKidException {
+    var payload = decryptedPayload;
     if (payload == null) {
-      validateHeader();
-      final var transitInfoHeader = parsedTransitInfo.getHeader();
-      final var secretKey = domain.secretKeys().get(transitInfoHeader.getKeyID());
+      // The decrypter is created before taking the lock: an unknown kid may have to wait for a refresh of the domain
+      final var decrypter = decrypter(decrypters);
+      synchronized (this) {
+        payload = decryptedPayload;
+        if (payload == null) {
+          payload = unmodifiableMap(decrypt(decrypter));
+          decryptedPayload = payload;
+        }
+      }
+    }
+    return payload;
+  }
+
+  /**
+   * Returns the {@link JWEDecrypter} of the secret key used to encrypt this transit info.
+   * <p>
+   * If the kid is unknown by the domain, this method may block until the domain is refreshed (see {@link DomainImpl#resolveSecretKey(String)}):
+   * it must not be called while holding the lock of this {@link TransitInfoImpl}.
+   *
+   * @param decrypters the {@link JWEDecrypter}s by kid, or {@code null} to create a new {@link JWEDecrypter}
+   * @return the {@link JWEDecrypter}
+   */
+  @SuppressWarnings("DuplicateThrows")
+  private JWEDecrypter decrypter(final ConcurrentMap<String, JWEDecrypter> decrypters) throws InvalidTransitInfoException, UnknownKidException {
+    final var parsedTransitInfo = parse();
+    validateHeader();
+    final var transitInfoHeader = parsedTransitInfo.getHeader();
+    final var kid = transitInfoHeader.getKeyID();
+    var decrypter = decrypters == null || kid == null ? null : decrypters.get(kid);
+    if (decrypter == null) {
+      final var secretKey = domain.resolveSecretKey(kid);
       if (secretKey == null) {
-        throw new UnknownKidException(transitInfoHeader.getKeyID());
+        throw new UnknownKidException(kid);
+      }
+      try {
+        decrypter = jweDecrypterFactory.createJWEDecrypter(transitInfoHeader, secretKey);
+      } catch (final JOSEException e) {
+        throw new InvalidTransitInfoException("Error when decrypting transitInfo", e);
+      }
+      if (decrypters != null && kid != null) {
+        decrypters.putIfAbsent(kid, decrypter);
       }
+    }
+    return decrypter;
+  }
+
+  /**
+   * Decrypts the parsed transit info. Must be called while holding the lock of this {@link TransitInfoImpl}.
+   *
+   * @param decrypter the {@link JWEDecrypter} returned by {@link #decrypter(ConcurrentMap)}
+   * @return the decrypted payload
+   */
+  private Map<String, Object> decrypt(final JWEDecrypter decrypter) throws InvalidTransitInfoException {
+    final var parsedTransitInfo = parse();
+    if (parsedTransitInfo.getState() != JWEObject.State.DECRYPTED) {
       try {
-        parsedTransitInfo.decrypt(jweDecrypterFactory.createJWEDecrypter(transitInfoHeader, secretKey));
+        parsedTransitInfo.decrypt(decrypter);
       } catch (final JOSEException e) {
         throw new InvalidTransitInfoException("Error when decrypting transitInfo", e);
       }
-      payload = parsedTransitInfo.getPayload();
     }
-    return payload.toJSONObject();
+    return parsedTransitInfo.getPayload().toJSONObject();
   }
 
   JWEObject parse() throws InvalidTransitInfoException {
-    if (parsed != null) {
-      return parsed;
+    var result = parsed;
+    if (result == null) {
+      synchronized (this) {
+        result = parsed;
+        if (result == null) {
+          result = parse(raw);
+          parsed = result;
+        }
+      }
     }
+    return result;
+  }
+
+  private static JWEObject parse(final String raw) throws InvalidTransitInfoException {
     final JWEObject parsed;
     try {
       parsed = JWEObject.parse(raw);
@@ -148,7 +206,6 @@ public final class TransitInfoImpl implements TransitInfo {
     if (Objects.toString(header.getCustomParam("aud"), "").isBlank()) {
       throw new InvalidTransitInfoException("Missing `aud` in header");
     }
-    this.parsed = parsed;
     return parsed;
   }
 
@@ -159,7 +216,16 @@ public final class TransitInfoImpl implements TransitInfo {
   }
 
   void validatePayload() throws InvalidTransitInfoException {
-    final var payload = payload();
+    validatePayload(payload());
+  }
+
+  /**
+   * Validates the {@code iat} and {@code exp} of the given payload.
+   *
+   * @param payload the decrypted payload of this transit info
+   * @throws InvalidTransitInfoException if the transit info is not yet valid or is expired
+   */
+  static void validatePayload(final Map<String, Object> payload) throws InvalidTransitInfoException {
     final long iat = (long) payload.get("iat");
     final long exp = (long) payload.get("exp");
     final var currentTime = now();
@@ -171,27 +237,6 @@ public final class TransitInfoImpl implements TransitInfo {
     }
   }
 
-  private static Map<String, Object> createPayload(final DomainImpl domain, final BigInteger scalar, final Map<String, Object> customPayload) {
-    final var currentTime = now();
-    final var computedPayload = new HashMap<String, Object>(customPayload.size() + 3);
-    computedPayload.putAll(customPayload);
-    computedPayload.put("iat", currentTime.getEpochSecond());
-    computedPayload.put("exp", currentTime.plus(domain.inTransitTtl()).getEpochSecond());
-    computedPayload.put("scalar", Base64.getEncoder().encodeToString(scalar.toByteArray()));
-    return computedPayload;
-  }
-
-  private static HashMap<String, Object> createHeaderParams(final DomainImpl domain,
-                                                            final Map<String, Object> transitInfo,
-                                                            final Map<String, Object> customHeaderParams) {
-    final var computedCustomHeaderParams = new HashMap<String, Object>(customHeaderParams.size() + 3, 1F);
-    computedCustomHeaderParams.putAll(customHeaderParams);
-    computedCustomHeaderParams.put("aud", domain.audience());
-    computedCustomHeaderParams.put("iat", transitInfo.get("iat"));
-    computedCustomHeaderParams.put("exp", transitInfo.get("exp"));
-    return computedCustomHeaderParams;
-  }
-
   @Override
   public boolean equals(final Object obj) {
     if (obj == this) {return true;}
@@ -201,7 +246,7 @@ public final class TransitInfoImpl implements TransitInfo {
 
   @Override
   public int hashCode() {
-    return Objects.hash(raw, parsed);
+    return Objects.hashCode(raw);
   }
 
   /**
@@ -212,10 +257,10 @@ public final class TransitInfoImpl implements TransitInfo {
   @SuppressWarnings("JavadocDeclaration")
   @Override
   public String toString() {
-    final var payload = parse().getPayload();
+    final var payload = decryptedPayload;
     return "{" +
            "\"header\": " + GSON.toJson(header()) + ", " +
-           "\"payload\": " + (payload == null ? "\"not decrypted\"" : GSON.toJson(payload.toJSONObject())) +
+           "\"payload\": " + (payload == null ? "\"not decrypted\"" : GSON.toJson(payload)) +
            "}";
   }
 }
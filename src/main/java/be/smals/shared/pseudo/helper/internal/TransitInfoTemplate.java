@@ -0,0 +1,130 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static be.smals.shared.pseudo.helper.exceptions.ThrowableWrapperException.throwWrapped;
+import static com.nimbusds.jose.JWEAlgorithm.DIR;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.Instant.now;
+
+import be.smals.shared.pseudo.helper.TransitInfoCustomizer;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWEObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Precompiled parts of the {@link TransitInfoImpl}s created by a {@link DomainImpl} with its active secret key.
+ * <p>
+ * The constant part of the JWE header ({@code alg}, {@code enc}, {@code kid} and {@code aud}) is serialised once:
+ * only {@code iat}, {@code exp} and the custom header parameters are appended to it for each transit info.
+ * A {@link DomainImpl} is immutable and a refresh creates a new {@link DomainImpl}, so the template of a domain never has to be invalidated.
+ * <p>
+ * The JWE is encrypted by Nimbus, with one {@link DirectEncrypter} per template: it is thread-safe, so it is shared by all the threads.
+ */
+final class TransitInfoTemplate {
+
+  /**
+   * The header parameters written by the template: the custom header parameters with these names are ignored,
+   * as they were overridden when the header was built with {@link JWEHeader.Builder#customParams(Map)}.
+   */
+  private static final Set<String> TEMPLATE_HEADER_PARAMS = Set.of("alg", "enc", "kid", "aud", "iat", "exp");
+  private static final Base64.Encoder base64UrlEncoder = Base64.getUrlEncoder().withoutPadding();
+
+  private final DomainImpl domain;
+  private final String headerPrefix;
+  private final DirectEncrypter directEncrypter;
+
+  private TransitInfoTemplate(final DomainImpl domain, final String headerPrefix, final DirectEncrypter directEncrypter) {
+    this.domain = domain;
+    this.headerPrefix = headerPrefix;
+    this.directEncrypter = directEncrypter;
+  }
+
+  /**
+   * Creates the template of the active secret key of the given domain.
+   *
+   * @param domain the domain
+   * @return the template
+   * @throws IllegalStateException    if the domain has no active kid
+   * @throws IllegalArgumentException if the active secret key is not available
+   */
+  static TransitInfoTemplate create(final DomainImpl domain) {
+    final var activeKid = domain.activeKid();
+    if (activeKid == null) {
+      throw new IllegalStateException("Not able to decrypt the active kid of the domain `" + domain.key() + "`. " +
+                                      "The domain probably needs to be refreshed.");
+    }
+    final var secretKey = domain.secretKey(activeKid);
+    // It should never happen if the domain is refreshed often enough
+    if (secretKey == null) {
+      throw new IllegalArgumentException("SecretKey with kid '" + activeKid + "' not found: " +
+                                         "is your user allowed to get secret keys for the domain `" + domain.key() + "`?");
+    }
+    final DirectEncrypter directEncrypter;
+    try {
+      directEncrypter = new DirectEncrypter(secretKey);
+    } catch (final JOSEException e) {
+      throw new IllegalArgumentException("Invalid secret key for the domain `" + domain.key() + "`", e);
+    }
+    final var constantHeader = new LinkedHashMap<String, Object>(4, 1f);
+    constantHeader.put("alg", DIR.getName());
+    constantHeader.put("enc", domain.activeKeyEncryptionMethod().getName());
+    constantHeader.put("kid", activeKid);
+    constantHeader.put("aud", domain.audience());
+    final var json = JSONObjectUtils.toJSONString(constantHeader);
+    return new TransitInfoTemplate(domain, json.substring(0, json.length() - 1), directEncrypter);
+  }
+
+  /**
+   * Creates and encrypts a transit info.
+   *
+   * @param scalar     The scalar to use to decrypt the {@link be.smals.shared.pseudo.helper.PseudonymInTransit}
+   * @param customizer The {@link TransitInfoCustomizer} to use to add custom header parameters or payload properties.
+   * @return the encrypted transit info
+   */
+  TransitInfoImpl create(final BigInteger scalar, final TransitInfoCustomizer customizer) {
+    final var currentTime = now();
+    final var iat = currentTime.getEpochSecond();
+    final var exp = currentTime.plus(domain.inTransitTtl()).getEpochSecond();
+    final var customPayload = customizer.payload();
+    final var payload = new HashMap<String, Object>(customPayload.size() + 3);
+    payload.putAll(customPayload);
+    payload.put("iat", iat);
+    payload.put("exp", exp);
+    payload.put("scalar", Base64.getEncoder().encodeToString(scalar.toByteArray()));
+    final var encodedHeader = base64UrlEncoder.encodeToString(header(iat, exp, customizer.header()).getBytes(UTF_8));
+    try {
+      final var jwe = new JWEObject(JWEHeader.parse(new Base64URL(encodedHeader)), new Payload(JSONObjectUtils.toJSONString(payload)));
+      jwe.encrypt(directEncrypter);
+      return new TransitInfoImpl(domain, jwe.serialize(), payload);
+    } catch (final ParseException | JOSEException e) {
+      return throwWrapped(e);
+    }
+  }
+
+  private String header(final long iat, final long exp, final Map<String, Object> customHeaderParams) {
+    final var header = new StringBuilder(headerPrefix.length() + 48).append(headerPrefix);
+    if (!customHeaderParams.isEmpty()) {
+      final var filtered = new HashMap<String, Object>(customHeaderParams.size(), 1f);
+      customHeaderParams.forEach((name, value) -> {
+        if (!TEMPLATE_HEADER_PARAMS.contains(name)) {
+          filtered.put(name, value);
+        }
+      });
+      if (!filtered.isEmpty()) {
+        final var json = JSONObjectUtils.toJSONString(filtered);
+        header.append(',').append(json, 1, json.length() - 1);
+      }
+    }
+    return header.append(",\"iat\":").append(iat).append(",\"exp\":").append(exp).append('}').toString();
+  }
+}
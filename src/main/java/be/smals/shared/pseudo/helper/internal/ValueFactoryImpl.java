@@ -1,6 +1,5 @@
 package be.smals.shared.pseudo.helper.internal;
 
-import static be.smals.shared.pseudo.helper.internal.PointImpl.computeY;
 import static java.math.BigInteger.ONE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
@@ -60,10 +59,11 @@ public class ValueFactoryImpl extends PointFactory implements ValueFactory {
     var xCoordinates = new BigInteger(xBytes);
 
     // Compute y on the elliptic curve
-    var y = computeY(domain.curve(), xCoordinates);
+    final var squareRootEngine = domain.squareRootEngine();
+    var y = squareRootEngine.computeY(xCoordinates);
     while (y == null) {
       xCoordinates = xCoordinates.add(ONE);
-      y = computeY(domain.curve(), xCoordinates);
+      y = squareRootEngine.computeY(xCoordinates);
     }
 
     return new ValueImpl(createEcPoint(xCoordinates, y), domain);
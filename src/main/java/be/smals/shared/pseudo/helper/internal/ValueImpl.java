@@ -45,12 +45,22 @@ public final class ValueImpl extends PseudonymImpl implements Value {
 
   @Override
   public CompletableFuture<PseudonymInTransitImpl> pseudonymize() {
+    return pseudonymize(null);
+  }
+
+  /**
+   * @param callingThread the {@link CallingThreadExecutor} of the {@link SyncDomainImpl} waiting for the result,
+   *                      or {@code null} to unblind the response on the compute executor
+   * @see #pseudonymize()
+   */
+  CompletableFuture<PseudonymInTransitImpl> pseudonymize(final CallingThreadExecutor callingThread) {
     final var random = domain.createRandom();
     final var blindedValue = multiply(random);
     final var payload = domain.createPayloadString(blindedValue);
     final var pseudonymInTransitFactory = domain.pseudonymInTransitFactory();
-    return domain.pseudonymisationClient().pseudonymize(domain.key(), payload)
-                 .thenApply(rawResponse -> pseudonymInTransitFactory.fromRawResponse(rawResponse, random));
+    return domain.thenCompute(domain.pseudonymisationClient(callingThread).pseudonymize(domain.key(), payload),
+                              rawResponse -> pseudonymInTransitFactory.fromRawResponse(rawResponse, random),
+                              callingThread);
   }
 
   @Override
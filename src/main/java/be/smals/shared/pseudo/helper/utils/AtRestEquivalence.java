@@ -0,0 +1,77 @@
+package be.smals.shared.pseudo.helper.utils;
+
+import be.smals.shared.pseudo.helper.AtRestKey;
+import be.smals.shared.pseudo.helper.PseudonymInTransit;
+import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Equivalence of {@link PseudonymInTransit}s by their pseudonym at rest.
+ * <p>
+ * Two {@link PseudonymInTransit}s are equivalent if they have the same {@link AtRestKey}, even if their transit infos are different.
+ * Each {@link PseudonymInTransit} is decrypted once (see {@link PseudonymInTransit#atRestKey()}),
+ * whereas comparing them with {@link Object#equals(Object)} in a {@link java.util.HashSet} would decrypt them on each comparison.
+ */
+@SuppressWarnings("unused")
+public final class AtRestEquivalence {
+
+  private AtRestEquivalence() {
+  }
+
+  /**
+   * Returns {@code true} if the given {@link PseudonymInTransit}s have the same pseudonym at rest.
+   *
+   * @param a a {@link PseudonymInTransit}
+   * @param b another {@link PseudonymInTransit}
+   * @return {@code true} if {@code a} and {@code b} have the same {@link AtRestKey}
+   * @throws InvalidTransitInfoException if a transit info cannot be decrypted
+   */
+  public static boolean equivalent(final PseudonymInTransit a, final PseudonymInTransit b) throws InvalidTransitInfoException {
+    return a == b || a.atRestKey().equals(b.atRestKey());
+  }
+
+  /**
+   * Returns the given {@link PseudonymInTransit}s without the duplicates by pseudonym at rest.
+   * <p>
+   * The first {@link PseudonymInTransit} of each pseudonym at rest is kept, and the order of the given {@link PseudonymInTransit}s is preserved.
+   *
+   * @param pseudonymsInTransit the {@link PseudonymInTransit}s to deduplicate
+   * @param <T>                 the type of the {@link PseudonymInTransit}s
+   * @return the deduplicated {@link PseudonymInTransit}s
+   * @throws InvalidTransitInfoException if a transit info cannot be decrypted
+   */
+  public static <T extends PseudonymInTransit> List<T> distinct(final Collection<? extends T> pseudonymsInTransit) throws InvalidTransitInfoException {
+    final var seen = new HashSet<AtRestKey>(pseudonymsInTransit.size() * 4 / 3 + 1);
+    final var distinct = new ArrayList<T>(pseudonymsInTransit.size());
+    for (final var pseudonymInTransit : pseudonymsInTransit) {
+      if (seen.add(pseudonymInTransit.atRestKey())) {
+        distinct.add(pseudonymInTransit);
+      }
+    }
+    return distinct;
+  }
+
+  /**
+   * Groups the given {@link PseudonymInTransit}s by pseudonym at rest.
+   * <p>
+   * The groups are in the order of their first {@link PseudonymInTransit}, and each group preserves the order of the given {@link PseudonymInTransit}s.
+   *
+   * @param pseudonymsInTransit the {@link PseudonymInTransit}s to group
+   * @param <T>                 the type of the {@link PseudonymInTransit}s
+   * @return the {@link PseudonymInTransit}s by {@link AtRestKey}
+   * @throws InvalidTransitInfoException if a transit info cannot be decrypted
+   */
+  public static <T extends PseudonymInTransit> Map<AtRestKey, List<T>> groupByAtRest(final Collection<? extends T> pseudonymsInTransit)
+      throws InvalidTransitInfoException {
+    final var groups = new LinkedHashMap<AtRestKey, List<T>>(pseudonymsInTransit.size() * 4 / 3 + 1);
+    for (final var pseudonymInTransit : pseudonymsInTransit) {
+      groups.computeIfAbsent(pseudonymInTransit.atRestKey(), key -> new ArrayList<>(1)).add(pseudonymInTransit);
+    }
+    return groups;
+  }
+}
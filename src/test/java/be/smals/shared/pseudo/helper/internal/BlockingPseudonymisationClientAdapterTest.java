@@ -0,0 +1,67 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import be.smals.shared.pseudo.helper.BlockingPseudonymisationClient;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class BlockingPseudonymisationClientAdapterTest {
+
+  private static final BlockingPseudonymisationClient echo = (endpoint, domainKey, payload) -> domainKey + "/" + endpoint + ":" + payload;
+
+  @Test
+  public void endpoints() {
+    final var client = echo.toPseudonymisationClient();
+    assertEquals("d/:null", client.getDomain("d").join());
+    assertEquals("d/identify:p", client.identify("d", "p").join());
+    assertEquals("d/identifyMultiple:p", client.identifyMultiple("d", "p").join());
+    assertEquals("d/pseudonymize:p", client.pseudonymize("d", "p").join());
+    assertEquals("d/pseudonymizeMultiple:p", client.pseudonymizeMultiple("d", "p").join());
+    assertEquals("d/convertTo/t:p", client.convertTo("d", "t", "p").join());
+    assertEquals("d/convertMultipleTo/t:p", client.convertMultipleTo("d", "t", "p").join());
+  }
+
+  @Test
+  public void exception_completes_the_future_exceptionally() {
+    final BlockingPseudonymisationClient failing = (endpoint, domainKey, payload) -> {
+      throw new IOException("Connection refused");
+    };
+    final var future = failing.toPseudonymisationClient().getDomain("d");
+    final var exception = assertThrows(ExecutionException.class, future::get);
+    assertInstanceOf(IOException.class, exception.getCause());
+  }
+
+  @Test
+  public void calls_are_not_limited_by_the_number_of_processors() throws InterruptedException {
+    final var nbCalls = 4 * Runtime.getRuntime().availableProcessors() + 1;
+    final var started = new CountDownLatch(nbCalls);
+    final var release = new CountDownLatch(1);
+    final BlockingPseudonymisationClient blocking = (endpoint, domainKey, payload) -> {
+      started.countDown();
+      release.await();
+      return payload;
+    };
+    final var client = blocking.toPseudonymisationClient();
+    final var futures = new ArrayList<CompletableFuture<String>>();
+    for (int i = 0; i < nbCalls; i++) {
+      futures.add(client.pseudonymize("d", Integer.toString(i)));
+    }
+    try {
+      assertTrue(started.await(10, SECONDS));
+    } finally {
+      release.countDown();
+    }
+    for (int i = 0; i < nbCalls; i++) {
+      assertEquals(Integer.toString(i), futures.get(i).join());
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigInteger;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.math.ec.custom.sec.SecP256R1Curve;
+import org.bouncycastle.math.ec.custom.sec.SecP384R1Curve;
+import org.bouncycastle.math.ec.custom.sec.SecP521R1Curve;
+import org.junit.jupiter.api.Test;
+
+public class CurveResolverTest {
+
+  @Test
+  public void resolve_custom_curves() {
+    assertInstanceOf(SecP256R1Curve.class, CurveResolver.resolve("P-256"));
+    assertInstanceOf(SecP384R1Curve.class, CurveResolver.resolve("P-384"));
+    assertInstanceOf(SecP521R1Curve.class, CurveResolver.resolve("P-521"));
+  }
+
+  @Test
+  public void resolve_unknown_curve() {
+    assertThrows(IllegalArgumentException.class, () -> CurveResolver.resolve("unknown"));
+  }
+
+  @Test
+  public void custom_and_generic_curves_give_same_results() {
+    final var custom = new DomainImpl("test", "P-521", CurveResolver.resolve("P-521"), null, 8, null, null, null, null, null, null, null, 0);
+    final var generic = new DomainImpl("test", "P-521", ECNamedCurveTable.getParameterSpec("P-521").getCurve(), null, 8, null, null, null, null,
+                                       null, null, null, 0);
+    final var scalar = new BigInteger("123456789012345678901234567890123456789012345678901234567890");
+    for (final String value : new String[]{"01234567890", "12345678901", "randomtext"}) {
+      final var customValue = custom.valueFactory().from(value);
+      final var genericValue = generic.valueFactory().from(value);
+      assertEquals(genericValue.x(), customValue.x());
+      assertEquals(genericValue.y(), customValue.y());
+      final var customPseudonym = customValue.asPseudonym();
+      final var genericPseudonym = genericValue.asPseudonym();
+      assertEquals(((PseudonymImpl) genericPseudonym).multiply(scalar).asString(), ((PseudonymImpl) customPseudonym).multiply(scalar).asString());
+      assertEquals(((PseudonymImpl) genericPseudonym).multiplyByModInverse(scalar).asString(),
+                   ((PseudonymImpl) customPseudonym).multiplyByModInverse(scalar).asString());
+      assertEquals(generic.pseudonymFactory().fromX(genericPseudonym.x()).asString(), custom.pseudonymFactory().fromX(customPseudonym.x()).asString());
+      assertEquals(genericPseudonym.asShortString(), customPseudonym.asShortString());
+    }
+  }
+}
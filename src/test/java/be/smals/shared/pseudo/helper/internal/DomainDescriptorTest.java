@@ -0,0 +1,100 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.lang.ClassLoader.getSystemResourceAsStream;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nimbusds.jose.JWEObjectJSON;
+import com.nimbusds.jose.shaded.gson.JsonArray;
+import com.nimbusds.jose.shaded.gson.JsonObject;
+import com.nimbusds.jose.shaded.gson.JsonParser;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class DomainDescriptorTest {
+
+  private static final String domain;
+
+  static {
+    try {
+      domain = new String(getSystemResourceAsStream("domain.json").readAllBytes(), UTF_8);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void parse() throws ParseException {
+    final var descriptor = DomainDescriptor.parse(domain);
+    assertEquals("test", descriptor.key());
+    assertEquals("P-521", descriptor.crv());
+    assertEquals("test", descriptor.audience());
+    assertEquals(8, descriptor.bufferSize());
+    assertEquals(Duration.ofMinutes(10), descriptor.timeToLiveInTransit());
+    assertEquals(List.of("https://my-jwks.net/1757512889"), descriptor.jku());
+    assertEquals(1, descriptor.secretKeys().size());
+    final var secretKey = descriptor.secretKeys().get(0);
+    assertEquals("9e846857-d271-4283-a77d-8591695dc128", secretKey.kid());
+    assertTrue(secretKey.active());
+  }
+
+  @Test
+  public void encoded_matches_JWEObjectJSON_parse() throws ParseException {
+    final var encoded = JsonParser.parseString(domain).getAsJsonObject().getAsJsonArray("secretKeys").get(0).getAsJsonObject().get("encoded").toString();
+    final var expected = JWEObjectJSON.parse(encoded);
+    final var actual = DomainDescriptor.parse(domain).secretKeys().get(0).encoded();
+    assertEquals(expected.getHeader().toString(), actual.getHeader().toString());
+    assertEquals(expected.getCipherText(), actual.getCipherText());
+    assertEquals(expected.getIV(), actual.getIV());
+    assertEquals(expected.getAuthTag(), actual.getAuthTag());
+    assertEquals(expected.getRecipients().size(), actual.getRecipients().size());
+    for (int i = 0; i < expected.getRecipients().size(); i++) {
+      assertEquals(expected.getRecipients().get(i).toJSONObject(), actual.getRecipients().get(i).toJSONObject());
+    }
+  }
+
+  @Test
+  public void encoded_rejects_headers_that_are_not_disjoint() throws ParseException {
+    final var rawDomain = JsonParser.parseString(domain).getAsJsonObject();
+    final var encoded = rawDomain.getAsJsonArray("secretKeys").get(0).getAsJsonObject().getAsJsonObject("encoded");
+    // `enc` is already in the protected header
+    encoded.getAsJsonArray("recipients").get(0).getAsJsonObject().getAsJsonObject("header").addProperty("enc", "A256GCM");
+    final var secretKey = DomainDescriptor.parse(rawDomain.toString()).secretKeys().get(0);
+    assertThrows(ParseException.class, secretKey::encoded);
+    assertThrows(ParseException.class, () -> JWEObjectJSON.parse(encoded.toString()));
+  }
+
+  @Test
+  public void parse_many_secretKeys() throws ParseException {
+    final var rawDomain = JsonParser.parseString(domain).getAsJsonObject();
+    final var secretKey = rawDomain.getAsJsonArray("secretKeys").get(0).getAsJsonObject();
+    final var secretKeys = new JsonArray();
+    for (int i = 0; i < 500; i++) {
+      final var historicalKey = new JsonObject();
+      historicalKey.addProperty("kid", "kid-" + i);
+      historicalKey.addProperty("active", i == 499);
+      historicalKey.add("encoded", secretKey.get("encoded"));
+      historicalKey.addProperty("unknownField", "ignored");
+      secretKeys.add(historicalKey);
+    }
+    rawDomain.add("secretKeys", secretKeys);
+    final var descriptor = DomainDescriptor.parse(rawDomain.toString());
+    assertEquals(500, descriptor.secretKeys().size());
+    assertEquals("kid-0", descriptor.secretKeys().get(0).kid());
+    assertFalse(descriptor.secretKeys().get(0).active());
+    assertTrue(descriptor.secretKeys().get(499).active());
+    assertEquals(secretKey.getAsJsonObject("encoded").getAsJsonArray("recipients").size(),
+                 descriptor.secretKeys().get(250).encoded().getRecipients().size());
+  }
+
+  @Test
+  public void parse_missing_mandatory_field() {
+    assertThrows(ParseException.class, () -> DomainDescriptor.parse("{\"domain\": \"test\", \"bufferSize\": 8}"));
+    assertThrows(ParseException.class, () -> DomainDescriptor.parse("{\"domain\": \"test\", \"crv\": "));
+  }
+}
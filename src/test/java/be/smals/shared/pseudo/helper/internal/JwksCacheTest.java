@@ -0,0 +1,100 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class JwksCacheTest {
+
+  private static final String EMPTY_JWKS = "{\"keys\": []}";
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  public void refreshes_in_flight_are_coalesced() {
+    final var pending = new CompletableFuture<String>();
+    final var cache = new JwksCache(() -> {
+      calls.incrementAndGet();
+      return pending;
+    }, Duration.ZERO, nanoTime::get);
+    // The first retrieval is started by the constructor
+    final var first = cache.get();
+    assertSame(first, cache.refresh());
+    assertSame(first, cache.forceRefresh());
+    assertEquals(1, calls.get());
+    assertEquals(2, cache.skippedRefreshes());
+    pending.complete(EMPTY_JWKS);
+    assertTrue(first.join().isEmpty());
+  }
+
+  @Test
+  public void refreshes_are_throttled_by_the_min_interval() {
+    final var cache = new JwksCache(() -> {
+      calls.incrementAndGet();
+      return completedFuture(EMPTY_JWKS);
+    }, Duration.ofSeconds(30), nanoTime::get);
+    assertEquals(1, calls.get());
+    nanoTime.addAndGet(Duration.ofSeconds(29).toNanos());
+    cache.refresh();
+    assertEquals(1, calls.get());
+    assertEquals(Duration.ofSeconds(29), cache.age().orElseThrow());
+    nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+    cache.refresh();
+    assertEquals(2, calls.get());
+    assertEquals(Duration.ZERO, cache.age().orElseThrow());
+    cache.forceRefresh();
+    assertEquals(3, calls.get());
+    assertEquals(3, cache.refreshes());
+  }
+
+  @Test
+  public void backoff_after_failures() {
+    final var cache = new JwksCache(() -> {
+      calls.incrementAndGet();
+      return failedFuture(new IOException("JWKS unavailable"));
+    }, Duration.ZERO, nanoTime::get);
+    assertTrue(cache.get().isCompletedExceptionally());
+    assertEquals(1, calls.get());
+    // 1 failure: 1 second
+    nanoTime.addAndGet(Duration.ofMillis(999).toNanos());
+    cache.get();
+    assertEquals(1, calls.get());
+    nanoTime.addAndGet(Duration.ofMillis(1).toNanos());
+    cache.get();
+    assertEquals(2, calls.get());
+    // 2 failures: 2 seconds
+    nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+    cache.get();
+    assertEquals(2, calls.get());
+    nanoTime.addAndGet(Duration.ofSeconds(1).toNanos());
+    cache.get();
+    assertEquals(3, calls.get());
+    assertEquals(3, cache.failedRefreshes());
+    assertFalse(cache.age().isPresent());
+    // The backoff never exceeds MAX_BACKOFF
+    for (int i = 0; i < 40; i++) {
+      nanoTime.addAndGet(JwksCache.MAX_BACKOFF.toNanos());
+      cache.get();
+    }
+    assertEquals(43, calls.get());
+  }
+
+  @Test
+  public void without_supplier() {
+    final var cache = new JwksCache(null, Duration.ZERO);
+    assertTrue(cache.get().isCompletedExceptionally());
+    assertTrue(cache.refresh().isCompletedExceptionally());
+    assertEquals(0, cache.refreshes());
+  }
+}
@@ -0,0 +1,64 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import be.smals.shared.pseudo.helper.exceptions.EHealthProblemException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class MultiplePayloadTest {
+
+  @Test
+  public void readOutputs_in_order() {
+    final var response = "{\"id\": \"1\", \"outputs\": [{\"x\": \"a\"}, {\"x\": \"b\"}, {\"type\": \"t\"}]}";
+    final var indexes = new ArrayList<Integer>();
+    final var xs = new ArrayList<String>();
+    MultiplePayload.readOutputs(new StringReader(response), 3, (i, output) -> {
+      indexes.add(i);
+      xs.add(output.has("x") ? output.get("x").getAsString() : null);
+    });
+    assertEquals(List.of(0, 1, 2), indexes);
+    assertEquals(Arrays.asList("a", "b", null), xs);
+  }
+
+  @Test
+  public void readOutputs_problem() {
+    final var response = "{\"type\": \"urn:test\", \"title\": \"Bad Request\", \"status\": \"400\", \"detail\": \"invalid\"}";
+    final var e = assertThrows(EHealthProblemException.class, () -> MultiplePayload.readOutputs(new StringReader(response), 2, (i, output) -> {}));
+    assertEquals("urn:test", e.getProblem().type());
+  }
+
+  @Test
+  public void readOutputs_unparseable() {
+    final var e = assertThrows(EHealthProblemException.class, () -> MultiplePayload.readOutputs(new StringReader("{\"outputs\": [{]"), 1, (i, output) -> {}));
+    assertEquals("urn:problem-type:smals:pseudo-helper:unparseable-result", e.getProblem().type());
+  }
+
+  @Test
+  public void readOutputs_missing_outputs() {
+    final var e = assertThrows(EHealthProblemException.class, () -> MultiplePayload.readOutputs(new StringReader("{\"outputs\": [{}]}"), 2, (i, output) -> {}));
+    assertEquals("urn:problem-type:smals:pseudo-helper:unparseable-result", e.getProblem().type());
+  }
+
+  @Test
+  public void readOutputs_extra_outputs() {
+    final var indexes = new ArrayList<Integer>();
+    final var e = assertThrows(EHealthProblemException.class,
+                               () -> MultiplePayload.readOutputs(new StringReader("{\"outputs\": [{}, {}]}"), 1, (i, output) -> indexes.add(i)));
+    assertEquals("urn:problem-type:smals:pseudo-helper:unparseable-result", e.getProblem().type());
+    assertEquals(List.of(0), indexes);
+  }
+
+  @Test
+  public void readOutputs_consumer_exceptions_are_not_wrapped() {
+    final var e = new IllegalStateException("consumer");
+    assertSame(e, assertThrows(IllegalStateException.class, () -> MultiplePayload.readOutputs(new StringReader("{\"outputs\": [{}]}"), 1, (i, output) -> {
+      throw e;
+    })));
+  }
+}
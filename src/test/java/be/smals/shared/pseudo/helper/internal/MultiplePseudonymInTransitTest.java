@@ -41,8 +41,10 @@ public class MultiplePseudonymInTransitTest {
     for (int i = 0; i < 10; i++) {
       multiple.add(pseudonymInTransit);
     }
-    assertEquals(10, multiple.size());
-    assertThrows(IllegalArgumentException.class, () -> multiple.add(pseudonymInTransit));
+    multiple.add(pseudonymInTransit);
+    assertEquals(11, multiple.size());
+    assertThrows(IllegalArgumentException.class, () -> multiple.convertTo(domain));
+    assertThrows(IllegalArgumentException.class, multiple::identify);
   }
 
   @Test
@@ -57,6 +59,8 @@ public class MultiplePseudonymInTransitTest {
   public void create_with_collection_containing_11_pseudonyms() {
     final var pseudonymInTransit = domain.pseudonymInTransitFactory().fromSec1AndTransitInfo(pseudoInTransitRaw);
     final var pseudonymInTransitList = List.of(pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit, pseudonymInTransit);
-    assertThrows(IllegalArgumentException.class, () -> new MultiplePseudonymInTransitImpl(domain, pseudonymInTransitList));
+    final var multiple = new MultiplePseudonymInTransitImpl(domain, pseudonymInTransitList);
+    assertEquals(11, multiple.size());
+    assertThrows(IllegalArgumentException.class, multiple::identify);
   }
 }
@@ -5,6 +5,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import be.smals.shared.pseudo.helper.Domain;
+import java.math.BigInteger;
+import java.security.SecureRandom;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 
@@ -32,8 +34,9 @@ public class MultiplePseudonymTest {
     for (int i = 0; i < 10; i++) {
       multiple.add(pseudonym);
     }
-    assertEquals(10, multiple.size());
-    assertThrows(IllegalArgumentException.class, () -> multiple.add(pseudonym));
+    multiple.add(pseudonym);
+    assertEquals(11, multiple.size());
+    assertThrows(IllegalArgumentException.class, () -> multiple.convertTo(domain));
   }
 
   @Test
@@ -48,6 +51,22 @@ public class MultiplePseudonymTest {
   public void create_with_collection_containing_11_pseudonyms() {
     final var pseudonym = domain.pseudonymFactory().fromXY(X, Y);
     final var pseudonymList = List.of(pseudonym, pseudonym, pseudonym, pseudonym, pseudonym, pseudonym, pseudonym, pseudonym, pseudonym, pseudonym, pseudonym);
-    assertThrows(IllegalArgumentException.class, () -> new MultiplePseudonymImpl(domain, pseudonymList));
+    final var multiple = new MultiplePseudonymImpl(domain, pseudonymList);
+    assertEquals(11, multiple.size());
+    assertThrows(IllegalArgumentException.class, () -> multiple.convertTo(domain));
+  }
+
+  @Test
+  public void modInverseAll() {
+    final var order = ((DomainImpl) domain).curve().getOrder();
+    final var random = new SecureRandom();
+    final var scalars = new BigInteger[7];
+    for (int i = 0; i < scalars.length; i++) {
+      scalars[i] = new BigInteger(order.bitLength() - 1, random).add(BigInteger.ONE);
+    }
+    final var inverses = MultiplePointImpl.modInverseAll(scalars, order);
+    for (int i = 0; i < scalars.length; i++) {
+      assertEquals(scalars[i].modInverse(order), inverses[i]);
+    }
   }
 }
@@ -29,8 +29,9 @@ public class MultipleValueTest {
     for (int i = 0; i < 10; i++) {
       multiple.add(value);
     }
-    assertEquals(10, multiple.size());
-    assertThrows(IllegalArgumentException.class, () -> multiple.add(value));
+    multiple.add(value);
+    assertEquals(11, multiple.size());
+    assertThrows(IllegalArgumentException.class, multiple::pseudonymize);
   }
 
   @Test
@@ -45,6 +46,8 @@ public class MultipleValueTest {
   public void create_with_collection_containing_11_values() {
     final var value = domain.valueFactory().from("0");
     final var valueList = List.of(value, value, value, value, value, value, value, value, value, value, value);
-    assertThrows(IllegalArgumentException.class, () -> new MultipleValueImpl(domain, valueList));
+    final var multiple = new MultipleValueImpl(domain, valueList);
+    assertEquals(11, multiple.size());
+    assertThrows(IllegalArgumentException.class, multiple::pseudonymize);
   }
 }
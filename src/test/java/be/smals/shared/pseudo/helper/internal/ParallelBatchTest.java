@@ -0,0 +1,75 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class ParallelBatchTest {
+
+  @Test
+  public void map_preserves_order() {
+    final var executor = Executors.newFixedThreadPool(4);
+    try {
+      final var domain = createDomain(executor, 2);
+      final var expected = IntStream.range(0, 10).mapToObj(i -> "value-" + i).collect(Collectors.toList());
+      assertEquals(expected, ParallelBatch.map(domain, 10, i -> "value-" + i));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void map_below_threshold_runs_inline() {
+    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    final var domain = createDomain(Executors.newSingleThreadExecutor(), 5);
+    assertEquals(List.of(0, 1, 2, 3), ParallelBatch.map(domain, 4, i -> {
+      threads.add(Thread.currentThread());
+      return i;
+    }));
+    assertEquals(Set.of(Thread.currentThread()), threads);
+  }
+
+  @Test
+  public void map_rethrows_exception() {
+    final var executor = Executors.newFixedThreadPool(4);
+    try {
+      final var domain = createDomain(executor, 2);
+      final var e = assertThrows(IllegalStateException.class, () -> ParallelBatch.map(domain, 10, i -> {
+        if (i == 9) {
+          throw new IllegalStateException("test");
+        }
+        return i;
+      }));
+      assertTrue(e.getMessage().contains("test"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void map_from_a_thread_of_the_executor() throws Exception {
+    final var executor = Executors.newSingleThreadExecutor();
+    try {
+      final var domain = createDomain(executor, 2);
+      final var future = CompletableFuture.supplyAsync(() -> ParallelBatch.map(domain, 10, i -> i), executor);
+      assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toList()), future.get(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static DomainImpl createDomain(final Executor executor, final int parallelThreshold) {
+    return new DomainImpl("test", null, CurveResolver.resolve("P-521"), null, 8, null, null, null, null, null, null, executor, parallelThreshold);
+  }
+}
@@ -2,9 +2,20 @@ package be.smals.shared.pseudo.helper.internal;
 
 import static be.smals.shared.pseudo.helper.internal.TestUtils.createTestDomain;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import be.smals.shared.pseudo.helper.Domain;
+import be.smals.shared.pseudo.helper.ParseError;
+import be.smals.shared.pseudo.helper.ParseResult;
+import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 
@@ -41,6 +52,149 @@ public class PseudonymFactoryTest {
     assertEquals(y, pseudonym.y());
   }
 
+  @Test
+  public void fromXY_bytes() {
+    final var decoder = Base64.getDecoder();
+    final var pseudonym = domain.pseudonymFactory().fromXY(decoder.decode(x), decoder.decode(y));
+    assertEquals(sec1, pseudonym.asString());
+    assertEquals(x, Base64.getEncoder().encodeToString(pseudonym.xBytes()));
+  }
+
+  @Test
+  public void writeSec1_fromSec1_ByteBuffer() {
+    final var pseudonym = domain.pseudonymFactory().fromXY(x, y);
+    final var buffer = ByteBuffer.allocate(256);
+    pseudonym.writeSec1(buffer);
+    pseudonym.writeShortSec1(buffer);
+    buffer.flip();
+    final var uncompressed = domain.pseudonymFactory().fromSec1(buffer);
+    final var compressed = domain.pseudonymFactory().fromSec1(buffer);
+    assertEquals(0, buffer.remaining());
+    assertEquals(sec1, uncompressed.asString());
+    assertEquals(sec1Compressed, compressed.asShortString());
+    assertEquals(y, compressed.y());
+  }
+
+  @Test
+  public void fromSec1_bytes_matches_asString() {
+    final var sec1AsBytes = Base64.getUrlDecoder().decode(sec1);
+    assertEquals(sec1, domain.pseudonymFactory().fromSec1(sec1AsBytes).asString());
+  }
+
+  @Test
+  public void fromSec1_truncated_ByteBuffer() {
+    final var sec1AsBytes = Base64.getUrlDecoder().decode(sec1);
+    final var buffer = ByteBuffer.wrap(sec1AsBytes, 0, sec1AsBytes.length - 1);
+    assertThrows(InvalidPseudonymException.class, () -> domain.pseudonymFactory().fromSec1(buffer));
+  }
+
+  @Test
+  public void fromSec1_invalid_point_ByteBuffer_keeps_position() {
+    final var sec1AsBytes = Base64.getUrlDecoder().decode(sec1);
+    // The Y coordinate does not match the X coordinate anymore
+    sec1AsBytes[sec1AsBytes.length - 1] ^= 1;
+    final var buffer = ByteBuffer.wrap(sec1AsBytes);
+    final var invalid = assertThrows(InvalidPseudonymException.class, () -> domain.pseudonymFactory().fromSec1(buffer));
+    assertEquals(ParseError.INVALID_POINT, invalid.getError());
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  public void tryFrom() {
+    final var factory = domain.pseudonymFactory();
+    final var valid = factory.tryFromXY(x, y);
+    assertTrue(valid.isValid());
+    assertEquals(sec1, valid.value().asString());
+    assertNull(valid.error());
+    assertEquals(y, factory.tryFromX(x).orElseThrow().y());
+    assertEquals(sec1, factory.tryFromSec1(Base64.getUrlDecoder().decode(sec1)).value().asString());
+
+    assertEquals(ParseError.EMPTY, factory.tryFromXY(null, y).error());
+    assertEquals(ParseError.INVALID_ENCODING, factory.tryFromXY("not Base64!", y).error());
+    assertEquals(ParseError.INVALID_ENCODING, factory.tryFromX("A").error());
+    assertEquals(ParseError.INVALID_POINT, factory.tryFromSec1(new byte[]{0x02, 0x01}).error());
+    final var invalid = factory.tryFromSec1(new byte[]{0x05});
+    assertFalse(invalid.isValid());
+    assertNull(invalid.value());
+    assertEquals("Invalid SEC 1 representation of the point", invalid.message());
+    final var e = assertThrows(InvalidPseudonymException.class, invalid::orElseThrow);
+    assertEquals(ParseError.INVALID_POINT, e.getError());
+    assertTrue(e.getStackTrace().length > 0);
+  }
+
+  @Test
+  public void invalid_points_are_rejected_before_bouncy_castle() {
+    final var factory = domain.pseudonymFactory();
+    final var decoder = Base64.getUrlDecoder();
+    final var fieldLength = 66;
+    // p = 2^521 - 1
+    final var p = new byte[fieldLength];
+    Arrays.fill(p, (byte) 0xFF);
+    p[0] = 0x01;
+    final var pAsBase64 = Base64.getEncoder().encodeToString(p);
+    final var uncompressed = decoder.decode(sec1);
+    final var compressed = decoder.decode(sec1Compressed);
+
+    final var invalidSec1s = new ArrayList<byte[]>();
+    // Point at infinity, hybrid prefix, wrong lengths
+    invalidSec1s.add(new byte[]{0x00});
+    invalidSec1s.add(withPrefix(uncompressed, (byte) 0x06));
+    invalidSec1s.add(Arrays.copyOf(compressed, compressed.length + 1));
+    invalidSec1s.add(Arrays.copyOf(uncompressed, uncompressed.length - 1));
+    // X >= p
+    final var compressedP = compressed.clone();
+    System.arraycopy(p, 0, compressedP, 1, fieldLength);
+    invalidSec1s.add(compressedP);
+    final var uncompressedP = uncompressed.clone();
+    System.arraycopy(p, 0, uncompressedP, 1, fieldLength);
+    invalidSec1s.add(uncompressedP);
+    // Not on the curve
+    final var offCurve = uncompressed.clone();
+    offCurve[offCurve.length - 1] ^= 1;
+    invalidSec1s.add(offCurve);
+    for (final var invalidSec1 : invalidSec1s) {
+      assertInvalidPoint(factory.tryFromSec1(invalidSec1));
+    }
+
+    assertInvalidPoint(factory.tryFromX("/w=="));
+    assertInvalidPoint(factory.tryFromX(pAsBase64));
+    assertInvalidPoint(factory.tryFromXY(pAsBase64, y));
+    assertInvalidPoint(factory.tryFromXY(x, "/w=="));
+    final var e = assertThrows(InvalidPseudonymException.class, () -> factory.fromX(pAsBase64));
+    assertEquals(ParseError.INVALID_POINT, e.getError());
+    assertNull(e.getCause());
+  }
+
+  @Test
+  public void fromSec1_compressed_both_parities() {
+    final var pseudonym = domain.pseudonymFactory().fromXY(x, y);
+    final var negated = new PseudonymImpl(((PseudonymImpl) pseudonym).ecPoint.negate().normalize(), domain);
+    for (final var point : List.of(pseudonym, negated)) {
+      final var decoded = domain.pseudonymFactory().fromSec1(Base64.getUrlDecoder().decode(point.asShortString()));
+      assertEquals(point.asString(), decoded.asString());
+    }
+  }
+
+  private static void assertInvalidPoint(final ParseResult<?> result) {
+    assertFalse(result.isValid());
+    assertEquals(ParseError.INVALID_POINT, result.error());
+  }
+
+  private static byte[] withPrefix(final byte[] sec1, final byte prefix) {
+    final var copy = sec1.clone();
+    copy[0] = prefix;
+    return copy;
+  }
+
+  @Test
+  public void stacklessValidationExceptions() {
+    final var e = assertThrows(InvalidPseudonymException.class, () -> new PseudonymFactoryImpl(domain, true).fromXY("not Base64!", y));
+    assertEquals("The Base64 encoded X coordinate is not a valid Base64 String", e.getMessage());
+    assertEquals(ParseError.INVALID_ENCODING, e.getError());
+    assertEquals(0, e.getStackTrace().length);
+    assertTrue(assertThrows(InvalidPseudonymException.class, () -> domain.pseudonymFactory().fromXY("not Base64!", y)).getStackTrace().length > 0);
+  }
+
   @Test
   public void multiple_no_collection_add_10_pseudonyms() {
     final var multiple = domain.pseudonymFactory().multiple();
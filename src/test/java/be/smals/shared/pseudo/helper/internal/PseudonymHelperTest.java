@@ -7,9 +7,21 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.Instant.now;
 import static java.time.temporal.ChronoUnit.HOURS;
 import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import be.smals.shared.pseudo.helper.AtRestKey;
+import be.smals.shared.pseudo.helper.BlockingPseudonymisationClient;
 import be.smals.shared.pseudo.helper.Domain;
 import be.smals.shared.pseudo.helper.MultiplePseudonymInTransit;
 import be.smals.shared.pseudo.helper.MultipleValue;
@@ -18,18 +30,39 @@ import be.smals.shared.pseudo.helper.Pseudonym;
 import be.smals.shared.pseudo.helper.PseudonymInTransit;
 import be.smals.shared.pseudo.helper.PseudonymisationClient;
 import be.smals.shared.pseudo.helper.PseudonymisationHelper;
+import be.smals.shared.pseudo.helper.TransitInfoCustomizer;
+import be.smals.shared.pseudo.helper.exceptions.DomainUnavailableException;
+import be.smals.shared.pseudo.helper.exceptions.InvalidPseudonymException;
+import be.smals.shared.pseudo.helper.exceptions.InvalidTransitInfoException;
+import be.smals.shared.pseudo.helper.exceptions.UnknownKidException;
+import be.smals.shared.pseudo.helper.utils.AtRestEquivalence;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.shaded.gson.JsonArray;
 import com.nimbusds.jose.shaded.gson.JsonObject;
 import com.nimbusds.jose.shaded.gson.JsonPrimitive;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.URI;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -173,6 +206,12 @@ class PseudonymHelperTest {
                                   return null;
                                 }
 
+                                @Override
+                                public CompletableFuture<String> convertMultipleTo(String fromDomainKey, String toDomainKey, String payload) {
+                                  // Conversion to the same domain: each input is returned as a new pseudonym in transit
+                                  return pseudonymizeMultiple(toDomainKey, payload);
+                                }
+
                                 private JsonObject createPseudo(Pseudonym pseudonym, String inResponseTo, Instant now) {
                                   return createPseudo(pseudonym.domain().key(),
                                                       pseudonym.x(), pseudonym.y(), null,
@@ -234,4 +273,693 @@ class PseudonymHelperTest {
       assertEquals(values.get(i).asString(), identifiedValues.get(i).asString());
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void refreshDomain_reuses_decrypted_secret_keys() throws ExecutionException, InterruptedException {
+    var decryptions = new AtomicInteger();
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                       .privateKeySupplier(hash -> {
+                                         decryptions.incrementAndGet();
+                                         return privateKeySupplier.getByHash(hash);
+                                       })
+                                       .pseudonymisationClient(domainKey -> completedFuture(domain))
+                                       .build();
+    var firstDomain = (DomainImpl) helper.getDomain("test").get();
+    var refreshedDomain = (DomainImpl) helper.refreshDomain("test").get();
+    assertNotSame(firstDomain, refreshedDomain);
+    assertEquals(1, decryptions.get());
+    assertEquals(firstDomain.activeKid(), refreshedDomain.activeKid());
+    assertEquals(firstDomain.activeKeyEncryptionMethod(), refreshedDomain.activeKeyEncryptionMethod());
+    assertSame(firstDomain.secretKey(firstDomain.activeKid()), refreshedDomain.secretKey(refreshedDomain.activeKid()));
+  }
+
+  @Test
+  public void computeMetrics() throws ExecutionException, InterruptedException {
+    var value = pseudonymisationHelper.getDomain("test")
+                                      .thenCompose(domain -> domain.valueFactory().from("01234567890").pseudonymize())
+                                      .thenCompose(PseudonymInTransit::identify)
+                                      .get();
+    assertEquals("01234567890", value.asString());
+    var metrics = pseudonymisationHelper.computeMetrics();
+    assertTrue(metrics.startedTasks() >= 3);
+    assertTrue(metrics.maxQueueingDelay().compareTo(metrics.averageQueueingDelay()) >= 0);
+  }
+
+  @Test
+  public void syncDomain() {
+    var syncDomain = pseudonymisationHelper.getSyncDomain("test");
+    var valueFactory = syncDomain.domain().valueFactory();
+    var pseudonymInTransit = syncDomain.pseudonymize(valueFactory.from("01234567890"));
+    assertEquals("01234567890", syncDomain.identify(pseudonymInTransit).asString());
+    var values = Stream.of("01234567890", "12345678901", "23456789012")
+                       .map(valueFactory::from)
+                       .collect(toList());
+    var identifiedValues = syncDomain.identify(syncDomain.pseudonymize(valueFactory.multiple(values)));
+    assertEquals(values.size(), identifiedValues.size());
+    for (int i = 0; i < identifiedValues.size(); i++) {
+      assertEquals(values.get(i).asString(), identifiedValues.get(i).asString());
+    }
+  }
+
+  @Test
+  public void syncDomain_calls_the_blocking_client_on_the_calling_thread() throws Exception {
+    var asyncClient = ((DomainImpl) pseudonymisationHelper.getDomain("test").get()).pseudonymisationClient();
+    var callers = new ArrayList<Thread>();
+    BlockingPseudonymisationClient blockingClient = (endpoint, domainKey, payload) -> {
+      callers.add(Thread.currentThread());
+      switch (endpoint) {
+        case "pseudonymize":
+          return asyncClient.pseudonymize(domainKey, payload).get();
+        case "pseudonymizeMultiple":
+          return asyncClient.pseudonymizeMultiple(domainKey, payload).get();
+        case "identify":
+          return asyncClient.identify(domainKey, payload).get();
+        case "identifyMultiple":
+          return asyncClient.identifyMultiple(domainKey, payload).get();
+        default:
+          return asyncClient.getDomain(domainKey).get();
+      }
+    };
+    var executions = new AtomicInteger();
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                       .privateKeySupplier(privateKeySupplier)
+                                       .pseudonymisationClient(blockingClient.toPseudonymisationClient(runnable -> {
+                                         executions.incrementAndGet();
+                                         new Thread(runnable).start();
+                                       }))
+                                       .build();
+    var syncDomain = helper.getSyncDomain("test");
+    assertEquals(1, executions.get());
+    callers.clear();
+    var valueFactory = syncDomain.domain().valueFactory();
+    assertEquals("01234567890", syncDomain.identify(syncDomain.pseudonymize(valueFactory.from("01234567890"))).asString());
+    var values = Stream.of("01234567890", "12345678901").map(valueFactory::from).collect(toList());
+    assertEquals(2, syncDomain.identify(syncDomain.pseudonymize(valueFactory.multiple(values))).size());
+    assertEquals(1, executions.get());
+    assertEquals(List.of(Thread.currentThread(), Thread.currentThread(), Thread.currentThread(), Thread.currentThread()), callers);
+  }
+
+  @Test
+  public void syncDomain_unblinds_the_responses_of_an_async_client_on_the_calling_thread() throws Exception {
+    var asyncClient = ((DomainImpl) pseudonymisationHelper.getDomain("test").get()).pseudonymisationClient();
+    var ioThread = Executors.newSingleThreadExecutor();
+    var invalidResponse = new AtomicBoolean();
+    var computeExecutions = new AtomicInteger();
+    // Completes the responses later, on another thread, as an HTTP client would
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                       .privateKeySupplier(privateKeySupplier)
+                                       .pseudonymisationClient(new PseudonymisationClient() {
+                                         @Override
+                                         public CompletableFuture<String> getDomain(String domainKey) {
+                                           return completedFuture(domain);
+                                         }
+
+                                         @Override
+                                         public CompletableFuture<String> pseudonymize(String domainKey, String payload) {
+                                           return later(asyncClient.pseudonymize(domainKey, payload));
+                                         }
+
+                                         @Override
+                                         public CompletableFuture<String> identify(String domainKey, String payload) {
+                                           return later(asyncClient.identify(domainKey, payload));
+                                         }
+
+                                         private CompletableFuture<String> later(CompletableFuture<String> response) {
+                                           var delayed = CompletableFuture.delayedExecutor(20, MILLISECONDS, ioThread);
+                                           return response.thenApplyAsync(r -> invalidResponse.get() ? "{" : r, delayed);
+                                         }
+                                       })
+                                       .computeExecutor(runnable -> {
+                                         computeExecutions.incrementAndGet();
+                                         runnable.run();
+                                       })
+                                       .build();
+    try {
+      var syncDomain = helper.getSyncDomain("test");
+      var value = syncDomain.domain().valueFactory().from("01234567890");
+      computeExecutions.set(0);
+      assertEquals("01234567890", syncDomain.identify(syncDomain.pseudonymize(value)).asString());
+      assertEquals(0, computeExecutions.get());
+
+      invalidResponse.set(true);
+      var e = assertThrows(RuntimeException.class, () -> syncDomain.pseudonymize(value));
+      var frames = Stream.iterate((Throwable) e, t -> t != null, Throwable::getCause)
+                         .flatMap(t -> Stream.of(t.getStackTrace()))
+                         .map(StackTraceElement::getClassName)
+                         .collect(toList());
+      assertTrue(frames.contains(CallingThreadExecutor.class.getName()), "the response must be handled by the calling thread");
+    } finally {
+      ioThread.shutdown();
+    }
+  }
+
+  @Test
+  public void syncDomain_rejects_points_of_other_domains() {
+    var syncDomain = pseudonymisationHelper.getSyncDomain("test");
+    var otherDomain = TestUtils.createTestDomain("other", 32);
+    assertThrows(IllegalArgumentException.class, () -> syncDomain.pseudonymize(otherDomain.valueFactory().from("01234567890")));
+  }
+
+  @Test
+  public void getDomain_does_not_block_on_the_jwks() throws ExecutionException, InterruptedException {
+    var jwks = new CompletableFuture<String>();
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> jwks)
+                                       .privateKeySupplier(privateKeySupplier)
+                                       .pseudonymisationClient(domainKey -> completedFuture(domain))
+                                       .computeExecutor(Runnable::run)
+                                       .build();
+    var domainFuture = helper.getDomain("test");
+    assertFalse(domainFuture.isDone());
+    jwks.complete(new JWKSet(rsaKey).toString(true));
+    assertEquals("test", domainFuture.get().key());
+  }
+
+  @Test
+  public void failed_domain_loads_are_not_retried_before_the_backoff_delay() {
+    var calls = new AtomicInteger();
+    var helper = PseudonymisationHelper.builder()
+                                       .pseudonymisationClient(domainKey -> {
+                                         calls.incrementAndGet();
+                                         return CompletableFuture.failedFuture(new IOException("eHealth unavailable"));
+                                       })
+                                       .computeExecutor(Runnable::run)
+                                       .domainRetryBaseDelay(Duration.ofHours(1))
+                                       .build();
+    var firstException = assertThrows(ExecutionException.class, () -> helper.getDomain("test").get());
+    assertInstanceOf(IOException.class, firstException.getCause());
+    var secondException = assertThrows(ExecutionException.class, () -> helper.getDomain("test").get());
+    var domainUnavailable = assertInstanceOf(DomainUnavailableException.class, secondException.getCause());
+    assertEquals("test", domainUnavailable.getDomainKey());
+    assertEquals(1, domainUnavailable.getFailedAttempts());
+    assertInstanceOf(IOException.class, domainUnavailable.getCause());
+    assertThrows(ExecutionException.class, () -> helper.refreshDomain("test").get());
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  public void failed_domain_refresh_keeps_the_previous_domain_and_retries_in_background() throws Exception {
+    var calls = new AtomicInteger();
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                       .privateKeySupplier(privateKeySupplier)
+                                       .pseudonymisationClient(domainKey -> calls.incrementAndGet() == 2
+                                                                            ? CompletableFuture.failedFuture(new IOException("eHealth unavailable"))
+                                                                            : completedFuture(domain))
+                                       .domainRetryBaseDelay(Duration.ofMillis(10))
+                                       .build();
+    var firstDomain = helper.getDomain("test").get();
+    assertThrows(ExecutionException.class, () -> helper.refreshDomain("test").get());
+    assertSame(firstDomain, helper.getDomain("test").get());
+    var deadline = System.nanoTime() + SECONDS.toNanos(5);
+    while (calls.get() < 3 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void domainHandle_follows_the_refreshes() throws ExecutionException, InterruptedException {
+    var handle = pseudonymisationHelper.getDomainHandle("test");
+    assertSame(handle, pseudonymisationHelper.getDomainHandle("test"));
+    var firstDomain = pseudonymisationHelper.getDomain("test").get();
+    assertTrue(handle.isReady());
+    assertSame(firstDomain, handle.current());
+    var refreshedDomain = pseudonymisationHelper.refreshDomain("test").get();
+    assertNotSame(firstDomain, refreshedDomain);
+    assertSame(refreshedDomain, handle.current());
+  }
+
+  @Test
+  public void preloadDomains() throws Exception {
+    var calls = new AtomicInteger();
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                       .privateKeySupplier(privateKeySupplier)
+                                       .pseudonymisationClient(domainKey -> calls.incrementAndGet() == 1
+                                                                            ? CompletableFuture.failedFuture(new IOException("eHealth unavailable"))
+                                                                            : completedFuture(domain))
+                                       .domainRetryBaseDelay(Duration.ofMillis(10))
+                                       .preloadDomains(List.of("test"))
+                                       .build();
+    helper.ready().get(5, SECONDS);
+    assertEquals(2, calls.get());
+    var handle = helper.preloadedDomains().get("test");
+    assertTrue(handle.isReady());
+    assertSame(handle.current(), helper.getDomain("test").get());
+  }
+
+  @Test
+  public void unknown_kid_refreshes_the_domain() throws Exception {
+    // Same secret key as the one of domain.json, but under a new active kid, as after a key rotation
+    var rotatedDomain = (JsonObject) parseString(domain);
+    var secretKeys = rotatedDomain.getAsJsonArray("secretKeys");
+    var rotatedKey = secretKeys.get(0).getAsJsonObject().deepCopy();
+    secretKeys.get(0).getAsJsonObject().addProperty("active", false);
+    rotatedKey.addProperty("kid", "rotated-kid");
+    secretKeys.add(rotatedKey);
+    var rotatedHelper = PseudonymisationHelper.builder()
+                                              .jwksUrl(jwksUrl)
+                                              .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                              .privateKeySupplier(privateKeySupplier)
+                                              .pseudonymisationClient(domainKey -> completedFuture(rotatedDomain.toString()))
+                                              .build();
+    var rotatedHelperDomain = rotatedHelper.getDomain("test").get();
+    var value = rotatedHelperDomain.valueFactory().from("01234567890");
+    var pseudonymInTransit = rotatedHelperDomain.pseudonymFactory().fromXY(value.x(), value.y()).inTransit();
+
+    for (var refreshDomainOnUnknownKid : List.of(false, true)) {
+      var calls = new AtomicInteger();
+      var helper = PseudonymisationHelper.builder()
+                                         .jwksUrl(jwksUrl)
+                                         .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                         .privateKeySupplier(privateKeySupplier)
+                                         .pseudonymisationClient(domainKey -> completedFuture(calls.incrementAndGet() == 1 ? domain : rotatedDomain.toString()))
+                                         .refreshDomainOnUnknownKid(refreshDomainOnUnknownKid)
+                                         .build();
+      var received = helper.getDomain("test").get().pseudonymInTransitFactory()
+                           .fromXYAndTransitInfo(pseudonymInTransit.x(), pseudonymInTransit.y(), pseudonymInTransit.transitInfo().asString());
+      if (refreshDomainOnUnknownKid) {
+        assertEquals(pseudonymInTransit.atRest().asString(), received.atRest().asString());
+        assertEquals(2, calls.get());
+      } else {
+        assertThrows(UnknownKidException.class, received::atRest);
+        assertEquals(1, calls.get());
+      }
+    }
+  }
+
+  @Test
+  public void unknown_kid_refresh_does_not_hold_the_lock_of_the_pseudonym_in_transit() throws Exception {
+    // Same secret key as the one of domain.json, but under a new active kid, as after a key rotation
+    var rotatedDomain = (JsonObject) parseString(domain);
+    var secretKeys = rotatedDomain.getAsJsonArray("secretKeys");
+    var rotatedKey = secretKeys.get(0).getAsJsonObject().deepCopy();
+    secretKeys.get(0).getAsJsonObject().addProperty("active", false);
+    rotatedKey.addProperty("kid", "rotated-kid");
+    secretKeys.add(rotatedKey);
+    var rotatedHelper = PseudonymisationHelper.builder()
+                                              .jwksUrl(jwksUrl)
+                                              .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                              .privateKeySupplier(privateKeySupplier)
+                                              .pseudonymisationClient(domainKey -> completedFuture(rotatedDomain.toString()))
+                                              .build();
+    var rotatedHelperDomain = rotatedHelper.getDomain("test").get();
+    var value = rotatedHelperDomain.valueFactory().from("01234567890");
+    var pseudonymInTransit = rotatedHelperDomain.pseudonymFactory().fromXY(value.x(), value.y()).inTransit();
+
+    var refresh = new CompletableFuture<String>();
+    var calls = new AtomicInteger();
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                       .privateKeySupplier(privateKeySupplier)
+                                       .pseudonymisationClient(domainKey -> calls.incrementAndGet() == 1 ? completedFuture(domain) : refresh)
+                                       .refreshDomainOnUnknownKid(true)
+                                       .build();
+    var received = helper.getDomain("test").get().pseudonymInTransitFactory()
+                         .fromXYAndTransitInfo(pseudonymInTransit.x(), pseudonymInTransit.y(), pseudonymInTransit.transitInfo().asString());
+    var atRest = CompletableFuture.supplyAsync(received::atRest);
+    for (int i = 0; i < 500 && calls.get() < 2; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, calls.get());
+    // The refresh is pending: the monitor of the pseudonym in transit must be free
+    CompletableFuture.runAsync(() -> {
+      synchronized (received) {
+        assertFalse(atRest.isDone());
+      }
+    }).get(1, SECONDS);
+    refresh.complete(rotatedDomain.toString());
+    assertEquals(pseudonymInTransit.atRest().asString(), atRest.get(5, SECONDS).asString());
+  }
+
+  @Test
+  public void unknown_kid_in_a_batch_does_not_deadlock_the_compute_executor() throws Exception {
+    // Same secret key as the one of domain.json, but under a new active kid, as after a key rotation
+    var rotatedDomain = (JsonObject) parseString(domain);
+    var secretKeys = rotatedDomain.getAsJsonArray("secretKeys");
+    var rotatedKey = secretKeys.get(0).getAsJsonObject().deepCopy();
+    secretKeys.get(0).getAsJsonObject().addProperty("active", false);
+    rotatedKey.addProperty("kid", "rotated-kid");
+    secretKeys.add(rotatedKey);
+    var rotatedHelper = PseudonymisationHelper.builder()
+                                              .jwksUrl(jwksUrl)
+                                              .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                              .privateKeySupplier(privateKeySupplier)
+                                              .pseudonymisationClient(domainKey -> completedFuture(rotatedDomain.toString()))
+                                              .build();
+    var rotatedHelperDomain = rotatedHelper.getDomain("test").get();
+    var pseudonymsInTransit = Stream.of("01234567890", "12345678901", "23456789012", "34567890123")
+                                    .map(ssin -> rotatedHelperDomain.valueFactory().from(ssin))
+                                    .map(value -> rotatedHelperDomain.pseudonymFactory().fromXY(value.x(), value.y()).inTransit())
+                                    .collect(toList());
+
+    var computeExecutor = Executors.newSingleThreadExecutor();
+    try {
+      var calls = new AtomicInteger();
+      var helper = PseudonymisationHelper.builder()
+                                         .jwksUrl(jwksUrl)
+                                         .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                         .privateKeySupplier(privateKeySupplier)
+                                         .pseudonymisationClient(domainKey -> completedFuture(calls.incrementAndGet() == 1 ? domain : rotatedDomain.toString()))
+                                         .computeExecutor(computeExecutor)
+                                         .parallelThreshold(2)
+                                         .refreshDomainOnUnknownKid(true)
+                                         .build();
+      var helperDomain = helper.getDomain("test").get();
+      var received = helperDomain.pseudonymInTransitFactory().multiple(
+          pseudonymsInTransit.stream()
+                             .map(p -> (PseudonymInTransit) helperDomain.pseudonymInTransitFactory()
+                                                                        .fromXYAndTransitInfo(p.x(), p.y(), p.transitInfo().asString()))
+                             .collect(toList()));
+      // The batch is processed on the only thread of the compute executor, which also creates the refreshed domain
+      var atRest = CompletableFuture.supplyAsync(received::atRest, computeExecutor).get(5, SECONDS);
+      assertEquals(pseudonymsInTransit.size(), atRest.size());
+      for (int i = 0; i < atRest.size(); i++) {
+        assertEquals(pseudonymsInTransit.get(i).atRest().asString(), atRest.get(i).asString());
+      }
+      assertEquals(2, calls.get());
+    } finally {
+      computeExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void multiple_inTransit_and_atRest_are_not_limited_to_10_elements() throws Exception {
+    var domain = (DomainImpl) pseudonymisationHelper.getDomain("test").get();
+    var pseudonyms = IntStream.range(0, 40)
+                              .mapToObj(i -> domain.valueFactory().from(String.format("%011d", i)))
+                              .map(value -> (Pseudonym) domain.pseudonymFactory().fromXY(value.x(), value.y()))
+                              .collect(toList());
+    var pseudonymsInTransit = domain.pseudonymFactory().multiple(pseudonyms).inTransit();
+    assertEquals(pseudonyms.size(), pseudonymsInTransit.size());
+    var pseudonymsAtRest = pseudonymsInTransit.atRest();
+    assertEquals(pseudonyms.size(), pseudonymsAtRest.size());
+    for (int i = 0; i < pseudonyms.size(); i++) {
+      assertEquals(pseudonyms.get(i).asString(), pseudonymsAtRest.get(i).asString());
+    }
+    assertThrows(IllegalArgumentException.class, pseudonymsInTransit::identify);
+  }
+
+  @Test
+  public void multiple_inTransit() throws Exception {
+    var domain = (DomainImpl) pseudonymisationHelper.getDomain("test").get();
+    var pseudonyms = Stream.of("01234567890", "12345678901", "23456789012")
+                           .map(ssin -> domain.valueFactory().from(ssin))
+                           .map(value -> (Pseudonym) domain.pseudonymFactory().fromXY(value.x(), value.y()))
+                           .collect(toList());
+    var customizer = new TransitInfoCustomizer() {
+      @Override
+      public Map<String, Object> header() {
+        return Map.of("custom", "header", "typ", "custom-type", "aud", "overridden", "kid", "overridden");
+      }
+
+      @Override
+      public Map<String, Object> payload() {
+        return Map.of("custom", "payload");
+      }
+    };
+    var pseudonymsInTransit = domain.pseudonymFactory().multiple(pseudonyms).inTransit(customizer);
+    assertEquals(pseudonyms.size(), pseudonymsInTransit.size());
+    for (int i = 0; i < pseudonyms.size(); i++) {
+      var pseudonymInTransit = pseudonymsInTransit.get(i);
+      // Parsed again, so that the transit info is really decrypted
+      var received = domain.pseudonymInTransitFactory().fromSec1AndTransitInfo(pseudonymInTransit.asString());
+      assertEquals(pseudonyms.get(i).asString(), received.atRest().asString());
+      var header = received.transitInfo().header();
+      assertEquals("header", header.get("custom"));
+      // The custom parameters with a registered name are passed through, as long as the template does not write them
+      assertEquals("custom-type", header.get("typ"));
+      assertEquals(domain.audience(), header.get("aud"));
+      assertEquals(domain.activeKid(), header.get("kid"));
+      assertInstanceOf(Long.class, header.get("exp"));
+      assertEquals(header.get("exp"), received.transitInfo().payload().get("exp"));
+      assertEquals("payload", received.transitInfo().payload().get("custom"));
+    }
+  }
+
+  @Test
+  public void multiple_atRest_reports_errors_per_item() throws Exception {
+    var domain = (DomainImpl) pseudonymisationHelper.getDomain("test").get();
+    var pseudonyms = Stream.of("01234567890", "12345678901")
+                           .map(ssin -> domain.valueFactory().from(ssin))
+                           .map(value -> (Pseudonym) domain.pseudonymFactory().fromXY(value.x(), value.y()))
+                           .collect(toList());
+    var pseudonymsInTransit = domain.pseudonymFactory().multiple(pseudonyms).inTransit();
+    var factory = domain.pseudonymInTransitFactory();
+    var valid = pseudonymsInTransit.get(0).asString();
+    // A character of the authentication tag is changed
+    var tampered = valid.substring(0, valid.length() - 5) + (valid.charAt(valid.length() - 5) == 'A' ? 'B' : 'A') + valid.substring(valid.length() - 4);
+    var received = factory.multiple(List.of(factory.fromSec1AndTransitInfo(valid),
+                                            factory.fromSec1AndTransitInfo(tampered),
+                                            factory.fromSec1AndTransitInfo(pseudonymsInTransit.get(1).asString())));
+    var atRest = received.atRest();
+    assertEquals(3, atRest.size());
+    assertEquals(pseudonyms.get(0).asString(), atRest.get(0).asString());
+    assertThrows(InvalidTransitInfoException.class, () -> atRest.get(1));
+    assertEquals(pseudonyms.get(1).asString(), atRest.get(2).asString());
+    // The error is passed through by the following operations
+    var inTransit = atRest.inTransit();
+    assertEquals(3, inTransit.size());
+    assertEquals(pseudonyms.get(0).asString(), inTransit.get(0).atRest().asString());
+    assertThrows(InvalidTransitInfoException.class, () -> inTransit.get(1));
+    assertEquals(pseudonyms.get(1).asString(), inTransit.get(2).atRest().asString());
+    var converted = atRest.convertTo(domain).get();
+    assertEquals(3, converted.size());
+    assertEquals(pseudonyms.get(0).asString(), converted.get(0).atRest().asString());
+    assertThrows(InvalidTransitInfoException.class, () -> converted.get(1));
+    assertEquals(pseudonyms.get(1).asString(), converted.get(2).atRest().asString());
+    var identified = converted.identify().get();
+    assertEquals(3, identified.size());
+    assertEquals("01234567890", identified.get(0).asString());
+    assertThrows(InvalidTransitInfoException.class, () -> identified.get(1));
+    assertEquals("12345678901", identified.get(2).asString());
+  }
+
+  @Test
+  public void shared_pseudonymInTransit_is_decrypted_once() throws Exception {
+    var domain = pseudonymisationHelper.getDomain("test").get();
+    var value = domain.valueFactory().from("01234567890");
+    var sent = domain.pseudonymFactory().fromXY(value.x(), value.y()).inTransit();
+    var received = domain.pseudonymInTransitFactory().fromSec1AndTransitInfo(sent.asString());
+    var start = new CountDownLatch(1);
+    var executor = Executors.newFixedThreadPool(8);
+    try {
+      var atRests = new ArrayList<Future<Pseudonym>>();
+      var payloads = new ArrayList<Future<Map<String, Object>>>();
+      for (int i = 0; i < 8; i++) {
+        payloads.add(executor.submit(() -> {
+          start.await();
+          return received.transitInfo().payload();
+        }));
+        atRests.add(executor.submit(() -> {
+          start.await();
+          return received.atRest();
+        }));
+      }
+      start.countDown();
+      for (int i = 0; i < 8; i++) {
+        assertSame(atRests.get(0).get(), atRests.get(i).get());
+        assertSame(payloads.get(0).get(), payloads.get(i).get());
+      }
+      assertEquals(sent.atRest().asString(), atRests.get(0).get().asString());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void atRestEquivalence() throws Exception {
+    var domain = pseudonymisationHelper.getDomain("test").get();
+    var factory = domain.pseudonymInTransitFactory();
+    var value = domain.valueFactory().from("01234567890");
+    var pseudonym = domain.pseudonymFactory().fromXY(value.x(), value.y());
+    var otherValue = domain.valueFactory().from("12345678901");
+    var other = domain.pseudonymFactory().fromXY(otherValue.x(), otherValue.y());
+    // Same pseudonym at rest with different transit infos
+    var first = factory.fromSec1AndTransitInfo(pseudonym.inTransit().asString());
+    var second = factory.fromSec1AndTransitInfo(pseudonym.inTransit().asString());
+    var third = factory.fromSec1AndTransitInfo(other.inTransit().asString());
+    assertNotEquals(first.asString(), second.asString());
+    assertEquals(AtRestKey.of(pseudonym), first.atRestKey());
+    assertSame(first.atRestKey(), first.atRestKey());
+    assertTrue(AtRestEquivalence.equivalent(first, second));
+    assertFalse(AtRestEquivalence.equivalent(first, third));
+    assertEquals(List.of(first, third), AtRestEquivalence.distinct(List.of(first, third, second)));
+    var groups = AtRestEquivalence.groupByAtRest(List.of(first, third, second));
+    assertEquals(List.of(AtRestKey.of(pseudonym), AtRestKey.of(other)), new ArrayList<>(groups.keySet()));
+    assertEquals(List.of(first, second), groups.get(AtRestKey.of(pseudonym)));
+  }
+
+  @Test
+  public void binary_format_round_trip() throws Exception {
+    var domain = pseudonymisationHelper.getDomain("test").get();
+    var value = domain.valueFactory().from("01234567890");
+    var pseudonym = domain.pseudonymFactory().fromXY(value.x(), value.y());
+    var pseudonymInTransit = pseudonym.inTransit();
+    var buffer = ByteBuffer.allocate(1024);
+    var pseudonymLength = pseudonym.writeTo(buffer);
+    var pseudonymInTransitLength = pseudonymInTransit.writeTo(buffer);
+    assertEquals(pseudonymLength + pseudonymInTransitLength, buffer.position());
+    assertTrue(pseudonymInTransitLength < pseudonymInTransit.asShortString().length());
+    buffer.flip();
+    assertEquals(pseudonym, domain.pseudonymFactory().readFrom(buffer));
+    var read = domain.pseudonymInTransitFactory().readFrom(buffer);
+    assertFalse(buffer.hasRemaining());
+    assertEquals(pseudonymInTransit.asString(), read.asString());
+    assertEquals(pseudonym, read.atRest());
+
+    // Nothing is written if the buffer is too small
+    var tooSmall = ByteBuffer.allocate(pseudonymInTransitLength - 1);
+    assertThrows(BufferOverflowException.class, () -> pseudonymInTransit.writeTo(tooSmall));
+    assertEquals(0, tooSmall.position());
+
+    // Wrong type or version, and truncated record: the position of the buffer is not changed
+    buffer.rewind();
+    assertThrows(InvalidPseudonymException.class, () -> domain.pseudonymInTransitFactory().readFrom(buffer));
+    assertEquals(0, buffer.position());
+    buffer.position(pseudonymLength).limit(buffer.limit() - 1);
+    assertThrows(InvalidPseudonymException.class, () -> domain.pseudonymInTransitFactory().readFrom(buffer));
+    assertEquals(pseudonymLength, buffer.position());
+    assertThrows(InvalidPseudonymException.class, () -> domain.pseudonymFactory().readFrom(ByteBuffer.wrap(new byte[]{0x12, 0x02})));
+  }
+
+  @Test
+  public void maxDomains_evicts_the_least_recently_used_domains() throws Exception {
+    var helper = PseudonymisationHelper.builder()
+                                       .jwksUrl(jwksUrl)
+                                       .jwkSupplier(() -> completedFuture(new JWKSet(rsaKey).toString(true)))
+                                       .privateKeySupplier(privateKeySupplier)
+                                       .pseudonymisationClient(PseudonymHelperTest::domainWithKey)
+                                       .maxDomains(2)
+                                       .build();
+    var a = helper.getDomain("a").get();
+    helper.getDomain("b").get();
+    assertSame(a, helper.getDomain("a").get());
+    helper.getDomain("c").get();
+    var metrics = helper.domainCacheMetrics();
+    assertEquals(2, metrics.residentDomains());
+    assertEquals(1, metrics.evictions());
+    assertEquals(3, metrics.loads());
+    assertEquals(Set.of("a", "c"), helper.refreshableDomains());
+    assertSame(a, helper.getDomain("a").get());
+    assertNotSame(a, helper.getDomain("b").get());
+    assertEquals(4, metrics.loads());
+  }
+
+  @Test
+  public void domainIdleTimeout_evicts_the_unused_domains() throws Exception {
+    var helper = PseudonymisationHelper.builder()
+                                       .pseudonymisationClient(PseudonymHelperTest::domainWithKey)
+                                       .domainIdleTimeout(Duration.ZERO)
+                                       .build();
+    var pinned = helper.getDomainHandle("pinned");
+    helper.getDomain("a").get();
+    Thread.sleep(1);
+    helper.getDomain("b").get();
+    var metrics = helper.domainCacheMetrics();
+    assertEquals(1, metrics.evictions());
+    assertEquals(2, metrics.residentDomains());
+    assertSame(pinned, helper.getDomainHandle("pinned"));
+    assertTrue(pinned.isReady());
+  }
+
+  @Test
+  public void domainIdleTimeout_evicts_the_unused_domains_on_access() throws Exception {
+    var helper = PseudonymisationHelper.builder()
+                                       .pseudonymisationClient(PseudonymHelperTest::domainWithKey)
+                                       .domainIdleTimeout(Duration.ofMillis(50))
+                                       .build();
+    helper.getDomain("a").get();
+    var b = helper.getDomain("b").get();
+    Thread.sleep(100);
+    // No new domain is loaded: the idle domains are removed on access
+    assertSame(b, helper.getDomain("b").get());
+    var metrics = helper.domainCacheMetrics();
+    assertEquals(1, metrics.evictions());
+    assertEquals(1, metrics.residentDomains());
+  }
+
+  @Test
+  public void domains_of_collected_handles_can_be_evicted() throws Exception {
+    var helper = PseudonymisationHelper.builder()
+                                       .pseudonymisationClient(PseudonymHelperTest::domainWithKey)
+                                       .maxDomains(1)
+                                       .build();
+    var handle = helper.getDomainHandle("a");
+    ((DomainHandleImpl) handle).loaded().get(5, SECONDS);
+    helper.getDomain("b").get();
+    assertEquals(0, helper.domainCacheMetrics().evictions());
+    // Once the application no longer references the handle, the domain is no longer pinned
+    var reference = new WeakReference<>(handle);
+    handle = null;
+    for (int i = 0; i < 100 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(reference.get());
+    helper.getDomain("c").get();
+    assertEquals(2, helper.domainCacheMetrics().evictions());
+    assertEquals(1, helper.domainCacheMetrics().residentDomains());
+  }
+
+  @Test
+  public void refreshDomain_concurrent_with_eviction_always_returns_the_installed_domain() throws Exception {
+    var helper = PseudonymisationHelper.builder()
+                                       .pseudonymisationClient(PseudonymHelperTest::domainWithKey)
+                                       .computeExecutor(Runnable::run)
+                                       .maxDomains(1)
+                                       .build();
+    var executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 0; i < 500; i++) {
+        helper.getDomain("a").get();
+        var start = new CountDownLatch(1);
+        // Loading "b" evicts "a" while it is refreshed
+        var eviction = executor.submit(() -> {
+          start.await();
+          return helper.getDomain("b").get();
+        });
+        start.countDown();
+        var refreshed = helper.refreshDomain("a");
+        eviction.get(5, SECONDS);
+        assertEquals("a", refreshed.get(5, SECONDS).key());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void getDomainHandle_retries_the_first_load_until_it_succeeds() throws Exception {
+    var calls = new AtomicInteger();
+    var helper = PseudonymisationHelper.builder()
+                                       .pseudonymisationClient(domainKey -> calls.incrementAndGet() == 1
+                                                                            ? CompletableFuture.failedFuture(new IOException("Connection refused"))
+                                                                            : domainWithKey(domainKey))
+                                       .domainRetryBaseDelay(Duration.ofMillis(10))
+                                       .build();
+    var handle = (DomainHandleImpl) helper.getDomainHandle("a");
+    handle.loaded().get(10, SECONDS);
+    assertTrue(handle.isReady());
+    assertEquals("a", handle.current().key());
+    assertEquals(2, calls.get());
+    assertEquals(1, helper.domainCacheMetrics().failedLoads());
+  }
+
+  private static CompletableFuture<String> domainWithKey(String domainKey) {
+    var rawDomain = (JsonObject) parseString(domain);
+    rawDomain.addProperty("domain", domainKey);
+    return completedFuture(rawDomain.toString());
+  }
+}
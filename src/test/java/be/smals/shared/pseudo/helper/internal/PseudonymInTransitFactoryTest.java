@@ -4,6 +4,7 @@ import static be.smals.shared.pseudo.helper.internal.TestUtils.createTestDomain;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import be.smals.shared.pseudo.helper.Domain;
+import be.smals.shared.pseudo.helper.ParseError;
 import org.junit.jupiter.api.Test;
 
 public class PseudonymInTransitFactoryTest {
@@ -53,4 +54,15 @@ public class PseudonymInTransitFactoryTest {
     assertEquals(transitInfoRaw, pseudonymInTransit.transitInfo().asString());
     assertEquals(sec1Base64, pseudonymInTransit.pseudonym().asString());
   }
-}
\ No newline at end of file
+
+  @Test
+  void tryFromSec1AndTransitInfo() {
+    final var factory = domain.pseudonymInTransitFactory();
+    assertEquals(transitInfoRaw, factory.tryFromSec1AndTransitInfo(sec1Base64 + ":" + transitInfoRaw).value().transitInfo().asString());
+    assertEquals(sec1Base64, factory.tryFromXYAndTransitInfo(x, y, transitInfoRaw).value().pseudonym().asString());
+    assertEquals(ParseError.EMPTY, factory.tryFromSec1AndTransitInfo("").error());
+    assertEquals(ParseError.INVALID_FORMAT, factory.tryFromSec1AndTransitInfo(sec1Base64).error());
+    assertEquals(ParseError.INVALID_ENCODING, factory.tryFromSec1AndTransitInfo("#:" + transitInfoRaw).error());
+    assertEquals(ParseError.INVALID_POINT, factory.tryFromSec1AndTransitInfo("BAAA:" + transitInfoRaw).error());
+  }
+}
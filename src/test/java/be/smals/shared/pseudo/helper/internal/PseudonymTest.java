@@ -4,6 +4,7 @@ import static be.smals.shared.pseudo.helper.internal.TestUtils.createTestDomain;
 import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.TWO;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import be.smals.shared.pseudo.helper.Domain;
 import java.math.BigInteger;
@@ -37,4 +38,16 @@ class PseudonymTest {
     final var pseudonym = domain.pseudonymFactory().fromXY(x, y);
     assertEquals(sec1, pseudonym.asShortString());
   }
-}
\ No newline at end of file
+
+  @Test
+  void hashCode_and_encodings_are_stable() {
+    final var x = domain.valueFactory().from("01234567890").asPseudonym().x();
+    final var pseudonym = domain.pseudonymFactory().fromX(x);
+    final var sameX = domain.pseudonymFactory().fromX(x);
+    assertEquals(pseudonym, sameX);
+    assertEquals(pseudonym.hashCode(), sameX.hashCode());
+    assertEquals(pseudonym.hashCode(), pseudonym.hashCode());
+    assertSame(pseudonym.asString(), pseudonym.asString());
+    assertEquals(domain.pseudonymFactory().fromXY(pseudonym.x(), pseudonym.y()).asString(), pseudonym.asString());
+  }
+}
@@ -0,0 +1,66 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static java.math.BigInteger.ONE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.junit.jupiter.api.Test;
+
+public class SquareRootEngineTest {
+
+  @Test
+  public void computeY_same_as_generic_implementation() {
+    final var random = new Random(42);
+    Stream.of("P-521", "P-384", "P-256").forEach(crv -> {
+      final var curve = ECNamedCurveTable.getParameterSpec(crv).getCurve();
+      final var engine = SquareRootEngine.forCurve(curve);
+      for (int i = 0; i < 200; i++) {
+        final var x = new BigInteger(curve.getFieldSize() - 1, random);
+        assertEquals(PointImpl.computeY(curve, x), engine.computeY(x), crv + " " + x);
+      }
+    });
+  }
+
+  @Test
+  public void isOnCurve_same_as_bouncy_castle() {
+    final var random = new Random(42);
+    Stream.of("P-521", "P-384", "P-256").forEach(crv -> {
+      final var curve = ECNamedCurveTable.getParameterSpec(crv).getCurve();
+      final var engine = SquareRootEngine.forCurve(curve);
+      for (int i = 0; i < 100; i++) {
+        final var x = new BigInteger(curve.getFieldSize() - 1, random);
+        final var y = engine.computeY(x);
+        final var otherY = y == null ? new BigInteger(curve.getFieldSize() - 1, random) : y.add(ONE);
+        for (final var candidate : y == null ? List.of(otherY) : List.of(y, otherY)) {
+          assertEquals(curve.createPoint(x, candidate).isValid(), engine.isOnCurve(x, candidate), crv + " " + x + " " + candidate);
+        }
+      }
+    });
+  }
+
+  @Test
+  public void isFieldElement() {
+    final var curve = ECNamedCurveTable.getParameterSpec("P-521").getCurve();
+    final var engine = SquareRootEngine.forCurve(curve);
+    final var p = curve.getField().getCharacteristic();
+    assertTrue(engine.isFieldElement(BigInteger.ZERO));
+    assertTrue(engine.isFieldElement(p.subtract(ONE)));
+    assertFalse(engine.isFieldElement(p));
+    assertFalse(engine.isFieldElement(ONE.negate()));
+  }
+
+  @Test
+  public void computeY_invalid_x() {
+    final var curve = ECNamedCurveTable.getParameterSpec("P-521").getCurve();
+    final var engine = SquareRootEngine.forCurve(curve);
+    assertThrows(IllegalArgumentException.class, () -> engine.computeY(curve.getField().getCharacteristic()));
+    assertThrows(IllegalArgumentException.class, () -> engine.computeY(ONE.negate()));
+  }
+}
@@ -0,0 +1,81 @@
+package be.smals.shared.pseudo.helper.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import be.smals.shared.pseudo.helper.RequestIdGenerator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+public class ThreadLocalRandomRequestIdGeneratorTest {
+
+  private final RequestIdGenerator generator = RequestIdGenerator.threadLocalRandomUuid();
+
+  @Test
+  public void nextId_is_a_random_uuid() {
+    final var uuid = UUID.fromString(generator.nextId());
+    assertEquals(4, uuid.version());
+    assertEquals(2, uuid.variant());
+  }
+
+  @Test
+  public void batch_ids_are_unique_random_uuids() {
+    final var ids = generator.batch();
+    final var uuids = new HashSet<UUID>();
+    for (int i = 0; i < 1000; i++) {
+      final var uuid = UUID.fromString(ids.get());
+      assertEquals(4, uuid.version());
+      assertEquals(2, uuid.variant());
+      uuids.add(uuid);
+    }
+    assertEquals(1000, uuids.size());
+  }
+
+  @Test
+  public void unique_under_concurrent_load() throws InterruptedException {
+    final var nbThreads = 8;
+    final var idsPerThread = 20_000;
+    final Set<String> ids = ConcurrentHashMap.newKeySet();
+    final var start = new CountDownLatch(1);
+    final var threads = new ArrayList<Thread>(nbThreads);
+    for (int t = 0; t < nbThreads; t++) {
+      final var batch = t % 2 == 0;
+      threads.add(new Thread(() -> {
+        try {
+          start.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        final var local = new ArrayList<String>(idsPerThread);
+        for (int i = 0; i < idsPerThread; i += 10) {
+          final var batchIds = batch ? generator.batch() : null;
+          for (int j = 0; j < 10; j++) {
+            local.add(batch ? batchIds.get() : generator.nextId());
+          }
+        }
+        ids.addAll(local);
+      }));
+    }
+    threads.forEach(Thread::start);
+    start.countDown();
+    for (final var thread : threads) {
+      thread.join();
+    }
+    assertEquals(nbThreads * idsPerThread, ids.size());
+  }
+
+  @Test
+  public void secureRandomUuid() {
+    final var secureRandomUuid = RequestIdGenerator.secureRandomUuid();
+    final var ids = new ArrayList<>(List.of(secureRandomUuid.nextId(), secureRandomUuid.batch().get()));
+    assertTrue(ids.stream().allMatch(id -> UUID.fromString(id).version() == 4));
+    assertEquals(2, new HashSet<>(ids).size());
+  }
+}